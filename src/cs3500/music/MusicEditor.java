@@ -3,13 +3,14 @@ package cs3500.music;
 import cs3500.music.controller.IMusicController;
 import cs3500.music.controller.MusicController;
 import cs3500.music.model.IMusicModel;
+import cs3500.music.model.MusicFile;
 import cs3500.music.util.ModelBuilder;
 import cs3500.music.util.MusicReader;
 import cs3500.music.view.IMusicView;
 import cs3500.music.view.ViewFactory;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiUnavailableException;
@@ -18,23 +19,32 @@ import javax.sound.midi.MidiUnavailableException;
  * Main method for running the View classes with particular arguments.
  */
 public class MusicEditor {
+  // Added: files with this extension are read as a MusicFile rather than as text.
+  private static final String BINARY_EXTENSION = ".mbin";
 
   /**
    * Main method for the entire project.
    *
    * @param args   The array of arguments to give. The first should be the file name, second should
-   *               be the view type ("console", "visual", "midi", "composite")
+   *               be the view type ("console", "visual", "midi", "composite"). A file name ending
+   *               in ".mbin" is opened as a binary music file
    * @throws IOException   If the requested file cannot be found
    * @throws InvalidMidiDataException   if MIDI data is invalid
    * @throws MidiUnavailableException   if MIDI is unavailable
    */
   public static void main(String[] args)
           throws IOException, InvalidMidiDataException, MidiUnavailableException {
-    ModelBuilder builder = new ModelBuilder();
-    FileReader fr = new FileReader(args[0]);
-    ViewFactory factory = new ViewFactory(MusicReader.parseFile(fr, builder));
-
-    IMusicModel model = builder.build();
+    IMusicModel model;
+    if (args[0].endsWith(BINARY_EXTENSION)) {
+      // Added: binary files are mapped rather than parsed.
+      model = MusicFile.open(Paths.get(args[0])).toModel();
+    } else {
+      ModelBuilder builder = new ModelBuilder();
+      // Changed: text files are read from their bytes, a chunk to each processor, which is much
+      // faster than a Scanner.
+      model = MusicReader.parseParallel(Paths.get(args[0]), builder);
+    }
+    ViewFactory factory = new ViewFactory(model);
 
     IMusicView view = factory.getView(args[1]);
 
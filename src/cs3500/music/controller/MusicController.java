@@ -132,8 +132,11 @@ public class MusicController implements IMusicController {
       timer.stop();
 
       if (noteClicked != null) {
-        model.addNote(start, end, 1, noteClicked, 100);
-        view.reset();
+        // Changed: the views hear about the new note from the model, so they no longer need to be
+        // reset.
+        // Changed: the view counts in beats, and the model in ticks.
+        int ticks = model.getResolution();
+        model.addNote(start * ticks, end * ticks, 1, noteClicked, 100);
         view.moveRight();
       }
     }
@@ -0,0 +1,996 @@
+package cs3500.music.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A music model which can safely be edited and read from many threads at once. The piece is cut
+ * into fixed-size ranges of ticks, and each note belongs to the range holding its start time. The
+ * ranges are dealt out round-robin to a fixed number of stripes, each of which is a MusicModel with
+ * its own read/write lock, so edits to notes starting in different parts of the piece usually take
+ * different locks and go ahead in parallel.
+ *
+ * <p>addNote, removeNote and editNote only lock the stripes they touch. Anything which has to look
+ * at the whole piece (getEndBeat, display, getBeats, the sound cursors, ...) takes every stripe's
+ * read lock, in stripe order, so it sees the piece as it was at a single moment. Whole-piece
+ * reads are served from a merged, frozen MusicModel, which is kept until the next edit.</p>
+ *
+ * <p>Edits are recorded in one undo history for the whole piece, but each stripe first keeps the
+ * edits made to it in a list of its own, along with when they were made, so edits to different
+ * stripes never wait on each other to be recorded. The lists are moved into the history, in the
+ * order the edits were made, whenever every stripe is locked for writing, such as by undo and
+ * redo. The notes on each pitch are likewise counted per stripe.</p>
+ *
+ * <p>Listeners are told about each change after its locks have been released, so they may freely
+ * read the model, but changes made by different threads at the same time may be reported in
+ * either order.</p>
+ *
+ * <p>Sounds which play on the same beat are ordered by start time and then by the order they
+ * were added, rather than purely by the order they were added.</p>
+ */
+public class ConcurrentMusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>>,
+        Note> {
+  private static final int DEFAULT_STRIPES = 16;
+  private static final int DEFAULT_STRIPE_BEATS = 16;
+  private static final int MAX_DELTAS = 1 << 16;
+
+  private final MusicModel[] stripes;
+  private final ReentrantReadWriteLock[] locks;
+  private final int stripeBeats;
+  private volatile int tempo;
+  private volatile int resolution;
+  // The whole piece as of the last edit, or null if it has to be merged again.
+  private volatile MusicModel merged;
+  // Only used while holding every stripe's write lock.
+  private final EditJournal history;
+  // The edits made to each stripe which are not yet in the history, guarded by the stripe's lock.
+  private final PendingEdits[] pending;
+  // Notes per pitch in each stripe, guarded by the stripe's lock.
+  private final PitchCounts[] pitches;
+  // The lowest and highest pitch of each stripe, two values to a stripe, so the pitch range of the
+  // piece can be worked out without taking any lock.
+  private final AtomicIntegerArray ranges;
+  // The pitch range last told to the listeners, with the lowest pitch in the high half.
+  private final AtomicLong reportedRange;
+  private final ListenerList listeners;
+
+  /**
+   * Constructs a new empty concurrent model with 16 stripes, each range of which is 16 ticks long.
+   */
+  public ConcurrentMusicModel() {
+    this(DEFAULT_STRIPES, DEFAULT_STRIPE_BEATS);
+  }
+
+  /**
+   * Constructs a new empty concurrent model.
+   *
+   * @param stripes     the number of independently locked stripes
+   * @param stripeBeats the number of ticks in each range of the piece dealt out to a stripe
+   * @throws IllegalArgumentException if either argument is less than 1
+   */
+  public ConcurrentMusicModel(int stripes, int stripeBeats) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("There must be at least one stripe.");
+    }
+    if (stripeBeats < 1) {
+      throw new IllegalArgumentException("Stripes must be at least one tick long.");
+    }
+    this.stripes = new MusicModel[stripes];
+    this.locks = new ReentrantReadWriteLock[stripes];
+    this.pending = new PendingEdits[stripes];
+    this.pitches = new PitchCounts[stripes];
+    this.ranges = new AtomicIntegerArray(stripes * 2);
+    for (int i = 0; i < stripes; i += 1) {
+      this.stripes[i] = new MusicModel(false);
+      this.locks[i] = new ReentrantReadWriteLock();
+      this.pending[i] = new PendingEdits(MAX_DELTAS);
+      this.pitches[i] = new PitchCounts();
+      this.ranges.set(i * 2, 128);
+      this.ranges.set(i * 2 + 1, -1);
+    }
+    this.stripeBeats = stripeBeats;
+    this.resolution = 1;
+    this.merged = null;
+    this.history = new EditJournal(MAX_DELTAS, 500);
+    this.reportedRange = new AtomicLong(packRange(128, -1));
+    this.listeners = new ListenerList();
+  }
+
+  /**
+   * Returns the stripe which holds notes starting at the given tick.
+   *
+   * @param start the start time of a note, in ticks
+   * @return the index of its stripe
+   */
+  private int stripeOf(int start) {
+    return (start / this.stripeBeats) % this.stripes.length;
+  }
+
+  @Override
+  public void addNote(int start, int end, int instrument, int pitch, int volume) {
+    MusicModel.checkValidSound(start, end, instrument, pitch, volume);
+    int s = this.stripeOf(start);
+    boolean rangeChanged;
+    this.locks[s].writeLock().lock();
+    try {
+      this.merged = null;
+      this.stripes[s].addNote(start, end, instrument, pitch, volume);
+      this.pending[s].startGroup(false);
+      this.pending[s].add(EditJournal.ADD, start, end, instrument, pitch, volume);
+      rangeChanged = this.count(s, pitch, true);
+    } finally {
+      this.locks[s].writeLock().unlock();
+    }
+    this.listeners.noteAdded(start, end, instrument, pitch, volume);
+    if (rangeChanged) {
+      this.firePitchRange();
+    }
+  }
+
+  /**
+   * Counts a note added to or removed from the given pitch of a stripe, which must be write
+   * locked.
+   *
+   * @param s     the stripe of the note
+   * @param pitch the pitch of the note
+   * @param added true if the note was added, false if it was removed
+   * @return true if this changed the pitch range of the stripe, and so maybe of the piece
+   */
+  private boolean count(int s, int pitch, boolean added) {
+    PitchCounts counts = this.pitches[s];
+    int low = counts.low();
+    int high = counts.high();
+    if (added) {
+      counts.add(pitch);
+    } else {
+      counts.remove(pitch);
+    }
+    if (low == counts.low() && high == counts.high()) {
+      return false;
+    }
+    this.ranges.set(s * 2, counts.low());
+    this.ranges.set(s * 2 + 1, counts.high());
+    return true;
+  }
+
+  /**
+   * Tells the listeners the current pitch range of the piece, if it is not the range they were
+   * last told.
+   */
+  private void firePitchRange() {
+    int low = 128;
+    int high = -1;
+    for (int s = 0; s < this.stripes.length; s += 1) {
+      low = Math.min(low, this.ranges.get(s * 2));
+      high = Math.max(high, this.ranges.get(s * 2 + 1));
+    }
+    long range = packRange(low, high);
+    if (this.reportedRange.getAndSet(range) != range) {
+      this.listeners.pitchRangeChanged(low, high);
+    }
+  }
+
+  /**
+   * Packs a pitch range into one value.
+   *
+   * @param low  the lowest pitch
+   * @param high the highest pitch
+   * @return the range, with the lowest pitch in the high half
+   */
+  private static long packRange(int low, int high) {
+    return (long) low << 32 | (high & 0xFFFFFFFFL);
+  }
+
+  @Override
+  public void addListener(ModelListener listener) {
+    this.listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  @Override
+  public void addNotes(int[] starts, int[] ends, int[] instruments, int[] pitches,
+                       int[] volumes) {
+    int count = starts.length;
+    if (ends.length != count || instruments.length != count || pitches.length != count
+            || volumes.length != count) {
+      throw new IllegalArgumentException("Note arrays must all be the same length.");
+    }
+    int[] sizes = new int[this.stripes.length];
+    for (int i = 0; i < count; i += 1) {
+      MusicModel.checkValidSound(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+      sizes[this.stripeOf(starts[i])] += 1;
+    }
+
+    boolean rangeChanged = false;
+    // Every stripe the batch touches is locked, in stripe order, before any note is added, so no
+    // one sees half of the batch.
+    for (int s = 0; s < this.stripes.length; s += 1) {
+      if (sizes[s] > 0) {
+        this.locks[s].writeLock().lock();
+      }
+    }
+    try {
+      this.merged = null;
+      int first = -1;
+      for (int s = 0; s < this.stripes.length; s += 1) {
+        if (sizes[s] > 0) {
+          this.addGroup(s, sizes[s], starts, ends, instruments, pitches, volumes);
+          first = first < 0 ? s : first;
+        }
+      }
+      // The whole batch is one edit, so it is kept by the first stripe it touches.
+      if (first >= 0) {
+        this.pending[first].startGroup(true);
+        for (int i = 0; i < count; i += 1) {
+          this.pending[first].add(EditJournal.ADD, starts[i], ends[i], instruments[i],
+                  pitches[i], volumes[i]);
+        }
+      }
+      for (int i = 0; i < count; i += 1) {
+        rangeChanged |= this.count(this.stripeOf(starts[i]), pitches[i], true);
+      }
+    } finally {
+      for (int s = this.stripes.length - 1; s >= 0; s -= 1) {
+        if (sizes[s] > 0) {
+          this.locks[s].writeLock().unlock();
+        }
+      }
+    }
+    for (int i = 0; i < count; i += 1) {
+      this.listeners.noteAdded(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    if (rangeChanged) {
+      this.firePitchRange();
+    }
+  }
+
+  /**
+   * Adds the notes of a batch which start in the given stripe to that stripe, keeping their
+   * order. The stripe must already be write locked.
+   *
+   * @param s    the stripe to add to
+   * @param size how many notes of the batch belong to that stripe
+   */
+  private void addGroup(int s, int size, int[] starts, int[] ends, int[] instruments,
+                        int[] pitches, int[] volumes) {
+    int[][] group = new int[5][size];
+    int next = 0;
+    for (int i = 0; i < starts.length; i += 1) {
+      if (this.stripeOf(starts[i]) == s) {
+        group[0][next] = starts[i];
+        group[1][next] = ends[i];
+        group[2][next] = instruments[i];
+        group[3][next] = pitches[i];
+        group[4][next] = volumes[i];
+        next += 1;
+      }
+    }
+    this.stripes[s].addNotes(group[0], group[1], group[2], group[3], group[4]);
+  }
+
+  @Override
+  public void removeNote(int start, int end, int instrument, int pitch, int volume) {
+    MusicModel.checkValidSound(start, end, instrument, pitch, volume);
+    int s = this.stripeOf(start);
+    boolean rangeChanged;
+    this.locks[s].writeLock().lock();
+    try {
+      this.stripes[s].removeNote(start, end, instrument, pitch, volume);
+      this.merged = null;
+      this.pending[s].startGroup(false);
+      this.pending[s].add(EditJournal.REMOVE, start, end, instrument, pitch, volume);
+      rangeChanged = this.count(s, pitch, false);
+    } finally {
+      this.locks[s].writeLock().unlock();
+    }
+    this.listeners.noteRemoved(start, end, instrument, pitch, volume);
+    if (rangeChanged) {
+      this.firePitchRange();
+    }
+  }
+
+  @Override
+  public void editNote(int startSource, int endSource, int instrumentSource, int pitchSource,
+                       int volumeSource, int startDest, int endDest, int instrumentDest,
+                       int pitchDest, int volumeDest) {
+    MusicModel.checkValidSound(startSource, endSource, instrumentSource, pitchSource,
+            volumeSource);
+    MusicModel.checkValidSound(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    int from = this.stripeOf(startSource);
+    int to = this.stripeOf(startDest);
+    // Both stripes are locked, lower one first, so no one sees the note missing from both.
+    int first = Math.min(from, to);
+    int second = Math.max(from, to);
+    boolean rangeChanged;
+    this.locks[first].writeLock().lock();
+    if (second != first) {
+      this.locks[second].writeLock().lock();
+    }
+    try {
+      this.stripes[from].removeNote(startSource, endSource, instrumentSource, pitchSource,
+              volumeSource);
+      this.merged = null;
+      this.stripes[to].addNote(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+      this.pending[first].startGroup(true);
+      this.pending[first].add(EditJournal.REMOVE, startSource, endSource, instrumentSource,
+              pitchSource, volumeSource);
+      this.pending[first].add(EditJournal.ADD, startDest, endDest, instrumentDest, pitchDest,
+              volumeDest);
+      rangeChanged = this.count(from, pitchSource, false) | this.count(to, pitchDest, true);
+    } finally {
+      if (second != first) {
+        this.locks[second].writeLock().unlock();
+      }
+      this.locks[first].writeLock().unlock();
+    }
+    this.listeners.noteEdited(startSource, endSource, instrumentSource, pitchSource, volumeSource,
+            startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    if (rangeChanged) {
+      this.firePitchRange();
+    }
+  }
+
+  @Override
+  public int transformNotes(int start, int end, NoteFilter filter, NoteTransform transform) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    Objects.requireNonNull(filter);
+    Objects.requireNonNull(transform);
+    // Each transformed note as it was, five values to a note.
+    int[] before = new int[80];
+    int count = 0;
+    boolean rangeChanged;
+    this.lockAllForWriting();
+    try {
+      for (int s = 0; s < this.stripes.length; s += 1) {
+        SoundCursor c = this.stripes[s].getSounds(start, end);
+        while (c.next()) {
+          if (c.getStartBeat() >= start && filter.accept(c.getStartBeat(), c.getEndBeat(),
+                  c.getInstrument(), c.getPitch(), c.getVolume())) {
+            if (count * 5 == before.length) {
+              before = Arrays.copyOf(before, before.length * 2);
+            }
+            before[count * 5] = c.getStartBeat();
+            before[count * 5 + 1] = c.getEndBeat();
+            before[count * 5 + 2] = c.getInstrument();
+            before[count * 5 + 3] = c.getPitch();
+            before[count * 5 + 4] = c.getVolume();
+            count += 1;
+          }
+        }
+      }
+      for (int i = 0; i < count; i += 1) {
+        MusicModel.checkValidSound(transform.beat(before[i * 5]),
+                transform.beat(before[i * 5 + 1]), transform.instrument(before[i * 5 + 2]),
+                transform.pitch(before[i * 5 + 3]), transform.volume(before[i * 5 + 4]));
+      }
+
+      this.merged = null;
+      for (int s = 0; s < this.stripes.length; s += 1) {
+        this.stripes[s].transformNotes(start, end, filter, transform);
+      }
+      // Notes moved in time may now belong to another stripe.
+      for (int i = 0; i < count; i += 1) {
+        int from = this.stripeOf(before[i * 5]);
+        int to = this.stripeOf(transform.beat(before[i * 5]));
+        if (from != to) {
+          int[] n = this.transformed(before, i, transform);
+          this.stripes[from].removeNote(n[0], n[1], n[2], n[3], n[4]);
+          this.stripes[to].addNote(n[0], n[1], n[2], n[3], n[4]);
+        }
+      }
+
+      this.catchUpHistory();
+      this.history.beginCompound();
+      rangeChanged = false;
+      for (int i = 0; i < count; i += 1) {
+        int[] n = this.transformed(before, i, transform);
+        this.history.record(EditJournal.REMOVE, before[i * 5], before[i * 5 + 1],
+                before[i * 5 + 2], before[i * 5 + 3], before[i * 5 + 4]);
+        this.history.record(EditJournal.ADD, n[0], n[1], n[2], n[3], n[4]);
+        rangeChanged |= this.count(this.stripeOf(before[i * 5]), before[i * 5 + 3], false);
+        rangeChanged |= this.count(this.stripeOf(n[0]), n[3], true);
+      }
+      this.history.endCompound();
+    } finally {
+      this.unlockAllForWriting();
+    }
+    for (int i = 0; i < count; i += 1) {
+      int[] n = this.transformed(before, i, transform);
+      this.listeners.noteEdited(before[i * 5], before[i * 5 + 1], before[i * 5 + 2],
+              before[i * 5 + 3], before[i * 5 + 4], n[0], n[1], n[2], n[3], n[4]);
+    }
+    if (rangeChanged) {
+      this.firePitchRange();
+    }
+    return count;
+  }
+
+  /**
+   * Applies a transform to one of a list of notes.
+   *
+   * @param notes the notes, five values to a note
+   * @param i     which note to transform
+   * @return the transformed note's start, end, instrument, pitch and volume
+   */
+  private int[] transformed(int[] notes, int i, NoteTransform transform) {
+    return new int[]{transform.beat(notes[i * 5]), transform.beat(notes[i * 5 + 1]),
+        transform.instrument(notes[i * 5 + 2]), transform.pitch(notes[i * 5 + 3]),
+        transform.volume(notes[i * 5 + 4])};
+  }
+
+  /**
+   * Moves the edits kept by each stripe into the undo history, in the order they were made. Every
+   * stripe must already be write locked. If a stripe had to forget some of its edits to make room,
+   * every edit made before the last one it forgot is forgotten too, since those could no longer be
+   * undone without undoing it first.
+   */
+  private void catchUpHistory() {
+    long forgotten = Long.MIN_VALUE;
+    for (PendingEdits edits : this.pending) {
+      forgotten = Math.max(forgotten, edits.forgotten());
+    }
+    if (forgotten != Long.MIN_VALUE) {
+      this.history.clear();
+    }
+    while (true) {
+      PendingEdits earliest = null;
+      for (PendingEdits edits : this.pending) {
+        if (edits.hasNext() && (earliest == null || edits.nextTime() < earliest.nextTime())) {
+          earliest = edits;
+        }
+      }
+      if (earliest == null) {
+        break;
+      }
+      earliest.moveNext(this.history, forgotten);
+    }
+    for (PendingEdits edits : this.pending) {
+      edits.clear();
+    }
+  }
+
+  @Override
+  public boolean undo() {
+    Replay replay = new Replay();
+    boolean undone;
+    this.lockAllForWriting();
+    try {
+      this.catchUpHistory();
+      this.merged = null;
+      undone = this.history.undo(replay);
+    } finally {
+      this.unlockAllForWriting();
+    }
+    replay.fire();
+    return undone;
+  }
+
+  @Override
+  public boolean redo() {
+    Replay replay = new Replay();
+    boolean redone;
+    this.lockAllForWriting();
+    try {
+      this.catchUpHistory();
+      this.merged = null;
+      redone = this.history.redo(replay);
+    } finally {
+      this.unlockAllForWriting();
+    }
+    replay.fire();
+    return redone;
+  }
+
+  /**
+   * Applies the deltas of the undo history straight to the stripes, which must all already be
+   * write locked, and keeps them so that listeners can be told once the locks are released.
+   */
+  private final class Replay implements EditJournal.Target {
+    // Each delta applied, as its kind and five values, in the order they were applied.
+    private int[] applied = new int[6 * 8];
+    private int size = 0;
+    private boolean rangeChanged = false;
+
+    @Override
+    public void add(int start, int end, int instrument, int pitch, int volume) {
+      stripes[stripeOf(start)].addNote(start, end, instrument, pitch, volume);
+      this.rangeChanged |= count(stripeOf(start), pitch, true);
+      this.keep(EditJournal.ADD, start, end, instrument, pitch, volume);
+    }
+
+    @Override
+    public void remove(int start, int end, int instrument, int pitch, int volume) {
+      stripes[stripeOf(start)].undoAdd(start, end, instrument, pitch, volume);
+      this.rangeChanged |= count(stripeOf(start), pitch, false);
+      this.keep(EditJournal.REMOVE, start, end, instrument, pitch, volume);
+    }
+
+    @Override
+    public void setTempo(int tempo) {
+      ConcurrentMusicModel.this.tempo = tempo;
+      this.keep(EditJournal.TEMPO, tempo, 0, 0, 0, 0);
+    }
+
+    /**
+     * Keeps a delta which has been applied.
+     */
+    private void keep(int kind, int a, int b, int c, int d, int e) {
+      if (this.size + 6 > this.applied.length) {
+        this.applied = Arrays.copyOf(this.applied, this.applied.length * 2);
+      }
+      this.applied[this.size] = kind;
+      this.applied[this.size + 1] = a;
+      this.applied[this.size + 2] = b;
+      this.applied[this.size + 3] = c;
+      this.applied[this.size + 4] = d;
+      this.applied[this.size + 5] = e;
+      this.size += 6;
+    }
+
+    /**
+     * Tells the listeners about every delta applied, in order.
+     */
+    void fire() {
+      int[] v = this.applied;
+      for (int i = 0; i < this.size; i += 6) {
+        if (v[i] == EditJournal.ADD) {
+          listeners.noteAdded(v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5]);
+        } else if (v[i] == EditJournal.REMOVE) {
+          listeners.noteRemoved(v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5]);
+        } else {
+          listeners.tempoChanged(v[i + 1]);
+        }
+      }
+      if (this.rangeChanged) {
+        firePitchRange();
+      }
+    }
+  }
+
+  /**
+   * The edits made to one stripe which have not yet been moved into the undo history, each kept as
+   * a group of deltas along with when it was made. Only used while holding the stripe's write
+   * lock. When it holds more deltas than the history could, the oldest groups are forgotten.
+   */
+  private static final class PendingEdits {
+    private final int maxDeltas;
+    // Each delta is its kind followed by five values, as in the history.
+    private int[] deltas = new int[6 * 16];
+    private int deltaCount = 0;
+    // The index of the first delta of each group, when it was made, and whether its deltas make up
+    // one edit rather than a single-note edit which may be undone along with others.
+    private int[] firsts = new int[16];
+    private long[] times = new long[16];
+    private boolean[] compound = new boolean[16];
+    private int groupCount = 0;
+    // The next group to be moved into the history.
+    private int next = 0;
+    // When the last group forgotten to make room was made, or Long.MIN_VALUE if none has been.
+    private long forgotten = Long.MIN_VALUE;
+
+    /**
+     * Constructs an empty list of edits.
+     *
+     * @param maxDeltas the most deltas to keep before forgetting the oldest edits
+     */
+    PendingEdits(int maxDeltas) {
+      this.maxDeltas = maxDeltas;
+    }
+
+    /**
+     * Starts the group of deltas of a new edit, made now.
+     *
+     * @param whole true if the group's deltas make up one edit
+     */
+    void startGroup(boolean whole) {
+      if (this.deltaCount >= this.maxDeltas * 6) {
+        this.forgetOldest();
+      }
+      if (this.groupCount == this.firsts.length) {
+        this.firsts = Arrays.copyOf(this.firsts, this.groupCount * 2);
+        this.times = Arrays.copyOf(this.times, this.groupCount * 2);
+        this.compound = Arrays.copyOf(this.compound, this.groupCount * 2);
+      }
+      this.firsts[this.groupCount] = this.deltaCount;
+      this.times[this.groupCount] = System.nanoTime();
+      this.compound[this.groupCount] = whole;
+      this.groupCount += 1;
+    }
+
+    /**
+     * Adds a delta to the group last started.
+     *
+     * @param kind ADD, REMOVE or TEMPO
+     */
+    void add(int kind, int a, int b, int c, int d, int e) {
+      if (this.deltaCount + 6 > this.deltas.length) {
+        this.deltas = Arrays.copyOf(this.deltas, this.deltas.length * 2);
+      }
+      int i = this.deltaCount;
+      this.deltas[i] = kind;
+      this.deltas[i + 1] = a;
+      this.deltas[i + 2] = b;
+      this.deltas[i + 3] = c;
+      this.deltas[i + 4] = d;
+      this.deltas[i + 5] = e;
+      this.deltaCount += 6;
+    }
+
+    /**
+     * Forgets the oldest groups until a quarter of the deltas this may hold are free, so that
+     * forgetting doesn't happen on every edit.
+     */
+    private void forgetOldest() {
+      int keep = (this.maxDeltas / 4 * 3) * 6;
+      int drop = 0;
+      while (drop < this.groupCount && this.deltaCount - this.firsts[drop] > keep) {
+        drop += 1;
+      }
+      if (drop == 0) {
+        return;
+      }
+      this.forgotten = this.times[drop - 1];
+      int from = drop < this.groupCount ? this.firsts[drop] : this.deltaCount;
+      System.arraycopy(this.deltas, from, this.deltas, 0, this.deltaCount - from);
+      this.deltaCount -= from;
+      for (int g = drop; g < this.groupCount; g += 1) {
+        this.firsts[g - drop] = this.firsts[g] - from;
+        this.times[g - drop] = this.times[g];
+        this.compound[g - drop] = this.compound[g];
+      }
+      this.groupCount -= drop;
+    }
+
+    /**
+     * Returns when the last group forgotten to make room was made.
+     *
+     * @return the time, or Long.MIN_VALUE if no group has been forgotten
+     */
+    long forgotten() {
+      return this.forgotten;
+    }
+
+    /**
+     * Is there a group left to move into the history.
+     *
+     * @return true if there is
+     */
+    boolean hasNext() {
+      return this.next < this.groupCount;
+    }
+
+    /**
+     * Returns when the next group to move into the history was made.
+     *
+     * @return the time, as given by System.nanoTime
+     */
+    long nextTime() {
+      return this.times[this.next];
+    }
+
+    /**
+     * Records the next group in the history, unless it was made no later than the given time.
+     *
+     * @param history   the history
+     * @param forgotten the time up to which edits are forgotten
+     */
+    void moveNext(EditJournal history, long forgotten) {
+      int g = this.next;
+      this.next += 1;
+      if (this.times[g] <= forgotten) {
+        return;
+      }
+      int end = this.next < this.groupCount ? this.firsts[this.next] : this.deltaCount;
+      if (this.compound[g]) {
+        history.beginCompound();
+      }
+      int[] v = this.deltas;
+      for (int i = this.firsts[g]; i < end; i += 6) {
+        history.record(v[i], v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5], this.times[g]);
+      }
+      if (this.compound[g]) {
+        history.endCompound();
+      }
+    }
+
+    /**
+     * Forgets every group.
+     */
+    void clear() {
+      this.deltaCount = 0;
+      this.groupCount = 0;
+      this.next = 0;
+      this.forgotten = Long.MIN_VALUE;
+    }
+  }
+
+  /**
+   * Returns the whole piece as a single frozen MusicModel, merging the stripes if they have been
+   * edited since it was last asked for. Every stripe is read locked while merging, so the result
+   * is the piece as it was at one moment.
+   *
+   * @return the whole piece
+   */
+  private MusicModel merged() {
+    MusicModel current = this.merged;
+    if (current != null) {
+      return current;
+    }
+    this.lockAllForReading();
+    try {
+      current = this.merged;
+      if (current == null) {
+        current = this.merge();
+        this.merged = current;
+      }
+      return current;
+    } finally {
+      this.unlockAllForReading();
+    }
+  }
+
+  /**
+   * Copies the notes of every stripe into a new model. Notes starting on the same beat are
+   * always in the same stripe, so once the model sorts the notes by start beat they are in the
+   * same order as they would have been in a single MusicModel.
+   *
+   * @return a frozen model holding every note of the piece
+   */
+  private MusicModel merge() {
+    int count = 0;
+    for (MusicModel stripe : this.stripes) {
+      SoundCursor c = stripe.getSounds();
+      while (c.next()) {
+        count += 1;
+      }
+    }
+    int[][] all = new int[5][count];
+    int next = 0;
+    for (MusicModel stripe : this.stripes) {
+      SoundCursor c = stripe.getSounds();
+      while (c.next()) {
+        all[0][next] = c.getStartBeat();
+        all[1][next] = c.getEndBeat();
+        all[2][next] = c.getInstrument();
+        all[3][next] = c.getPitch();
+        all[4][next] = c.getVolume();
+        next += 1;
+      }
+    }
+    MusicModel piece = new MusicModel(false);
+    piece.setResolution(this.resolution);
+    piece.addNotes(all[0], all[1], all[2], all[3], all[4]);
+    // Notes of no length aren't in the stripes' cursors, but still count towards the pitch range
+    // the piece is displayed over, so one is put back for each.
+    int[] stored = new int[128];
+    for (int i = 0; i < count; i += 1) {
+      stored[all[3][i]] += 1;
+    }
+    for (int pitch = 0; pitch < 128; pitch += 1) {
+      int empty = -stored[pitch];
+      for (PitchCounts counts : this.pitches) {
+        empty += counts.count(pitch);
+      }
+      for (int i = 0; i < empty; i += 1) {
+        piece.addNote(0, 0, 0, pitch, 0);
+      }
+    }
+    piece.setTempo(this.tempo);
+    return piece.snapshot();
+  }
+
+  /**
+   * Takes the read lock of every stripe, in stripe order.
+   */
+  private void lockAllForReading() {
+    for (ReentrantReadWriteLock lock : this.locks) {
+      lock.readLock().lock();
+    }
+  }
+
+  /**
+   * Releases the read lock of every stripe.
+   */
+  private void unlockAllForReading() {
+    for (int i = this.locks.length - 1; i >= 0; i -= 1) {
+      this.locks[i].readLock().unlock();
+    }
+  }
+
+  @Override
+  public IMusicModel<?, ?> combineMusic(CombineType combineType, IMusicModel<?, ?> that) {
+    return this.merged().combineMusic(combineType, that);
+  }
+
+  @Override
+  public String display() {
+    return this.merged().display();
+  }
+
+  @Override
+  public int getEndBeat() {
+    MusicModel current = this.merged;
+    if (current != null) {
+      return current.getEndBeat();
+    }
+    this.lockAllForReading();
+    try {
+      // The stripes keep one tick per beat, so this is the tick after the last one played.
+      int end = 1;
+      for (MusicModel stripe : this.stripes) {
+        end = Math.max(end, stripe.getEndBeat());
+      }
+      return (end - 1) / this.resolution + 1;
+    } finally {
+      this.unlockAllForReading();
+    }
+  }
+
+  @Override
+  public HashMap<Integer, ArrayList<Sound>> getBeats(int start, int end) {
+    return this.merged().getBeats(start, end);
+  }
+
+  /**
+   * {@inheritDoc} The cursor reads from a frozen copy of the piece, so unlike a MusicModel's it
+   * stays valid after this model is edited.
+   */
+  @Override
+  public SoundCursor getSounds() {
+    return this.merged().getSounds();
+  }
+
+  @Override
+  public SoundCursor getSounds(int start, int end) {
+    return this.merged().getSounds(start, end);
+  }
+
+  @Override
+  public SoundCursor getSoundsAt(int beat) {
+    return this.merged().getSoundsAt(beat);
+  }
+
+  @Override
+  public SoundCursor query(NoteQuery query) {
+    return this.merged().query(query);
+  }
+
+  /**
+   * {@inheritDoc} Each stripe keeps the sums for the notes it holds, so the range is summed up in
+   * every stripe, while they are all locked for reading, and the results put together.
+   */
+  @Override
+  public RangeSummary summarize(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    this.lockAllForReading();
+    try {
+      RangeSummary total = this.stripes[0].summarize(start, end);
+      for (int i = 1; i < this.stripes.length; i += 1) {
+        total = total.plus(this.stripes[i].summarize(start, end));
+      }
+      return total;
+    } finally {
+      this.unlockAllForReading();
+    }
+  }
+
+  @Override
+  public List<Integer> getTracks() {
+    return this.merged().getTracks();
+  }
+
+  @Override
+  public SoundCursor getTrack(int instrument, int start, int end) {
+    return this.merged().getTrack(instrument, start, end);
+  }
+
+  @Override
+  public List<Note> notesToDisplay() {
+    int low = 128;
+    int high = -1;
+    // The stripes' counts include notes of no length, which the merged piece does not hold.
+    this.lockAllForReading();
+    try {
+      for (PitchCounts counts : this.pitches) {
+        if (!counts.isEmpty()) {
+          low = Math.min(low, counts.low());
+          high = Math.max(high, counts.high());
+        }
+      }
+    } finally {
+      this.unlockAllForReading();
+    }
+    List<Note> notesToDisplay = new ArrayList<Note>();
+    for (int i = high; i >= low; i -= 1) {
+      notesToDisplay.add(Note.valueOf(i));
+    }
+    return notesToDisplay;
+  }
+
+  @Override
+  public IMusicModel<HashMap<Integer, ArrayList<Sound>>, Note> snapshot() {
+    return this.merged();
+  }
+
+  @Override
+  public int getTempo() {
+    return this.tempo;
+  }
+
+  @Override
+  public void setTempo(int tempo) {
+    if (tempo < 0) {
+      throw new IllegalArgumentException("Tempo cannot be negative.");
+    }
+    this.lockAllForWriting();
+    try {
+      this.catchUpHistory();
+      this.history.record(EditJournal.TEMPO, this.tempo, tempo, 0, 0, 0);
+      this.tempo = tempo;
+      this.merged = null;
+    } finally {
+      this.unlockAllForWriting();
+    }
+    this.listeners.tempoChanged(tempo);
+  }
+
+  @Override
+  public int getResolution() {
+    return this.resolution;
+  }
+
+  @Override
+  public void setResolution(int ticksPerBeat) {
+    if (ticksPerBeat < 1) {
+      throw new IllegalArgumentException("There must be at least one tick per beat.");
+    }
+    this.lockAllForWriting();
+    try {
+      for (PitchCounts counts : this.pitches) {
+        if (!counts.isEmpty()) {
+          throw new IllegalArgumentException("Resolution cannot be changed once there are notes.");
+        }
+      }
+      this.resolution = ticksPerBeat;
+      this.merged = null;
+      for (PendingEdits edits : this.pending) {
+        edits.clear();
+      }
+      this.history.clear();
+    } finally {
+      this.unlockAllForWriting();
+    }
+  }
+
+  /**
+   * Takes the write lock of every stripe, in stripe order.
+   */
+  private void lockAllForWriting() {
+    for (ReentrantReadWriteLock lock : this.locks) {
+      lock.writeLock().lock();
+    }
+  }
+
+  /**
+   * Releases the write lock of every stripe.
+   */
+  private void unlockAllForWriting() {
+    for (int i = this.locks.length - 1; i >= 0; i -= 1) {
+      this.locks[i].writeLock().unlock();
+    }
+  }
+}
@@ -0,0 +1,325 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * An undo/redo history which records each change to a model as a small delta (the note that was
+ * added or removed, or the tempo before and after) rather than as a copy of the model. Deltas are
+ * kept in one flat int array, and grouped so that one undo reverses one whole edit: an editNote is
+ * a single group of a remove and an add, and a run of single notes added (or removed) in quick
+ * succession is coalesced into one group. Undoing or redoing a group costs time proportional to
+ * the size of the group, not of the piece.
+ *
+ * <p>The history holds at most a fixed number of deltas. When it grows past that, the oldest
+ * groups are forgotten.</p>
+ */
+final class EditJournal {
+  static final int ADD = 0;
+  static final int REMOVE = 1;
+  static final int TEMPO = 2;
+
+  // Each delta is its kind followed by five values: the note's start, end, instrument, pitch and
+  // volume, or for a tempo change the old and new tempo.
+  private static final int FIELDS = 6;
+
+  /**
+   * Something a history can apply deltas to.
+   */
+  interface Target {
+    /**
+     * Adds a note, without recording it.
+     */
+    void add(int start, int end, int instrument, int pitch, int volume);
+
+    /**
+     * Removes a note, without recording it.
+     */
+    void remove(int start, int end, int instrument, int pitch, int volume);
+
+    /**
+     * Sets the tempo, without recording it.
+     */
+    void setTempo(int tempo);
+  }
+
+  private final int maxDeltas;
+  private final long coalesceNanos;
+  private int[] deltas;
+  private int deltaCount;
+  // The index of the first delta of each group.
+  private int[] groups;
+  private int groupCount;
+  // Groups [0, applied) can be undone, and groups [applied, groupCount) can be redone.
+  private int applied;
+  // The kind of single-delta edit the last group can still absorb, or -1 if it is closed.
+  private int openKind;
+  private long lastEdit;
+  private int compoundDepth;
+  private boolean compoundStarted;
+  // The edit being made has grown too big to keep, and will be forgotten when it ends.
+  private boolean compoundDropped;
+  private boolean replaying;
+
+  /**
+   * Constructs an empty history.
+   *
+   * @param maxDeltas      the most deltas to keep before forgetting the oldest edits
+   * @param coalesceMillis how close together, in milliseconds, single-note edits of the same kind
+   *                       must be to be undone together
+   * @throws IllegalArgumentException if either limit is negative, or maxDeltas is 0
+   */
+  EditJournal(int maxDeltas, long coalesceMillis) {
+    if (maxDeltas < 1) {
+      throw new IllegalArgumentException("History must be able to hold at least one edit.");
+    }
+    if (coalesceMillis < 0) {
+      throw new IllegalArgumentException("Coalescing window cannot be negative.");
+    }
+    this.maxDeltas = maxDeltas;
+    this.coalesceNanos = coalesceMillis * 1000000L;
+    this.clear();
+  }
+
+  /**
+   * Forgets every edit.
+   */
+  void clear() {
+    this.deltas = new int[FIELDS * 16];
+    this.deltaCount = 0;
+    this.groups = new int[16];
+    this.groupCount = 0;
+    this.applied = 0;
+    this.openKind = -1;
+  }
+
+  /**
+   * Starts an edit made of several deltas, all of which will be undone together. Calls may nest;
+   * the edit ends at the matching outermost endCompound.
+   */
+  void beginCompound() {
+    if (this.compoundDepth == 0) {
+      this.compoundStarted = false;
+      this.compoundDropped = false;
+    }
+    this.compoundDepth += 1;
+  }
+
+  /**
+   * Ends an edit started by beginCompound. An edit too big to keep is forgotten, along with every
+   * edit before it, since those could no longer be undone without undoing it first.
+   */
+  void endCompound() {
+    this.compoundDepth -= 1;
+    if (this.compoundDepth == 0) {
+      if (this.compoundDropped) {
+        this.clear();
+        return;
+      }
+      this.openKind = -1;
+      this.trim();
+    }
+  }
+
+  /**
+   * Records a change which has just been made. Ignored while a change is being undone or redone.
+   *
+   * @param kind ADD, REMOVE or TEMPO
+   */
+  void record(int kind, int a, int b, int c, int d, int e) {
+    this.record(kind, a, b, c, d, e, System.nanoTime());
+  }
+
+  /**
+   * Records a change which was made at the given time, which decides whether it is undone along
+   * with the single-note edits just before it. Ignored while a change is being undone or redone.
+   *
+   * @param kind ADD, REMOVE or TEMPO
+   * @param now  when the change was made, as given by System.nanoTime
+   */
+  void record(int kind, int a, int b, int c, int d, int e, long now) {
+    if (this.replaying) {
+      return;
+    }
+    if (this.applied < this.groupCount) {
+      // A new edit throws away everything that could have been redone.
+      this.deltaCount = this.groups[this.applied];
+      this.groupCount = this.applied;
+      this.openKind = -1;
+    }
+
+    if (this.compoundDepth > 0) {
+      if (!this.compoundStarted) {
+        this.newGroup();
+        this.compoundStarted = true;
+      } else if (this.compoundDropped || this.deltaCount - this.groups[this.groupCount - 1]
+              >= this.maxDeltas * FIELDS) {
+        // This edit is already too big to keep, and will be forgotten as soon as it ends.
+        this.compoundDropped = true;
+        return;
+      }
+    } else {
+      if (this.openKind != kind || now - this.lastEdit > this.coalesceNanos) {
+        this.newGroup();
+        this.openKind = kind;
+      }
+      this.lastEdit = now;
+    }
+
+    if (this.deltaCount + FIELDS > this.deltas.length) {
+      this.deltas = Arrays.copyOf(this.deltas, this.deltas.length * 2);
+    }
+    int i = this.deltaCount;
+    this.deltas[i] = kind;
+    this.deltas[i + 1] = a;
+    this.deltas[i + 2] = b;
+    this.deltas[i + 3] = c;
+    this.deltas[i + 4] = d;
+    this.deltas[i + 5] = e;
+    this.deltaCount += FIELDS;
+
+    if (this.compoundDepth == 0) {
+      this.trim();
+    }
+  }
+
+  /**
+   * Starts a new, empty group at the end of the history.
+   */
+  private void newGroup() {
+    if (this.groupCount == this.groups.length) {
+      this.groups = Arrays.copyOf(this.groups, this.groups.length * 2);
+    }
+    this.groups[this.groupCount] = this.deltaCount;
+    this.groupCount += 1;
+    this.applied = this.groupCount;
+  }
+
+  /**
+   * If the history holds more deltas than it may, forgets the oldest groups until it is back to
+   * three quarters of its limit, so that trimming doesn't happen on every edit. The newest group
+   * is always kept, even if it alone is over three quarters of the limit.
+   */
+  private void trim() {
+    if (this.deltaCount <= this.maxDeltas * FIELDS) {
+      return;
+    }
+    int keep = (this.maxDeltas / 4 * 3) * FIELDS;
+    int drop = 0;
+    while (drop < this.groupCount - 1 && this.deltaCount - this.groups[drop] > keep) {
+      drop += 1;
+    }
+    int from = drop < this.groupCount ? this.groups[drop] : this.deltaCount;
+    System.arraycopy(this.deltas, from, this.deltas, 0, this.deltaCount - from);
+    this.deltaCount -= from;
+    for (int g = drop; g < this.groupCount; g += 1) {
+      this.groups[g - drop] = this.groups[g] - from;
+    }
+    this.groupCount -= drop;
+    this.applied = Math.max(0, this.applied - drop);
+    if (this.groupCount == 0) {
+      this.openKind = -1;
+    }
+  }
+
+  /**
+   * Can an edit be undone.
+   *
+   * @return true if there is an edit to undo
+   */
+  boolean canUndo() {
+    return this.applied > 0;
+  }
+
+  /**
+   * Can an edit be redone.
+   *
+   * @return true if there is an undone edit to redo
+   */
+  boolean canRedo() {
+    return this.applied < this.groupCount;
+  }
+
+  /**
+   * Reverses the most recent edit which hasn't been undone, by applying the opposite of each of
+   * its deltas, last first.
+   *
+   * @param target where to apply the deltas
+   * @return true if an edit was undone, false if there was nothing to undo
+   */
+  boolean undo(Target target) {
+    if (!this.canUndo()) {
+      return false;
+    }
+    int g = this.applied - 1;
+    int first = this.groups[g];
+    int last = this.groupEnd(g) - FIELDS;
+    this.replaying = true;
+    try {
+      for (int i = last; i >= first; i -= FIELDS) {
+        this.apply(target, i, true);
+      }
+    } finally {
+      this.replaying = false;
+    }
+    this.applied = g;
+    this.openKind = -1;
+    return true;
+  }
+
+  /**
+   * Applies again the most recently undone edit.
+   *
+   * @param target where to apply the deltas
+   * @return true if an edit was redone, false if there was nothing to redo
+   */
+  boolean redo(Target target) {
+    if (!this.canRedo()) {
+      return false;
+    }
+    int g = this.applied;
+    int end = this.groupEnd(g);
+    this.replaying = true;
+    try {
+      for (int i = this.groups[g]; i < end; i += FIELDS) {
+        this.apply(target, i, false);
+      }
+    } finally {
+      this.replaying = false;
+    }
+    this.applied = g + 1;
+    this.openKind = -1;
+    return true;
+  }
+
+  /**
+   * Returns the index just past the last delta of a group.
+   */
+  private int groupEnd(int g) {
+    return g + 1 < this.groupCount ? this.groups[g + 1] : this.deltaCount;
+  }
+
+  /**
+   * Applies one delta, or its opposite.
+   *
+   * @param i       the index of the delta
+   * @param reverse whether to apply the opposite of the delta
+   */
+  private void apply(Target target, int i, boolean reverse) {
+    int[] v = this.deltas;
+    switch (v[i]) {
+      case ADD:
+      case REMOVE:
+        if ((v[i] == ADD) != reverse) {
+          target.add(v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5]);
+        } else {
+          target.remove(v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5]);
+        }
+        break;
+      case TEMPO:
+        target.setTempo(reverse ? v[i + 1] : v[i + 2]);
+        break;
+      default:
+        throw new IllegalStateException("Unknown delta.");
+    }
+  }
+}
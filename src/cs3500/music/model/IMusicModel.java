@@ -15,8 +15,8 @@ public interface IMusicModel<S, N> {
   /**
    * Adds a new note to the piece.
    *
-   * @param start      The start time of the note, in beats
-   * @param end        The end time of the note, in beats
+   * @param start      The start time of the note, in ticks
+   * @param end        The end time of the note, in ticks
    * @param instrument The instrument number (to be interpreted by MIDI)
    * @param pitch      The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
    *                   piano)
@@ -26,11 +26,29 @@ public interface IMusicModel<S, N> {
   // Changed: readjusted method arguments to allow for instruments and volume. Also changed types
   // of start, end, and pitch to hide information as well as work with MIDI better.
 
+  /**
+   * Adds many notes to the piece at once. The i-th note is made of the i-th element of each
+   * array, and the notes are treated exactly as if they had been added one at a time, in order,
+   * with addNote. Every note is checked before any is added, so if one is invalid the piece is
+   * left unchanged. The arrays are not kept by the model.
+   *
+   * @param starts      The start times of the notes, in ticks
+   * @param ends        The end times of the notes, in ticks
+   * @param instruments The instrument numbers (to be interpreted by MIDI)
+   * @param pitches     The pitches (in the range [0, 127], where 60 represents C4, the middle-C on
+   *                    a piano)
+   * @param volumes     The volumes (in the range [0, 127])
+   * @throws IllegalArgumentException if the arrays are not all the same length, or any note is
+   *                                  invalid
+   */
+  void addNotes(int[] starts, int[] ends, int[] instruments, int[] pitches, int[] volumes);
+  // Added: so whole pieces can be loaded without indexing each note on its own.
+
   /**
    * Removes a note from the piece.
    *
-   * @param start      The start time of the note, in beats
-   * @param end        The end time of the note, in beats
+   * @param start      The start time of the note, in ticks
+   * @param end        The end time of the note, in ticks
    * @param instrument The instrument number (to be interpreted by MIDI)
    * @param pitch      The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
    *                   piano)
@@ -45,14 +63,14 @@ public interface IMusicModel<S, N> {
    * removing it, and adding a new note with the specified parameters of the edited note.
    * If a note is edited and tried to place over another note, it overwrites the previous note.
    *
-   * @param startSource      The start time of the source note, in beats
-   * @param endSource        The end time of the source note, in beats
+   * @param startSource      The start time of the source note, in ticks
+   * @param endSource        The end time of the source note, in ticks
    * @param instrumentSource The Source instrument number (to be interpreted by MIDI)
    * @param pitchSource      The source pitch (in the range [0, 127], where 60 represents C4, the
    *                         middle-C on a piano)
    * @param volumeSource     The source volume (in the range [0, 127])
-   * @param startDest        The start time of the destination note, in beats
-   * @param endDest          The end time of the destination note, in beats
+   * @param startDest        The start time of the destination note, in ticks
+   * @param endDest          The end time of the destination note, in ticks
    * @param instrumentDest   The destination instrument number (to be interpreted by MIDI)
    * @param pitchDest        The destination pitch (in the range [0, 127], where 60 represents C4,
    *                         the middle-C on a piano)
@@ -64,34 +82,77 @@ public interface IMusicModel<S, N> {
   // Changed: all parameters were adjusted to ints for information hiding, and instrument and
   // volume were added.
 
+  /**
+   * Transforms every note which starts within a range of ticks and is accepted by a filter, all
+   * in one go: the notes can be transposed, moved in time, made louder or softer, and moved to
+   * another instrument. Each note is changed as if by editNote, but the notes are found and moved
+   * in a single pass, so transforming k notes costs O(k log n) rather than a full edit each. Every
+   * transformed note is checked before any is changed, so if one would be invalid the piece is
+   * left unchanged. The whole transform is undone in one step.
+   *
+   * @param start     the first tick a note may start on to be transformed (inclusive)
+   * @param end       the last tick a note may start on to be transformed (inclusive)
+   * @param filter    which of the notes starting in the range to transform
+   * @param transform how to change each note
+   * @return the number of notes transformed
+   * @throws IllegalArgumentException if end is before start, or a transformed note would start
+   *                                  before tick 0 or have a pitch outside [0, 127]
+   */
+  int transformNotes(int start, int end, NoteFilter filter, NoteTransform transform);
+  // Added: so whole sections can be transposed or moved without one editNote per note.
+
+  /**
+   * Reverses the most recent edit which hasn't already been undone. An edit is one call to
+   * addNote, removeNote, editNote, addNotes, transformNotes or setTempo, except that a quick run
+   * of single notes added (or removed) may be undone together. Undoing only touches the notes the
+   * edit changed, so it is quick however big the piece is.
+   *
+   * @return true if an edit was undone, false if there was nothing to undo
+   */
+  boolean undo();
+
+  /**
+   * Applies again the edit most recently undone. Making any new edit after an undo means what was
+   * undone can no longer be redone.
+   *
+   * @return true if an edit was redone, false if there was nothing to redo
+   */
+  boolean redo();
+  // Added: undo and redo, so editors no longer need to keep whole copies of a piece.
+
   /**
    * It combines "this" music with the music entered as a parameter, according to the CombineType.
    * If the CombineType is SIMULTANEOUS then the music entered as a parameter is superimposed over
    * the current music overwriting the previous musics notes in common to each other.
    * If the CombineType is CONSECUTIVE, it adds the music entered as a parameter at the end of this
-   * music.
+   * music. Each note of this music is added to the other music exactly once, all in one batch,
+   * so the whole combine can be undone in one step.
    *
    * @param combineType The CombineType of the combine we want to do : SIMULTANEOUS OR CONSECUTIVE
    * @param that        The music to be combined to the current music
+   * @return the music entered as a parameter, now holding both pieces
+   * @throws IllegalArgumentException if the two pieces have different resolutions
    */
-  IMusicModel combineMusic(CombineType combineType, IMusicModel that);
+  IMusicModel<?, ?> combineMusic(CombineType combineType, IMusicModel<?, ?> that);
 
   /**
    * It displays the current music track in a visual representation as a String, within the range
    * of the lowest note in the music track and the highest note in the music track with the beat
-   * starting from 0.
+   * starting from 0. There is one line per beat, whatever the resolution of the piece.
    */
   String display();
 
   /**
-   * Returns the last beat number of the current music.
+   * Returns the last beat number of the current music. This is in beats, whatever the resolution
+   * of the piece.
    *
    * @return the length of the current sound track
    */
   int getEndBeat();
 
   /**
-   * Return the data structure which stores all sounds for each beat in it.
+   * Return the data structure which stores all sounds for each beat in it. The beats are beats,
+   * whatever the resolution of the piece: a sound is stored under every beat it plays during.
    *
    * @param start start beat
    * @param end   end beat
@@ -100,6 +161,88 @@ public interface IMusicModel<S, N> {
   S getBeats(int start, int end);
   // Added: we needed a way to access the data of the model, so we added this method for this
 
+  /**
+   * Returns a read-only cursor over every sound in the piece, ordered by start time and then by
+   * the order they were added. Unlike getBeats, nothing is copied: the cursor reads the notes
+   * straight out of the model, and is only valid until the model is next modified.
+   *
+   * @return a cursor over all the sounds in the piece
+   */
+  SoundCursor getSounds();
+
+  /**
+   * Returns a read-only cursor over the sounds playing at any tick within [start, end], ordered by
+   * start time and then by the order they were added. A sound that starts before start but is
+   * still playing at start is included. Only valid until the model is next modified.
+   *
+   * @param start first tick of the window (inclusive)
+   * @param end   last tick of the window (inclusive)
+   * @return a cursor over the sounds playing within the window
+   * @throws IllegalArgumentException if end is before start
+   */
+  SoundCursor getSounds(int start, int end);
+
+  /**
+   * Returns a read-only cursor over the sounds playing at the given tick, ordered by start time
+   * and then by the order they were added. Only valid until the model is next modified.
+   *
+   * @param beat the tick to look at
+   * @return a cursor over the sounds playing at that tick
+   */
+  SoundCursor getSoundsAt(int beat);
+  // Added: so views can walk just the notes they need without copying them out of the model.
+
+  /**
+   * Returns a read-only cursor over the sounds a query finds, ordered by start time and then by
+   * the order they were added. A query naming an instrument or a pitch range is answered from
+   * indexes over instruments and pitches, so only the notes on that instrument (or those pitches)
+   * within the query's ticks are looked at, not every note in the piece.
+   *
+   * @param query which sounds to find
+   * @return a cursor over the sounds the query finds
+   */
+  SoundCursor query(NoteQuery query);
+  // Added: so parts of a piece can be looked up without scanning every beat.
+
+  /**
+   * Sums up the sounds starting within a range of ticks: how many there are, the loudest of them
+   * and the sum of their volumes. The sums are kept by start time in a tree updated on every edit,
+   * so any range is summed up in time proportional to the log of the number of ticks, however
+   * many notes it holds. Each sound is counted only in the range holding its start time, so
+   * ranges side by side, such as the columns of a density or loudness lane, never count a sound
+   * twice.
+   *
+   * @param start first tick of the range (inclusive)
+   * @param end   last tick of the range (inclusive)
+   * @return a summary of the sounds starting within the range
+   * @throws IllegalArgumentException if end is before start
+   */
+  RangeSummary summarize(int start, int end);
+  // Added: so lanes can be drawn while zooming without scanning every beat of the window.
+
+  /**
+   * Returns the tracks of the piece. Each instrument is a track of its own, holding the sounds
+   * played on it, so the tracks are the instruments with at least one sound.
+   *
+   * @return the instruments with sounds, lowest first
+   */
+  List<Integer> getTracks();
+
+  /**
+   * Returns a read-only cursor over the sounds of one track playing at some tick within [start,
+   * end], ordered by start time and then by the order they were added. Each track is indexed on
+   * its own, so only the notes of that track near the window are looked at, however many notes
+   * the other tracks hold. Only valid until the model is next modified.
+   *
+   * @param instrument the instrument of the track, in the range [0, 127]
+   * @param start      first tick of the window (inclusive)
+   * @param end        last tick of the window (inclusive)
+   * @return a cursor over the track's sounds playing within the window
+   * @throws IllegalArgumentException if the instrument is out of range, or end is before start
+   */
+  SoundCursor getTrack(int instrument, int start, int end);
+  // Added: so views and MIDI loading can work on one instrument at a time.
+
   /**
    * Returns the list of notes present in the music composition.
    *
@@ -108,6 +251,33 @@ public interface IMusicModel<S, N> {
   List<N> notesToDisplay();
   // Added: we needed a way to display the list of notes in the view
 
+  /**
+   * Returns a read-only copy of the piece as it is right now. The snapshot never changes, even as
+   * this model is edited, so it can be read from another thread (or over a long operation such
+   * as loading playback) without seeing a half-made edit. Every method of the snapshot which
+   * would change it throws an UnsupportedOperationException.
+   *
+   * @return an unchanging copy of this piece
+   */
+  IMusicModel<S, N> snapshot();
+  // Added: so views can read a consistent piece while it is being edited.
+
+  /**
+   * Registers a listener to be told about every change made to this piece from now on.
+   *
+   * @param listener the listener to add
+   * @throws NullPointerException if the listener is null
+   */
+  void addListener(ModelListener listener);
+
+  /**
+   * Stops telling the given listener about changes. Does nothing if it was never added.
+   *
+   * @param listener the listener to remove
+   */
+  void removeListener(ModelListener listener);
+  // Added: so views can apply each change as it happens instead of being rebuilt.
+
   /**
    * Getter method for this Model's tempo. If not set, it will return 0.
    *
@@ -124,4 +294,24 @@ public interface IMusicModel<S, N> {
    */
   void setTempo(int tempo);
   // Added to allow for tempo setting.
+
+  /**
+   * Returns how many ticks make up one beat of this piece. Notes are timed in ticks: the times
+   * given to and returned by every method except getEndBeat, getBeats and display are ticks, so
+   * at the default resolution of one tick per beat they are just beats.
+   *
+   * @return the number of ticks per beat, at least 1
+   */
+  int getResolution();
+
+  /**
+   * Sets how many ticks make up one beat of this piece. The notes already in a piece are timed in
+   * ticks of its current resolution, so it can only be changed while the piece has no notes. The
+   * undo history is forgotten, since edits timed in the old ticks could not be undone in the new.
+   *
+   * @param ticksPerBeat the number of ticks per beat
+   * @throws IllegalArgumentException if ticksPerBeat is less than 1, or the piece has notes
+   */
+  void setResolution(int ticksPerBeat);
+  // Added: so performances timed more finely than in whole beats can be imported.
 }
@@ -0,0 +1,458 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * A balanced (AVL) interval tree over the rows of a NoteTable. Each note is stored exactly once,
+ * keyed by its start beat (ties broken by row, which is insertion order), and every node keeps the
+ * largest end beat found in its subtree. This lets us answer "what sounds at beat b" and "what
+ * sounds within [a, b]" in O(log n + k) time while only using memory proportional to the number of
+ * notes. The tree links are themselves kept in primitive arrays indexed by row, so the tree
+ * allocates nothing per note.
+ *
+ * <p>One set of links can also hold several separate trees, each with its own root, as long as
+ * every row is in at most one of them. This is how a model keeps a tree for each of its tracks
+ * without paying for a set of links per track. Methods which don't name a tree use tree 0.</p>
+ */
+final class IntervalTree {
+  static final int NIL = -1;
+
+  private final NoteTable table;
+  private int[] left;
+  private int[] right;
+  private int[] maxEnd;
+  private byte[] height;
+  private final int[] roots;
+  private final int[] sizes;
+  private int size;
+
+  /**
+   * Constructs a new, empty interval tree over the given table.
+   *
+   * @param table the table holding the notes this tree indexes
+   */
+  IntervalTree(NoteTable table) {
+    this(table, 1);
+  }
+
+  /**
+   * Constructs the given number of new, empty interval trees over the given table, sharing one
+   * set of links.
+   *
+   * @param table the table holding the notes these trees index
+   * @param trees the number of trees
+   */
+  IntervalTree(NoteTable table, int trees) {
+    this.table = table;
+    this.left = new int[0];
+    this.right = new int[0];
+    this.maxEnd = new int[0];
+    this.height = new byte[0];
+    this.roots = new int[trees];
+    Arrays.fill(this.roots, NIL);
+    this.sizes = new int[trees];
+    this.size = 0;
+  }
+
+  /**
+   * Constructs a copy of the given tree over a copy of its table. The copy has its own links, so
+   * either tree can be changed without affecting the other.
+   *
+   * @param other the tree to copy
+   * @param table the copy of the other tree's table
+   */
+  IntervalTree(IntervalTree other, NoteTable table) {
+    this.table = table;
+    this.left = other.left.clone();
+    this.right = other.right.clone();
+    this.maxEnd = other.maxEnd.clone();
+    this.height = other.height.clone();
+    this.roots = other.roots.clone();
+    this.sizes = other.sizes.clone();
+    this.size = other.size;
+  }
+
+  /**
+   * Returns the number of notes in every tree.
+   *
+   * @return the number of notes indexed
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of notes in one tree.
+   *
+   * @param tree the tree
+   * @return the number of notes it indexes
+   */
+  int size(int tree) {
+    return this.sizes[tree];
+  }
+
+  /**
+   * Returns the largest end beat of all the notes in the tree, or 0 if it is empty.
+   *
+   * @return the end beat of the last note to stop playing
+   */
+  int maxEnd() {
+    if (this.roots[0] == NIL) {
+      return 0;
+    }
+    return this.maxEnd[this.roots[0]];
+  }
+
+  /**
+   * Adds a row of the table to the tree. The note plays from its start beat (inclusive) until its
+   * end beat (exclusive).
+   *
+   * @param row the row to add
+   */
+  void insert(int row) {
+    this.insert(0, row);
+  }
+
+  /**
+   * Adds a row of the table to one of the trees.
+   *
+   * @param tree the tree
+   * @param row  the row to add
+   */
+  void insert(int tree, int row) {
+    if (row >= this.left.length) {
+      int capacity = Math.max(row + 1, this.table.capacity());
+      this.left = Arrays.copyOf(this.left, capacity);
+      this.right = Arrays.copyOf(this.right, capacity);
+      this.maxEnd = Arrays.copyOf(this.maxEnd, capacity);
+      this.height = Arrays.copyOf(this.height, capacity);
+    }
+    this.left[row] = NIL;
+    this.right[row] = NIL;
+    this.maxEnd[row] = this.table.end(row);
+    this.height[row] = 1;
+    this.roots[tree] = this.insertUnder(this.roots[tree], row);
+    this.sizes[tree] += 1;
+    this.size += 1;
+  }
+
+  /**
+   * Removes a row from the tree.
+   *
+   * @param row the row to remove, which must currently be in the tree
+   */
+  void remove(int row) {
+    this.remove(0, row);
+  }
+
+  /**
+   * Removes a row from one of the trees.
+   *
+   * @param tree the tree
+   * @param row  the row to remove, which must currently be in that tree
+   */
+  void remove(int tree, int row) {
+    this.roots[tree] = this.delete(this.roots[tree], this.table.start(row), row);
+    this.sizes[tree] -= 1;
+    this.size -= 1;
+  }
+
+  /**
+   * Replaces the contents of this tree with the given rows, building a perfectly balanced tree in
+   * linear time.
+   *
+   * @param rows every row to index, sorted by start beat and then by row
+   */
+  void build(int[] rows) {
+    this.build(new int[][]{rows});
+  }
+
+  /**
+   * Replaces the contents of every tree with the given rows, building perfectly balanced trees in
+   * linear time.
+   *
+   * @param rows the rows to index in each tree, each sorted by start beat and then by row, or
+   *             null for a tree left empty
+   */
+  void build(int[][] rows) {
+    int capacity = this.table.capacity();
+    this.left = new int[capacity];
+    this.right = new int[capacity];
+    this.maxEnd = new int[capacity];
+    this.height = new byte[capacity];
+    this.size = 0;
+    for (int tree = 0; tree < this.roots.length; tree += 1) {
+      int count = rows[tree] == null ? 0 : rows[tree].length;
+      this.roots[tree] = count == 0 ? NIL : this.build(rows[tree], 0, count - 1);
+      this.sizes[tree] = count;
+      this.size += count;
+    }
+  }
+
+  /**
+   * Builds a balanced subtree from the rows between the two indices.
+   *
+   * @return the root of the subtree
+   */
+  private int build(int[] rows, int lo, int hi) {
+    if (lo > hi) {
+      return NIL;
+    }
+    int mid = (lo + hi) >>> 1;
+    int n = rows[mid];
+    this.left[n] = this.build(rows, lo, mid - 1);
+    this.right[n] = this.build(rows, mid + 1, hi);
+    this.update(n);
+    return n;
+  }
+
+  /**
+   * Returns the rows of every note in the tree, sorted by start beat and then by row.
+   *
+   * @return all the rows in the tree, in order
+   */
+  int[] rowsInOrder() {
+    int[] ordered = new int[this.sizes[0]];
+    int count = 0;
+    Cursor c = new Cursor(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    for (int row = c.next(); row != NIL; row = c.next()) {
+      ordered[count] = row;
+      count += 1;
+    }
+    return ordered;
+  }
+
+  /**
+   * Returns the rows of every note playing at some beat within [start, end], in the order they
+   * were added.
+   *
+   * @param start the first beat of the range (inclusive)
+   * @param end   the last beat of the range (inclusive)
+   * @return the rows of the notes playing within that range
+   */
+  int[] rowsIn(int start, int end) {
+    int[] found = new int[8];
+    int count = 0;
+    Cursor c = new Cursor(start, end);
+    for (int row = c.next(); row != NIL; row = c.next()) {
+      if (count == found.length) {
+        found = Arrays.copyOf(found, count * 2);
+      }
+      found[count] = row;
+      count += 1;
+    }
+    found = Arrays.copyOf(found, count);
+    Arrays.sort(found);
+    return found;
+  }
+
+  /**
+   * An in-order walk over the rows whose notes play at some beat within a range. Rows come out
+   * sorted by start beat, then by insertion order. The walk keeps an explicit stack no deeper than
+   * the tree, so stepping through it allocates nothing.
+   */
+  final class Cursor {
+    private final int from;
+    private final int to;
+    private final int[] stack;
+    private int depth;
+    private int current;
+
+    /**
+     * Starts a walk over the notes playing at some beat within [from, to].
+     *
+     * @param from the first beat of the range (inclusive)
+     * @param to   the last beat of the range (inclusive)
+     */
+    Cursor(int from, int to) {
+      this(0, from, to);
+    }
+
+    /**
+     * Starts a walk over the notes of one tree playing at some beat within [from, to].
+     *
+     * @param tree the tree
+     * @param from the first beat of the range (inclusive)
+     * @param to   the last beat of the range (inclusive)
+     */
+    Cursor(int tree, int from, int to) {
+      int root = roots[tree];
+      this.from = from;
+      this.to = to;
+      this.stack = new int[root == NIL ? 1 : height[root] + 1];
+      this.depth = 0;
+      this.current = root;
+    }
+
+    /**
+     * Advances to the next matching row.
+     *
+     * @return the next row, or NIL if the walk is over
+     */
+    int next() {
+      while (true) {
+        while (this.current != NIL) {
+          if (maxEnd[this.current] <= this.from) {
+            // Nothing in this subtree is still playing at the start of the range.
+            this.current = NIL;
+          } else {
+            this.stack[this.depth] = this.current;
+            this.depth += 1;
+            this.current = left[this.current];
+          }
+        }
+        if (this.depth == 0) {
+          return NIL;
+        }
+        this.depth -= 1;
+        int n = this.stack[this.depth];
+        if (table.start(n) > this.to) {
+          // Every remaining node starts after the range.
+          this.depth = 0;
+          return NIL;
+        }
+        this.current = right[n];
+        if (table.end(n) > this.from) {
+          return n;
+        }
+      }
+    }
+  }
+
+  /**
+   * Compares the (start, row) key of the first row to that of a node.
+   */
+  private int compare(int start, int row, int n) {
+    int nodeStart = this.table.start(n);
+    if (start != nodeStart) {
+      return Integer.compare(start, nodeStart);
+    }
+    return Integer.compare(row, n);
+  }
+
+  /**
+   * Inserts a row into the subtree, rebalancing on the way back up.
+   *
+   * @return the new root of the subtree
+   */
+  private int insertUnder(int n, int row) {
+    if (n == NIL) {
+      return row;
+    }
+    if (this.compare(this.table.start(row), row, n) < 0) {
+      this.left[n] = this.insertUnder(this.left[n], row);
+    } else {
+      this.right[n] = this.insertUnder(this.right[n], row);
+    }
+    return this.balance(n);
+  }
+
+  /**
+   * Deletes the row with the given key from the subtree, rebalancing on the way back up.
+   *
+   * @return the new root of the subtree
+   */
+  private int delete(int n, int start, int row) {
+    if (n == NIL) {
+      return NIL;
+    }
+    int cmp = this.compare(start, row, n);
+    if (cmp < 0) {
+      this.left[n] = this.delete(this.left[n], start, row);
+    } else if (cmp > 0) {
+      this.right[n] = this.delete(this.right[n], start, row);
+    } else {
+      if (this.left[n] == NIL) {
+        return this.right[n];
+      }
+      if (this.right[n] == NIL) {
+        return this.left[n];
+      }
+      int successor = this.right[n];
+      while (this.left[successor] != NIL) {
+        successor = this.left[successor];
+      }
+      this.right[successor] = this.deleteMin(this.right[n]);
+      this.left[successor] = this.left[n];
+      return this.balance(successor);
+    }
+    return this.balance(n);
+  }
+
+  /**
+   * Removes the leftmost node of the subtree.
+   *
+   * @return the new root of the subtree
+   */
+  private int deleteMin(int n) {
+    if (this.left[n] == NIL) {
+      return this.right[n];
+    }
+    this.left[n] = this.deleteMin(this.left[n]);
+    return this.balance(n);
+  }
+
+  /**
+   * Recomputes the height and max end of a node from its children.
+   */
+  private void update(int n) {
+    int l = this.left[n];
+    int r = this.right[n];
+    this.height[n] = (byte) (1 + Math.max(this.height(l), this.height(r)));
+    int max = this.table.end(n);
+    if (l != NIL && this.maxEnd[l] > max) {
+      max = this.maxEnd[l];
+    }
+    if (r != NIL && this.maxEnd[r] > max) {
+      max = this.maxEnd[r];
+    }
+    this.maxEnd[n] = max;
+  }
+
+  private int height(int n) {
+    return n == NIL ? 0 : this.height[n];
+  }
+
+  /**
+   * Restores the AVL invariant at the given node.
+   *
+   * @return the new root of the subtree
+   */
+  private int balance(int n) {
+    this.update(n);
+    int l = this.left[n];
+    int r = this.right[n];
+    int diff = this.height(l) - this.height(r);
+    if (diff > 1) {
+      if (this.height(this.left[l]) < this.height(this.right[l])) {
+        this.left[n] = this.rotateLeft(l);
+      }
+      return this.rotateRight(n);
+    }
+    if (diff < -1) {
+      if (this.height(this.right[r]) < this.height(this.left[r])) {
+        this.right[n] = this.rotateRight(r);
+      }
+      return this.rotateLeft(n);
+    }
+    return n;
+  }
+
+  private int rotateLeft(int n) {
+    int r = this.right[n];
+    this.right[n] = this.left[r];
+    this.left[r] = n;
+    this.update(n);
+    this.update(r);
+    return r;
+  }
+
+  private int rotateRight(int n) {
+    int l = this.left[n];
+    this.left[n] = this.right[l];
+    this.right[l] = n;
+    this.update(n);
+    this.update(l);
+    return l;
+  }
+}
@@ -0,0 +1,66 @@
+package cs3500.music.model;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The listeners registered with a model, and the means of telling them all about a change.
+ * Listeners may be added and removed from any thread, even while an event is being sent.
+ */
+final class ListenerList {
+  private final List<ModelListener> listeners;
+
+  /**
+   * Constructs an empty list of listeners.
+   */
+  ListenerList() {
+    this.listeners = new CopyOnWriteArrayList<>();
+  }
+
+  void add(ModelListener listener) {
+    Objects.requireNonNull(listener);
+    this.listeners.add(listener);
+  }
+
+  void remove(ModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  boolean isEmpty() {
+    return this.listeners.isEmpty();
+  }
+
+  void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+    for (ModelListener l : this.listeners) {
+      l.noteAdded(start, end, instrument, pitch, volume);
+    }
+  }
+
+  void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+    for (ModelListener l : this.listeners) {
+      l.noteRemoved(start, end, instrument, pitch, volume);
+    }
+  }
+
+  void noteEdited(int startSource, int endSource, int instrumentSource, int pitchSource,
+                  int volumeSource, int startDest, int endDest, int instrumentDest,
+                  int pitchDest, int volumeDest) {
+    for (ModelListener l : this.listeners) {
+      l.noteEdited(startSource, endSource, instrumentSource, pitchSource, volumeSource,
+              startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    }
+  }
+
+  void tempoChanged(int tempo) {
+    for (ModelListener l : this.listeners) {
+      l.tempoChanged(tempo);
+    }
+  }
+
+  void pitchRangeChanged(int lowest, int highest) {
+    for (ModelListener l : this.listeners) {
+      l.pitchRangeChanged(lowest, highest);
+    }
+  }
+}
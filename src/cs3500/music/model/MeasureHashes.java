@@ -0,0 +1,231 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * Hashes of the notes of a piece, measure by measure, rolled up into a Merkle tree: a segment tree
+ * over the measures in which each leaf holds the hash of the notes starting in its measure, and
+ * each node the hash of its two children. Adding or removing a note changes the hash of its
+ * measure and of the nodes above it, in time proportional to the log of the number of measures,
+ * and the hash of any range of measures is put together from the few nodes covering it.
+ *
+ * <p>The hash of a measure is the sum of the hashes of its notes, so it does not depend on the
+ * order the notes were added in. The hash of a node with an empty right half is the hash of its
+ * left half, so putting a new root above the old one leaves the root hash as it was, and two
+ * pieces with the same notes have the same hashes however their trees grew. An empty range hashes
+ * to 0. Like the polyphony tree, nodes are only made where there are notes.</p>
+ */
+final class MeasureHashes {
+  // Node 0 stands for every node not yet made, which has no notes.
+  private static final int NONE = 0;
+
+  private final int ticksPerMeasure;
+  private int[] left;
+  private int[] right;
+  private long[] hash;
+  private int size;
+  private int root;
+  // The root covers the measures [0, measures), a power of two.
+  private long measures;
+
+  /**
+   * Constructs a tree with no notes.
+   *
+   * @param ticksPerMeasure the length of a measure, in ticks
+   */
+  MeasureHashes(int ticksPerMeasure) {
+    this.ticksPerMeasure = ticksPerMeasure;
+    this.left = new int[64];
+    this.right = new int[64];
+    this.hash = new long[64];
+    this.size = 1;
+    this.root = NONE;
+    this.measures = 64;
+  }
+
+  /**
+   * Constructs a copy of the given tree.
+   *
+   * @param other the tree to copy
+   */
+  MeasureHashes(MeasureHashes other) {
+    this.ticksPerMeasure = other.ticksPerMeasure;
+    this.left = Arrays.copyOf(other.left, other.size);
+    this.right = Arrays.copyOf(other.right, other.size);
+    this.hash = Arrays.copyOf(other.hash, other.size);
+    this.size = other.size;
+    this.root = other.root;
+    this.measures = other.measures;
+  }
+
+  /**
+   * Works out the hashes of every live row of a table.
+   *
+   * @param table           the notes to hash
+   * @param ticksPerMeasure the length of a measure, in ticks
+   * @return the hashes of the notes
+   */
+  static MeasureHashes of(NoteTable table, int ticksPerMeasure) {
+    MeasureHashes all = new MeasureHashes(ticksPerMeasure);
+    for (int row = 0; row < table.rows(); row += 1) {
+      if (!table.isDead(row)) {
+        all.add(table.start(row), table.end(row), table.instrument(row), table.pitch(row),
+                table.volume(row));
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Hashes a note added to the piece.
+   */
+  void add(int start, int end, int instrument, int pitch, int volume) {
+    int measure = start / this.ticksPerMeasure;
+    while (measure >= this.measures) {
+      // The old root becomes the left half of a new one, with the same hash.
+      int above = this.newNode();
+      this.left[above] = this.root;
+      this.hash[above] = this.hash[this.root];
+      this.root = above;
+      this.measures *= 2;
+    }
+    this.root = this.update(this.root, 0, this.measures, measure,
+            noteHash(start, end, instrument, pitch, volume));
+  }
+
+  /**
+   * Takes the hash of a note removed from the piece, which must have been added, out of its
+   * measure.
+   */
+  void remove(int start, int end, int instrument, int pitch, int volume) {
+    this.update(this.root, 0, this.measures, start / this.ticksPerMeasure,
+            -noteHash(start, end, instrument, pitch, volume));
+  }
+
+  /**
+   * Adds an amount to the hash of a measure within a node's range, and hashes the nodes above it
+   * again.
+   *
+   * @param node    the node, which is made if it is NONE
+   * @param low     the first measure of the node's range (inclusive)
+   * @param high    the last measure of the node's range (exclusive)
+   * @param measure the measure
+   * @param amount  the amount to add
+   * @return the node
+   */
+  private int update(int node, long low, long high, int measure, long amount) {
+    if (node == NONE) {
+      node = this.newNode();
+    }
+    if (high - low == 1) {
+      this.hash[node] += amount;
+      return node;
+    }
+    long middle = (low + high) >>> 1;
+    if (measure < middle) {
+      int child = this.update(this.left[node], low, middle, measure, amount);
+      this.left[node] = child;
+    } else {
+      int child = this.update(this.right[node], middle, high, measure, amount);
+      this.right[node] = child;
+    }
+    this.hash[node] = combine(this.hash[this.left[node]], this.hash[this.right[node]]);
+    return node;
+  }
+
+  /**
+   * Makes a new node with no children and no notes.
+   *
+   * @return the new node
+   */
+  private int newNode() {
+    if (this.size == this.hash.length) {
+      int capacity = this.size * 2;
+      this.left = Arrays.copyOf(this.left, capacity);
+      this.right = Arrays.copyOf(this.right, capacity);
+      this.hash = Arrays.copyOf(this.hash, capacity);
+    }
+    this.size += 1;
+    return this.size - 1;
+  }
+
+  /**
+   * Returns the hash of the whole piece.
+   *
+   * @return the root hash
+   */
+  long root() {
+    return this.hash[this.root];
+  }
+
+  /**
+   * Returns the hash of the notes starting within [from, to], a range of measures. It depends on
+   * where the notes are as well as what they are, so the same notes in another range hash
+   * differently.
+   *
+   * @param from the first measure (inclusive)
+   * @param to   the last measure (inclusive)
+   * @return the hash of the range
+   */
+  long range(int from, int to) {
+    return this.range(this.root, 0, this.measures, Math.max(from, 0), (long) to + 1);
+  }
+
+  /**
+   * Returns the hash of the measures within [from, to) and a node's range, as the node's hash
+   * would be if every other measure had no notes.
+   *
+   * @param node the node
+   * @param low  the first measure of the node's range (inclusive)
+   * @param high the last measure of the node's range (exclusive)
+   */
+  private long range(int node, long low, long high, long from, long to) {
+    if (node == NONE || to <= low || high <= from) {
+      return 0;
+    }
+    if (from <= low && high <= to) {
+      return this.hash[node];
+    }
+    long middle = (low + high) >>> 1;
+    return combine(this.range(this.left[node], low, middle, from, to),
+            this.range(this.right[node], middle, high, from, to));
+  }
+
+  /**
+   * Hashes the hashes of two halves of a range together. A range with an empty right half hashes
+   * the same as its left half.
+   *
+   * @param left  the hash of the left half
+   * @param right the hash of the right half
+   * @return the hash of the whole range
+   */
+  private static long combine(long left, long right) {
+    if (right == 0) {
+      return left;
+    }
+    return mix(mix(left) + right);
+  }
+
+  /**
+   * Hashes one note.
+   *
+   * @return the hash of the note
+   */
+  private static long noteHash(int start, int end, int instrument, int pitch, int volume) {
+    long h = mix((long) start << 32 | end);
+    return mix(h + (instrument << 14 | pitch << 7 | volume));
+  }
+
+  /**
+   * Scrambles the bits of a value, so that values differing in any bit give very different
+   * results. This is the finalizer of the SplitMix64 generator.
+   *
+   * @param value the value
+   * @return the scrambled value
+   */
+  private static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+}
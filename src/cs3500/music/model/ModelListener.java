@@ -0,0 +1,80 @@
+package cs3500.music.model;
+
+/**
+ * Listens for changes to a music model, so that views can update just what changed instead of
+ * rebuilding themselves from the whole piece. Each method is called once the change has been made,
+ * on the thread which made it. Every method does nothing by default, so a listener only needs to
+ * override the changes it cares about.
+ */
+public interface ModelListener {
+
+  /**
+   * Called after a note has been added to the piece.
+   *
+   * @param start      The start time of the note, in ticks
+   * @param end        The end time of the note, in ticks
+   * @param instrument The instrument number (to be interpreted by MIDI)
+   * @param pitch      The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
+   *                   piano)
+   * @param volume     The volume (in the range [0, 127])
+   */
+  default void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+    // Does nothing
+  }
+
+  /**
+   * Called after a note has been removed from the piece.
+   *
+   * @param start      The start time of the note, in ticks
+   * @param end        The end time of the note, in ticks
+   * @param instrument The instrument number (to be interpreted by MIDI)
+   * @param pitch      The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
+   *                   piano)
+   * @param volume     The volume (in the range [0, 127])
+   */
+  default void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+    // Does nothing
+  }
+
+  /**
+   * Called after a note has been edited, in place of a noteRemoved and a noteAdded. By default it
+   * is passed on as exactly those two calls.
+   *
+   * @param startSource      The start time of the old note, in ticks
+   * @param endSource        The end time of the old note, in ticks
+   * @param instrumentSource The instrument number of the old note
+   * @param pitchSource      The pitch of the old note
+   * @param volumeSource     The volume of the old note
+   * @param startDest        The start time of the new note, in ticks
+   * @param endDest          The end time of the new note, in ticks
+   * @param instrumentDest   The instrument number of the new note
+   * @param pitchDest        The pitch of the new note
+   * @param volumeDest       The volume of the new note
+   */
+  default void noteEdited(int startSource, int endSource, int instrumentSource, int pitchSource,
+                          int volumeSource, int startDest, int endDest, int instrumentDest,
+                          int pitchDest, int volumeDest) {
+    this.noteRemoved(startSource, endSource, instrumentSource, pitchSource, volumeSource);
+    this.noteAdded(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+  }
+
+  /**
+   * Called after the tempo of the piece has been set.
+   *
+   * @param tempo the new tempo, in microseconds per beat
+   */
+  default void tempoChanged(int tempo) {
+    // Does nothing
+  }
+
+  /**
+   * Called after the range of pitches used by the piece has grown or shrunk. This is called after
+   * the noteAdded, noteRemoved or noteEdited call for the change which caused it.
+   *
+   * @param lowest  the lowest pitch now in use
+   * @param highest the highest pitch now in use, or a value below lowest if there are no notes
+   */
+  default void pitchRangeChanged(int lowest, int highest) {
+    // Does nothing
+  }
+}
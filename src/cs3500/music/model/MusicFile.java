@@ -0,0 +1,331 @@
+package cs3500.music.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A piece stored in a compact binary file, opened by memory-mapping it. Opening a file reads only
+ * its header; notes are read straight out of the mapped buffer when a cursor reaches them, so even
+ * a very large piece opens at once, and a window of it can be read without reading the rest.
+ *
+ * <p>A file is laid out, in big-endian order, as:</p>
+ * <ul>
+ * <li>a header of eight ints: the magic number, the format version, the tempo, the number of
+ * notes, the end beat of the piece, the number of beats covered by each entry of the beat index,
+ * the number of entries in the beat index, and the resolution of the piece in ticks per beat
+ * (where 0, as written by older versions, means 1)</li>
+ * <li>the beat index: for every block of beats, the first note still playing at or after the
+ * block's first beat, so that every note before it has already ended</li>
+ * <li>the notes, one fixed-width record each, ordered by start beat and then by the order they
+ * were added to the model: the start beat and end beat as ints, then the instrument, pitch and
+ * volume as one byte each, and one unused byte</li>
+ * </ul>
+ *
+ * <p>Like the notes of a model, the beats of the notes, the end beat and the beat index are all
+ * counted in ticks of the piece's resolution.</p>
+ *
+ * <p>Notes which last no time at all are not part of a model's sounds, and so are not written.</p>
+ */
+public final class MusicFile {
+  // "MUSB" in ASCII.
+  private static final int MAGIC = 0x4D555342;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 32;
+  private static final int RECORD_BYTES = 12;
+  private static final int BEATS_PER_BLOCK = 64;
+
+  private final ByteBuffer buffer;
+  private final int tempo;
+  private final int resolution;
+  private final int size;
+  private final int endBeat;
+  private final int beatsPerBlock;
+  private final int blocks;
+  private final int notesAt;
+
+  /**
+   * Constructs a view over a mapped file, checking its header.
+   *
+   * @param buffer the whole file
+   * @throws IllegalArgumentException if the buffer does not hold a piece in this format
+   */
+  private MusicFile(ByteBuffer buffer) {
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not a binary music file.");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("Unsupported binary music file version: "
+              + buffer.getInt(4));
+    }
+    this.buffer = buffer;
+    this.tempo = buffer.getInt(8);
+    this.size = buffer.getInt(12);
+    this.endBeat = buffer.getInt(16);
+    this.beatsPerBlock = buffer.getInt(20);
+    this.blocks = buffer.getInt(24);
+    this.resolution = Math.max(1, buffer.getInt(28));
+    this.notesAt = HEADER_BYTES + this.blocks * 4;
+    if (this.size < 0 || this.blocks < 1 || this.beatsPerBlock < 1
+            || (long) this.notesAt + (long) this.size * RECORD_BYTES != buffer.capacity()) {
+      throw new IllegalArgumentException("Binary music file is truncated or corrupt.");
+    }
+  }
+
+  /**
+   * Opens a binary music file by mapping it into memory. Only the header is read.
+   *
+   * @param path the file to open
+   * @return the opened file
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the file is not a binary music file
+   */
+  public static MusicFile open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Binary music file is too large to map.");
+      }
+      // The mapping stays valid once the channel is closed.
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new MusicFile(mapped);
+    }
+  }
+
+  /**
+   * Writes every sound of a model, and its tempo and resolution, to a binary music file.
+   *
+   * @param model the piece to write
+   * @param path  the file to write, which is replaced if it exists
+   * @throws IOException              if the file cannot be written
+   * @throws IllegalArgumentException if the piece is too large for the format
+   */
+  public static void write(IMusicModel<?, ?> model, Path path) throws IOException {
+    IMusicModel<?, ?> snapshot = model.snapshot();
+    int size = 0;
+    int lastEnd = 0;
+    SoundCursor counter = snapshot.getSounds();
+    while (counter.next()) {
+      size += 1;
+      lastEnd = Math.max(lastEnd, counter.getEndBeat());
+    }
+    // Changed: worked out from the notes, in ticks, as the end beat of the model is in beats.
+    int endBeat = Math.max(0, lastEnd - 1) + 1;
+    int blocks = endBeat / BEATS_PER_BLOCK + 1;
+    long length = HEADER_BYTES + blocks * 4L + size * (long) RECORD_BYTES;
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Piece is too large for a binary music file.");
+    }
+
+    ByteBuffer out = ByteBuffer.allocate((int) length).order(ByteOrder.BIG_ENDIAN);
+    out.putInt(MAGIC).putInt(VERSION).putInt(snapshot.getTempo()).putInt(size).putInt(endBeat)
+            .putInt(BEATS_PER_BLOCK).putInt(blocks).putInt(snapshot.getResolution());
+    int indexAt = HEADER_BYTES;
+    out.position(indexAt + blocks * 4);
+    // Notes come out ordered by start, so the first note still playing at the start of each block
+    // can be found as they go by: it is the first note to end after the block starts.
+    int filled = 0;
+    int i = 0;
+    SoundCursor c = snapshot.getSounds();
+    while (c.next()) {
+      while (filled < blocks && (long) filled * BEATS_PER_BLOCK < c.getEndBeat()) {
+        out.putInt(indexAt + filled * 4, i);
+        filled += 1;
+      }
+      out.putInt(c.getStartBeat()).putInt(c.getEndBeat()).put((byte) c.getInstrument())
+              .put((byte) c.getPitch()).put((byte) c.getVolume()).put((byte) 0);
+      i += 1;
+    }
+    while (filled < blocks) {
+      out.putInt(indexAt + filled * 4, size);
+      filled += 1;
+    }
+
+    out.flip();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+    }
+  }
+
+  /**
+   * Returns the tempo of the piece.
+   *
+   * @return the tempo, in microseconds per beat
+   */
+  public int getTempo() {
+    return this.tempo;
+  }
+
+  /**
+   * Returns the resolution of the piece.
+   *
+   * @return the number of ticks per beat
+   */
+  public int getResolution() {
+    return this.resolution;
+  }
+
+  /**
+   * Returns how many notes the file holds.
+   *
+   * @return the number of notes
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the tick after the last one on which any note of the piece is playing, or 1 if there
+   * are no notes. At one tick per beat, this is the end beat the model it was written from gave.
+   *
+   * @return the end of the piece, in ticks
+   */
+  public int getEndBeat() {
+    return this.endBeat;
+  }
+
+  /**
+   * Returns a cursor over every note in the file, ordered by start beat and then by the order they
+   * were added to the model it was written from.
+   *
+   * @return a cursor over all the notes
+   */
+  public SoundCursor getSounds() {
+    return new RecordCursor(0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns a cursor over the notes playing at any beat within [start, end], in the same order as
+   * getSounds(). The beat index is used to skip straight to the first note which might be playing,
+   * so only notes near the window are read.
+   *
+   * @param start first beat of the window (inclusive)
+   * @param end   last beat of the window (inclusive)
+   * @return a cursor over the notes playing within the window
+   * @throws IllegalArgumentException if end is before start
+   */
+  public SoundCursor getSounds(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    int block = Math.min(Math.max(start, 0) / this.beatsPerBlock, this.blocks - 1);
+    return new RecordCursor(this.buffer.getInt(HEADER_BYTES + block * 4), start, end);
+  }
+
+  /**
+   * Loads the whole file into a new model, in one batch, with nothing to undo.
+   *
+   * @return a model holding every note in the file
+   */
+  public MusicModel toModel() {
+    int[][] columns = this.read(0, this.size);
+    MusicModel model = new MusicModel();
+    model.setTempo(this.tempo);
+    model.setResolution(this.resolution);
+    model.addNotes(columns[0], columns[1], columns[2], columns[3], columns[4]);
+    model.clearHistory();
+    return model;
+  }
+
+  /**
+   * Reads a run of notes out of the file into columns.
+   *
+   * @param first the first note to read
+   * @param last  the note after the last one to read
+   * @return the starts, ends, instruments, pitches and volumes of the notes, in file order
+   */
+  int[][] read(int first, int last) {
+    int[][] columns = new int[5][last - first];
+    for (int i = first; i < last; i += 1) {
+      int at = this.notesAt + i * RECORD_BYTES;
+      columns[0][i - first] = this.buffer.getInt(at);
+      columns[1][i - first] = this.buffer.getInt(at + 4);
+      columns[2][i - first] = this.buffer.get(at + 8);
+      columns[3][i - first] = this.buffer.get(at + 9);
+      columns[4][i - first] = this.buffer.get(at + 10);
+    }
+    return columns;
+  }
+
+  /**
+   * A cursor reading note records straight out of the mapped file.
+   */
+  private final class RecordCursor implements SoundCursor {
+    private final int from;
+    private final int to;
+    private int next;
+    private int at;
+
+    /**
+     * Constructs a cursor over the notes playing within [from, to], starting the search at the
+     * given note.
+     *
+     * @param first the first note which might be playing within the window
+     * @param from  the first beat of the window (inclusive)
+     * @param to    the last beat of the window (inclusive)
+     */
+    RecordCursor(int first, int from, int to) {
+      this.from = from;
+      this.to = to;
+      this.next = first;
+      this.at = -1;
+    }
+
+    @Override
+    public boolean next() {
+      while (this.next < size) {
+        int record = notesAt + this.next * RECORD_BYTES;
+        this.next += 1;
+        if (buffer.getInt(record) > this.to) {
+          // Notes are ordered by start, so none of the rest can be playing in the window.
+          this.next = size;
+          break;
+        }
+        if (buffer.getInt(record + 4) > this.from) {
+          this.at = record;
+          return true;
+        }
+      }
+      this.at = -1;
+      return false;
+    }
+
+    @Override
+    public int getStartBeat() {
+      return buffer.getInt(this.at);
+    }
+
+    @Override
+    public int getEndBeat() {
+      return buffer.getInt(this.at + 4);
+    }
+
+    @Override
+    public int getInstrument() {
+      return buffer.get(this.at + 8);
+    }
+
+    @Override
+    public int getPitch() {
+      return buffer.get(this.at + 9);
+    }
+
+    @Override
+    public int getVolume() {
+      return buffer.get(this.at + 10);
+    }
+
+    @Override
+    public Sound getSound() {
+      int start = this.getStartBeat();
+      return new Sound(Note.valueOf(this.getPitch()), start, this.getEndBeat() - start + 1,
+              this.getInstrument(), this.getVolume());
+    }
+  }
+}
@@ -1,170 +1,891 @@
 package cs3500.music.model;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * Class that represents a model of the Music interface, which should allow us to add Sounds,
  * Edit Sounds, Remove Sounds and display the sounds.
+ *
+ * <p>Snapshots are copy-on-write: taking one just hands the model's current storage to a new,
+ * frozen model, and the storage is only copied when this model is next edited. So a snapshot costs
+ * O(1) to take, and a run of edits with no snapshot taken in between pays for at most one copy.
+ * </p>
+ *
+ * <p>Every edit is recorded in an undo history as a small delta. Single notes added or removed
+ * within half a second of each other are undone together, and the history keeps at most 65536
+ * deltas, forgetting the oldest edits first. Both limits can be changed with setHistoryLimits.</p>
  */
 public class MusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>>, Note> {
-  private HashMap<Integer, ArrayList<Sound>> beatMap;
-  private int endBeat;
-  private TreeMap<Note, Sound> treeMinMax;
+  private static final int DEFAULT_HISTORY_DELTAS = 1 << 16;
+  private static final long DEFAULT_COALESCE_MILLIS = 500;
+  private static final int BEATS_PER_MEASURE = 4;
+
+  // Changed: each sound is stored once, as a row of primitive columns, and indexed by an interval
+  // tree instead of being stored once per beat it spans.
+  private NoteTable notes;
+  private IntervalTree sounds;
+  // Changed: pitch range is kept as a count of notes per pitch instead of a TreeMap of Notes.
+  private PitchCounts pitches;
   private int tempo;
+  // Added: the number of ticks in a beat. Notes are stored in ticks.
+  private int resolution;
+  // Added: copy-on-write state for snapshots.
+  private final boolean frozen;
+  private boolean shared;
+  private MusicModel snapshot;
+  // Added: undo history, or null if this model doesn't keep one.
+  private EditJournal history;
+  // Added: listeners told about each change, unless muted while a compound edit is under way.
+  private final ListenerList listeners;
+  private int muted;
+  // Added: while an undo or redo is being applied, the pitch range is only reported at the end.
+  private int replaying;
+  // Added: an interval tree of the sounds on each pitch, built the first time a query asks for a
+  // range of pitches.
+  private IntervalTree voices;
+  // Added: statistics of the sounds, kept up to date from the first time they are asked for.
+  private NoteStatistics statistics;
+  // Added: an interval tree of the sounds on each instrument, one per track, built the first time
+  // a track is asked for.
+  private IntervalTree tracks;
+  // Added: hashes of the notes of each measure, kept up to date from the first time they are asked
+  // for.
+  private MeasureHashes hashes;
 
   /**
    * Constructs a new empty music model.
    */
   public MusicModel() {
-    this.beatMap = new HashMap<Integer, ArrayList<Sound>>();
-    this.endBeat = 0;
-    this.treeMinMax = new TreeMap<Note, Sound>();
+    this(true);
+  }
+
+  /**
+   * Constructs a new empty music model, which may skip keeping an undo history. Models used
+   * purely as storage inside another model have no use for one.
+   *
+   * @param keepHistory whether edits to this model can be undone
+   */
+  MusicModel(boolean keepHistory) {
+    this.history = keepHistory
+            ? new EditJournal(DEFAULT_HISTORY_DELTAS, DEFAULT_COALESCE_MILLIS) : null;
+    this.listeners = new ListenerList();
+    this.muted = 0;
+    this.replaying = 0;
+    this.notes = new NoteTable();
+    this.sounds = new IntervalTree(this.notes);
+    this.pitches = new PitchCounts();
+    this.resolution = 1;
+    this.frozen = false;
+    this.shared = false;
+    this.snapshot = null;
+    this.voices = null;
+    this.statistics = null;
+    this.tracks = null;
+    this.hashes = null;
+  }
+
+  /**
+   * Constructs a frozen model which reads from the given storage. The storage must never be
+   * changed again, by this model or any other.
+   *
+   * @param other the model whose storage, tempo and resolution are used
+   */
+  private MusicModel(MusicModel other) {
+    this.notes = other.notes;
+    this.sounds = other.sounds;
+    this.pitches = other.pitches;
+    this.voices = other.voices;
+    this.statistics = other.statistics;
+    this.tracks = other.tracks;
+    this.hashes = other.hashes;
+    this.tempo = other.tempo;
+    this.resolution = other.resolution;
+    this.frozen = true;
+    this.shared = true;
+    this.snapshot = this;
+    this.history = null;
+    this.listeners = new ListenerList();
+    this.muted = 0;
+    this.replaying = 0;
+  }
+
+  @Override
+  public void addListener(ModelListener listener) {
+    this.listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * Tells the listeners that the pitch range has changed, if it is no longer the given range.
+   *
+   * @param low  the lowest pitch before the change
+   * @param high the highest pitch before the change
+   */
+  private void firePitchRange(int low, int high) {
+    if (this.muted == 0 && this.replaying == 0
+            && (this.pitches.low() != low || this.pitches.high() != high)) {
+      this.listeners.pitchRangeChanged(this.pitches.low(), this.pitches.high());
+    }
+  }
+
+  @Override
+  public synchronized MusicModel snapshot() {
+    if (this.frozen) {
+      return this;
+    }
+    if (this.snapshot == null) {
+      this.snapshot = new MusicModel(this);
+      this.shared = true;
+    }
+    return this.snapshot;
+  }
+
+  /**
+   * Must be called before this model's storage is changed. Throws if this model is a snapshot,
+   * and otherwise gives this model its own copy of any storage still shared with a snapshot.
+   */
+  private void beforeWrite() {
+    if (this.frozen) {
+      throw new UnsupportedOperationException("A snapshot cannot be changed.");
+    }
+    this.snapshot = null;
+    if (this.shared) {
+      this.notes = new NoteTable(this.notes);
+      this.sounds = new IntervalTree(this.sounds, this.notes);
+      this.pitches = new PitchCounts(this.pitches);
+      if (this.voices != null) {
+        this.voices = new IntervalTree(this.voices, this.notes);
+      }
+      if (this.statistics != null) {
+        this.statistics = new NoteStatistics(this.statistics);
+      }
+      if (this.tracks != null) {
+        this.tracks = new IntervalTree(this.tracks, this.notes);
+      }
+      if (this.hashes != null) {
+        this.hashes = new MeasureHashes(this.hashes);
+      }
+      this.shared = false;
+    }
   }
 
   //Changed: Changed parameters to allow parsing of txt files
   @Override
-  public void addNote(int start, int end, int instrument, int intPitch, int volume) {
-    this.checkValidSound(start, end, instrument, intPitch, volume);
-    PitchType pitch = this.parsePitch(intPitch);
-    OctaveType octave = this.parseOctave(intPitch);
-    Note noteToBeAdded = new Note(pitch, octave);
-    Sound soundToBeAdded = new Sound(noteToBeAdded, start, end - start + 1, instrument,
-            volume);
-    int beats = (end - start);
-    for (int i = 0; i < beats; i += 1) {
-      int curIdx = i + start;
-      if ((curIdx) > this.endBeat) {
-        this.endBeat = curIdx;
+  public synchronized void addNote(int start, int end, int instrument, int intPitch,
+                                   int volume) {
+    checkValidSound(start, end, instrument, intPitch, volume);
+    this.beforeWrite();
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    if (end > start) {
+      int row = this.notes.add(start, end, instrument, intPitch, volume);
+      this.sounds.insert(row);
+      if (this.tracks != null) {
+        this.tracks.insert(instrument, row);
+      }
+      if (this.voices != null) {
+        this.voices.insert(intPitch, row);
       }
-      if (!this.beatMap.containsKey(curIdx)) {
-        this.beatMap.put(curIdx, new ArrayList<Sound>());
+      if (this.statistics != null) {
+        this.statistics.add(start, end, instrument, intPitch, volume);
       }
+      if (this.hashes != null) {
+        this.hashes.add(start, end, instrument, intPitch, volume);
+      }
+    }
 
-      this.beatMap.get(curIdx).add(soundToBeAdded);
+    this.pitches.add(intPitch);
+    this.record(EditJournal.ADD, start, end, instrument, intPitch, volume);
+    if (this.muted == 0) {
+      this.listeners.noteAdded(start, end, instrument, intPitch, volume);
     }
+    this.firePitchRange(low, high);
+  }
 
-    this.treeMinMax.put(noteToBeAdded, soundToBeAdded);
+  /**
+   * Records an edit in the undo history, if this model keeps one.
+   */
+  private void record(int kind, int a, int b, int c, int d, int e) {
+    if (this.history != null) {
+      this.history.record(kind, a, b, c, d, e);
+    }
+  }
+
+  @Override
+  public synchronized void addNotes(int[] starts, int[] ends, int[] instruments, int[] pitches,
+                                    int[] volumes) {
+    int count = starts.length;
+    if (ends.length != count || instruments.length != count || pitches.length != count
+            || volumes.length != count) {
+      throw new IllegalArgumentException("Note arrays must all be the same length.");
+    }
+    for (int i = 0; i < count; i += 1) {
+      checkValidSound(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    this.beforeWrite();
+
+    this.notes.ensureCapacity(count);
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    int firstRow = this.notes.rows();
+    for (int i = 0; i < count; i += 1) {
+      if (ends[i] > starts[i]) {
+        this.notes.add(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+        if (this.statistics != null) {
+          this.statistics.add(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+        }
+        if (this.hashes != null) {
+          this.hashes.add(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+        }
+      }
+      this.pitches.add(pitches[i]);
+    }
+    int added = this.notes.rows() - firstRow;
+
+    // Inserting costs about one tree depth per note, rebuilding one step per note old and new.
+    int depth = 32 - Integer.numberOfLeadingZeros(this.sounds.size() + added);
+    if ((long) added * depth <= this.sounds.size()) {
+      // Too few new notes to be worth rebuilding the whole tree for.
+      for (int row = firstRow; row < firstRow + added; row += 1) {
+        this.sounds.insert(row);
+        if (this.tracks != null) {
+          this.tracks.insert(this.notes.instrument(row), row);
+        }
+        if (this.voices != null) {
+          this.voices.insert(this.notes.pitch(row), row);
+        }
+      }
+    } else {
+      this.sounds.build(this.mergeRows(this.sounds.rowsInOrder(), firstRow, added));
+      this.tracks = null;
+      this.voices = null;
+    }
+
+    if (this.history != null) {
+      this.history.beginCompound();
+      for (int i = 0; i < count; i += 1) {
+        this.history.record(EditJournal.ADD, starts[i], ends[i], instruments[i], pitches[i],
+                volumes[i]);
+      }
+      this.history.endCompound();
+    }
+    // Listeners are told only once the trees hold the new notes, as they may read the model back.
+    if (this.muted == 0) {
+      for (int i = 0; i < count; i += 1) {
+        this.listeners.noteAdded(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+      }
+    }
+    this.firePitchRange(low, high);
+  }
+
+  /**
+   * Sorts a run of newly added rows by start beat and merges them into the rows already in the
+   * tree, giving every row in the order the interval tree keeps them: by start beat, then by row.
+   *
+   * @param ordered  the rows already in the tree, in order
+   * @param firstRow the first of the new rows
+   * @param added    the number of new rows
+   * @return every row, in order
+   */
+  private int[] mergeRows(int[] ordered, int firstRow, int added) {
+    // Sorting (start, row) pairs packed into longs keeps ties in insertion order without boxing.
+    long[] keys = new long[added];
+    for (int i = 0; i < added; i += 1) {
+      int row = firstRow + i;
+      keys[i] = ((long) this.notes.start(row) << 32) | row;
+    }
+    Arrays.sort(keys);
+
+    // Every old row was added before every new one, so on equal start beats old rows come first.
+    int[] merged = new int[ordered.length + added];
+    int o = 0;
+    int k = 0;
+    for (int i = 0; i < merged.length; i += 1) {
+      if (k == added || (o < ordered.length
+              && this.notes.start(ordered[o]) <= (int) (keys[k] >>> 32))) {
+        merged[i] = ordered[o];
+        o += 1;
+      } else {
+        merged[i] = (int) keys[k];
+        k += 1;
+      }
+    }
+    return merged;
   }
 
   //Changed: Changed parameters to allow parsing of txt files
   @Override
-  public void removeNote(int start, int end, int instrument, int intPitch, int volume) {
-    this.checkValidSound(start, end, instrument, intPitch, volume);
-    PitchType pitch = this.parsePitch(intPitch);
-    OctaveType octave = this.parseOctave(intPitch);
-    Note remNote = new Note(pitch, octave);
-    Sound remSound = new Sound(remNote, start, end - start + 1, instrument,
-            volume);
-
-    if (!this.beatMap.get(start).contains(remSound)) {
+  public synchronized void removeNote(int start, int end, int instrument, int intPitch,
+                                      int volume) {
+    checkValidSound(start, end, instrument, intPitch, volume);
+    if (this.frozen) {
+      throw new UnsupportedOperationException("A snapshot cannot be changed.");
+    }
+
+    int remRow = IntervalTree.NIL;
+    for (int row : this.rowsAt(start)) {
+      if (this.notes.matches(row, start, end, instrument, intPitch, volume)) {
+        remRow = row;
+        break;
+      }
+    }
+    if (remRow == IntervalTree.NIL) {
       throw new IllegalArgumentException("Sound not present in track.");
     }
 
-    for (int i = start; i < end; i += 1) {
-      this.beatMap.get(i).remove(remSound);
+    this.beforeWrite();
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    this.sounds.remove(remRow);
+    if (this.tracks != null) {
+      this.tracks.remove(instrument, remRow);
+    }
+    if (this.voices != null) {
+      this.voices.remove(intPitch, remRow);
+    }
+    this.notes.kill(remRow);
+    this.pitches.remove(intPitch);
+    if (this.statistics != null) {
+      this.statistics.remove(start, end, instrument, intPitch, volume);
     }
+    if (this.hashes != null) {
+      this.hashes.remove(start, end, instrument, intPitch, volume);
+    }
+    if (this.notes.needsCompacting()) {
+      this.compact();
+    }
+    this.record(EditJournal.REMOVE, start, end, instrument, intPitch, volume);
+    if (this.muted == 0) {
+      this.listeners.noteRemoved(start, end, instrument, intPitch, volume);
+    }
+    this.firePitchRange(low, high);
+  }
 
-    this.endBeat = Collections.max(this.beatMap.keySet());
+  /**
+   * Drops removed notes from this model's storage and rebuilds the interval tree over what is
+   * left, so that a long run of removals doesn't leave the model bigger and slower than it needs
+   * to be.
+   */
+  // Added: removed notes used to leave empty beat buckets behind forever.
+  private void compact() {
+    this.compact(this.sounds.rowsInOrder());
+  }
 
-    //Added condition to remove if last and only last note in beatMap
-    if (!this.containsOtherNote(remNote)) {
-      this.treeMinMax.remove(remNote);
+  /**
+   * Drops removed notes from this model's storage and builds the interval tree over the given
+   * rows.
+   *
+   * @param ordered every live row, in the order the tree keeps them
+   */
+  private void compact(int[] ordered) {
+    int[] newRows = this.notes.compact();
+    for (int i = 0; i < ordered.length; i += 1) {
+      ordered[i] = newRows[ordered[i]];
     }
+    this.sounds.build(ordered);
+    // Every row has a new number, so the trees by track and pitch are built again when next needed.
+    this.tracks = null;
+    this.voices = null;
   }
 
   /**
-   * Checks if the note is not the last note in the entire beatMap.
+   * Returns the last tick on which any note is playing, or 0 if there are no notes. This comes
+   * straight from the interval tree, which keeps the latest end of every subtree, so it stays
+   * correct after notes are removed.
    *
-   * @param remNote the note to be removed
-   * @return whether last note or not
+   * @return the last tick with a note playing on it
    */
-  private boolean containsOtherNote(Note remNote) {
-    for (int i = 0; i <= this.endBeat; i += 1) {
-      if (this.beatMap.containsKey(i)) {
-        List<Sound> tempSounds = this.beatMap.get(i);
-        for (Sound tempSound : tempSounds) {
-          if (tempSound.getNote().equals(remNote)) {
-            return true;
+  private int lastPlayingTick() {
+    return Math.max(0, this.sounds.maxEnd() - 1);
+  }
+
+  @Override
+  public synchronized void editNote(int startSource, int endSource, int instrumentSource,
+                                    int pitchSource, int volumeSource, int startDest, int endDest,
+                                    int instrumentDest, int pitchDest, int volumeDest) {
+    checkValidSound(startSource, endSource, instrumentSource, pitchSource, volumeSource);
+    checkValidSound(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    // Changed: the remove and the add are undone together, and listeners hear of them as a single
+    // edit.
+    if (this.history != null) {
+      this.history.beginCompound();
+    }
+    this.muted += 1;
+    try {
+      this.removeNote(startSource, endSource, instrumentSource, pitchSource, volumeSource);
+      this.addNote(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    } finally {
+      this.muted -= 1;
+      if (this.history != null) {
+        this.history.endCompound();
+      }
+    }
+    if (this.muted == 0) {
+      this.listeners.noteEdited(startSource, endSource, instrumentSource, pitchSource,
+              volumeSource, startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    }
+    this.firePitchRange(low, high);
+  }
+
+  @Override
+  public synchronized int transformNotes(int start, int end, NoteFilter filter,
+                                         NoteTransform transform) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    Objects.requireNonNull(filter);
+    Objects.requireNonNull(transform);
+    this.beforeWrite();
+
+    int[] rows = this.rowsStartingIn(start, end, filter);
+    int[] after = this.valuesOf(rows);
+    for (int at = 0; at < after.length; at += 5) {
+      after[at] = transform.beat(after[at]);
+      after[at + 1] = transform.beat(after[at + 1]);
+      after[at + 2] = transform.instrument(after[at + 2]);
+      after[at + 3] = transform.pitch(after[at + 3]);
+      after[at + 4] = transform.volume(after[at + 4]);
+      checkValidSound(after[at], after[at + 1], after[at + 2], after[at + 3], after[at + 4]);
+    }
+    this.replaceRows(rows, after);
+    return rows.length;
+  }
+
+  /**
+   * Snaps the start and end of every note which starts within a range of ticks to the nearest
+   * multiple of a grid, in one pass. A note which would then last no time at all is given one
+   * grid step. Notes of the range on the same instrument and pitch which then collide are sorted
+   * out: of two starting on the same tick only the longer is kept, and a note still sounding when
+   * the next starts is cut short. Notes outside the range are left alone. The whole change is
+   * undone in one step.
+   *
+   * @param start the first tick a note may start on to be quantized (inclusive)
+   * @param end   the last tick a note may start on to be quantized (inclusive)
+   * @param grid  the size of the grid, in ticks
+   * @return the number of notes quantized, including any dropped because they collided
+   * @throws IllegalArgumentException if start is negative, end is before start, or the grid is
+   *                                  less than one tick
+   */
+  public int quantize(int start, int end, int grid) {
+    return this.retime(start, end, Retiming.quantize(grid));
+  }
+
+  /**
+   * Stretches the notes which start within a range of ticks by a ratio, in one pass: each note's
+   * start and end are moved so that their distance from the start of the range is multiplied by
+   * the ratio, rounded to the nearest tick. Every note keeps lasting at least one tick. Collisions
+   * are sorted out as by quantize. Notes outside the range are left alone, so stretching a
+   * section longer may make it overlap what follows; transformNotes can shift the rest of the
+   * piece to make room. The whole change is undone in one step.
+   *
+   * @param start the first tick a note may start on to be stretched (inclusive)
+   * @param end   the last tick a note may start on to be stretched (inclusive)
+   * @param ratio how much longer to make the section, so 2 makes it twice as long
+   * @return the number of notes stretched, including any dropped because they collided
+   * @throws IllegalArgumentException if start is negative, end is before start, or the ratio is
+   *                                  not positive
+   */
+  public int stretch(int start, int end, double ratio) {
+    return this.retime(start, end, Retiming.stretch(start, ratio));
+  }
+
+  /**
+   * Retimes every note which starts within a range of beats. Nothing is changed unless every
+   * retimed note is valid.
+   *
+   * @return the number of notes retimed
+   * @throws IllegalArgumentException if the range starts before beat 0 or ends before it starts,
+   *                                  or a retimed note would start before beat 0
+   */
+  synchronized int retime(int start, int end, Retiming retiming) {
+    if (start < 0) {
+      throw new IllegalArgumentException("Start beat cannot be negative.");
+    }
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    this.beforeWrite();
+    int[] rows = this.rowsStartingIn(start, end, NoteFilter.ALL);
+    int[] after = this.valuesOf(rows);
+    retiming.apply(after, rows.length);
+    for (int at = 0; at < after.length; at += 5) {
+      // Dropped notes are marked with a start of -1 and are only removed.
+      if (after[at] != -1) {
+        checkValidSound(after[at], after[at + 1], after[at + 2], after[at + 3], after[at + 4]);
+      }
+    }
+    this.replaceRows(rows, after);
+    return rows.length;
+  }
+
+  /**
+   * Finds the rows of the notes which start within a range of beats and which a filter accepts.
+   *
+   * @param start the first start beat (inclusive)
+   * @param end   the last start beat (inclusive)
+   * @return the rows, ordered by start beat and then by row
+   */
+  private int[] rowsStartingIn(int start, int end, NoteFilter filter) {
+    int[] rows = new int[16];
+    int count = 0;
+    IntervalTree.Cursor c = this.sounds.new Cursor(start, end);
+    for (int row = c.next(); row != IntervalTree.NIL; row = c.next()) {
+      if (this.notes.start(row) >= start && filter.accept(this.notes.start(row),
+              this.notes.end(row), this.notes.instrument(row), this.notes.pitch(row),
+              this.notes.volume(row))) {
+        if (count == rows.length) {
+          rows = Arrays.copyOf(rows, count * 2);
+        }
+        rows[count] = row;
+        count += 1;
+      }
+    }
+    return Arrays.copyOf(rows, count);
+  }
+
+  /**
+   * Copies the notes in the given rows out of the table.
+   *
+   * @param rows the rows to copy
+   * @return each note's start, end, instrument, pitch and volume, five values to a note
+   */
+  private int[] valuesOf(int[] rows) {
+    int[] values = new int[rows.length * 5];
+    for (int i = 0; i < rows.length; i += 1) {
+      int row = rows[i];
+      values[i * 5] = this.notes.start(row);
+      values[i * 5 + 1] = this.notes.end(row);
+      values[i * 5 + 2] = this.notes.instrument(row);
+      values[i * 5 + 3] = this.notes.pitch(row);
+      values[i * 5 + 4] = this.notes.volume(row);
+    }
+    return values;
+  }
+
+  /**
+   * Replaces the notes in some rows with new notes, as one edit. As with editNote, each new note
+   * goes after any others starting on the same beat. When many notes are replaced the interval
+   * tree is rebuilt once rather than changed note by note. The new notes are expected to have
+   * been validated already, and this model to be ready to write.
+   *
+   * @param rows  the rows to replace
+   * @param after the new notes, five values to a note; a note with a start of -1 is just removed
+   */
+  private void replaceRows(int[] rows, int[] after) {
+    int count = rows.length;
+    int[] before = this.valuesOf(rows);
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    int depth = 32 - Integer.numberOfLeadingZeros(this.sounds.size() + 1);
+    boolean rebuild = (long) count * depth > this.sounds.size();
+    int firstRow = this.notes.rows();
+
+    if (this.history != null) {
+      this.history.beginCompound();
+    }
+    for (int i = 0; i < count; i += 1) {
+      int at = i * 5;
+      if (!rebuild) {
+        this.sounds.remove(rows[i]);
+        if (this.tracks != null) {
+          this.tracks.remove(before[at + 2], rows[i]);
+        }
+        if (this.voices != null) {
+          this.voices.remove(before[at + 3], rows[i]);
+        }
+      }
+      this.notes.kill(rows[i]);
+      this.pitches.remove(before[at + 3]);
+      if (this.statistics != null) {
+        this.statistics.remove(before[at], before[at + 1], before[at + 2], before[at + 3],
+                before[at + 4]);
+      }
+      if (this.hashes != null) {
+        this.hashes.remove(before[at], before[at + 1], before[at + 2], before[at + 3],
+                before[at + 4]);
+      }
+      this.record(EditJournal.REMOVE, before[at], before[at + 1], before[at + 2],
+              before[at + 3], before[at + 4]);
+      if (after[at] >= 0) {
+        int row = this.notes.add(after[at], after[at + 1], after[at + 2], after[at + 3],
+                after[at + 4]);
+        if (!rebuild) {
+          this.sounds.insert(row);
+          if (this.tracks != null) {
+            this.tracks.insert(after[at + 2], row);
+          }
+          if (this.voices != null) {
+            this.voices.insert(after[at + 3], row);
           }
         }
+        if (this.statistics != null) {
+          this.statistics.add(after[at], after[at + 1], after[at + 2], after[at + 3],
+                  after[at + 4]);
+        }
+        if (this.hashes != null) {
+          this.hashes.add(after[at], after[at + 1], after[at + 2], after[at + 3],
+                  after[at + 4]);
+        }
+        this.pitches.add(after[at + 3]);
+        this.record(EditJournal.ADD, after[at], after[at + 1], after[at + 2], after[at + 3],
+                after[at + 4]);
+      }
+    }
+    if (this.history != null) {
+      this.history.endCompound();
+    }
+    if (rebuild) {
+      // If every note was replaced there are no old rows left to walk.
+      int[] ordered = count == this.sounds.size() ? new int[0] : this.sounds.rowsInOrder();
+      int kept = 0;
+      for (int row : ordered) {
+        if (!this.notes.isDead(row)) {
+          ordered[kept] = row;
+          kept += 1;
+        }
+      }
+      ordered = this.mergeRows(Arrays.copyOf(ordered, kept), firstRow,
+              this.notes.rows() - firstRow);
+      if (this.notes.needsCompacting()) {
+        this.compact(ordered);
+      } else {
+        this.sounds.build(ordered);
+      }
+      this.tracks = null;
+      this.voices = null;
+    } else if (this.notes.needsCompacting()) {
+      this.compact();
+    }
+
+    if (this.muted == 0) {
+      for (int i = 0; i < count; i += 1) {
+        int at = i * 5;
+        if (after[at] >= 0) {
+          this.listeners.noteEdited(before[at], before[at + 1], before[at + 2], before[at + 3],
+                  before[at + 4], after[at], after[at + 1], after[at + 2], after[at + 3],
+                  after[at + 4]);
+        } else {
+          this.listeners.noteRemoved(before[at], before[at + 1], before[at + 2], before[at + 3],
+                  before[at + 4]);
+        }
       }
     }
-    return false;
+    this.firePitchRange(low, high);
   }
-  // Added: to allow for better integration of both of our models (for TreeMap)
 
   @Override
-  public void editNote(int startSource, int endSource, int instrumentSource, int pitchSource, int
-          volumeSource, int startDest, int endDest, int instrumentDest, int pitchDest, int
-                               volumeDest) {
-    this.checkValidSound(startSource, endSource, instrumentSource, pitchSource, volumeSource);
-    this.checkValidSound(startDest, endDest, instrumentDest, pitchDest, volumeDest);
-    this.removeNote(startSource, endSource, instrumentSource, pitchSource, volumeSource);
-    this.addNote(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+  public synchronized boolean undo() {
+    if (this.frozen) {
+      throw new UnsupportedOperationException("A snapshot cannot be changed.");
+    }
+    return this.replay(true);
   }
 
   @Override
-  public IMusicModel combineMusic(CombineType combineType, IMusicModel that) {
-    int thatLength = that.getEndBeat() + 1;
+  public synchronized boolean redo() {
+    if (this.frozen) {
+      throw new UnsupportedOperationException("A snapshot cannot be changed.");
+    }
+    return this.replay(false);
+  }
+
+  /**
+   * Undoes or redoes one edit, telling listeners about the pitch range only once it is done, so
+   * that they don't see the range the piece passes through partway.
+   *
+   * @param undo whether to undo, rather than redo
+   * @return true if there was an edit to undo or redo
+   */
+  private boolean replay(boolean undo) {
+    if (this.history == null) {
+      return false;
+    }
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    boolean done;
+    this.replaying += 1;
+    try {
+      done = undo ? this.history.undo(new Replay()) : this.history.redo(new Replay());
+    } finally {
+      this.replaying -= 1;
+    }
+    this.firePitchRange(low, high);
+    return done;
+  }
+
+  /**
+   * Forgets every edit made so far, so that none of them can be undone. Useful once a piece has
+   * just been loaded.
+   */
+  public synchronized void clearHistory() {
+    if (this.history != null) {
+      this.history.clear();
+    }
+  }
+
+  /**
+   * Changes how much undo history this model keeps, forgetting every edit made so far.
+   *
+   * @param maxDeltas      the most notes added or removed (and tempo changes) to remember
+   * @param coalesceMillis how close together, in milliseconds, two single note additions (or two
+   *                       removals) must be to be undone together; 0 undoes every edit alone
+   * @throws IllegalArgumentException if maxDeltas is less than 1 or coalesceMillis is negative
+   */
+  public synchronized void setHistoryLimits(int maxDeltas, long coalesceMillis) {
+    this.history = new EditJournal(maxDeltas, coalesceMillis);
+  }
+
+  /**
+   * Takes back a note which was added to this model. Unlike removeNote, this also works for notes
+   * of zero length, which are counted towards the pitch range but never stored.
+   */
+  synchronized void undoAdd(int start, int end, int instrument, int pitch, int volume) {
+    if (end == start) {
+      this.beforeWrite();
+      int low = this.pitches.low();
+      int high = this.pitches.high();
+      this.pitches.remove(pitch);
+      this.record(EditJournal.REMOVE, start, end, instrument, pitch, volume);
+      if (this.muted == 0) {
+        this.listeners.noteRemoved(start, end, instrument, pitch, volume);
+      }
+      this.firePitchRange(low, high);
+    } else {
+      this.removeNote(start, end, instrument, pitch, volume);
+    }
+  }
+
+  /**
+   * Applies the deltas of the undo history to this model.
+   */
+  private final class Replay implements EditJournal.Target {
+    @Override
+    public void add(int start, int end, int instrument, int pitch, int volume) {
+      addNote(start, end, instrument, pitch, volume);
+    }
+
+    @Override
+    public void remove(int start, int end, int instrument, int pitch, int volume) {
+      undoAdd(start, end, instrument, pitch, volume);
+    }
+
+    @Override
+    public void setTempo(int tempo) {
+      MusicModel.this.setTempo(tempo);
+    }
+  }
+
+  @Override
+  public IMusicModel<?, ?> combineMusic(CombineType combineType, IMusicModel<?, ?> that) {
+    // Changed: every note is now read once, in order, and handed to the other piece as a single
+    // batch, instead of being added again for each beat it lasts (with an end one beat too late).
+    if (that.getResolution() != this.resolution) {
+      throw new IllegalArgumentException("Pieces of different resolutions cannot be combined.");
+    }
+    int offset;
     switch (combineType) {
       //One after the other
       case CONSECUTIVE:
-        for (int i = 0; i <= this.endBeat; i += 1) {
-          List<Sound> tempSound = this.beatMap.get(i);
-          for (Sound temp : tempSound) {
-            that.addNote(temp.getStartBeat() + thatLength,
-                    temp.getStartBeat() + temp.getDuration() + thatLength,
-                    temp.getInstrument(), this.convertNoteToMIDIInt(temp.getNote().getPitch(),
-                            temp.getNote().getOctave()), temp.getVolume());
-          }
-        }
+        offset = (that.getEndBeat() + 1) * this.resolution;
         break;
       //Both together
       case SIMULTANEOUS:
-        for (int i = 0; i <= this.endBeat; i += 1) {
-          List<Sound> tempSound = this.beatMap.get(i);
-          for (Sound temp : tempSound) {
-            that.addNote(temp.getStartBeat(), temp.getStartBeat() + temp.getDuration(),
-                    temp.getInstrument(), this.convertNoteToMIDIInt(temp.getNote().getPitch(), temp
-                            .getNote().getOctave()), temp.getVolume());
-          }
-        }
+        offset = 0;
         break;
       default:
         throw new IllegalArgumentException("Not a valid CombineType.");
     }
+    new NoteRun(this.snapshot().getSounds(), offset).addTo(that);
     return that;
   }
 
   /**
-   * Returns an integer representation of a note (0 to 127) based on PitchType and OctaveType.
+   * Combines any number of pieces into a new piece in one pass. If the CombineType is
+   * SIMULTANEOUS the pieces are all played together. If it is CONSECUTIVE they are played one
+   * after the other, in the order given, each starting the beat after the one before it ends, just
+   * as combineMusic would place them; pieces with no notes take up no time. The new piece has the
+   * tempo of the first piece, and the resolution they all share. The pieces themselves are not
+   * changed.
    *
-   * @param p the note's pitch
-   * @param o the note's octave
-   * @return an integer representation of the given note data from 0 to 127
+   * <p>Each piece is read once, and the pieces are merged pairwise, so combining k pieces with n
+   * notes in all takes O(n log k) time. If parallel is true, pieces are read and merged on several
+   * threads at once.</p>
+   *
+   * @param combineType how to combine the pieces
+   * @param pieces      the pieces to combine
+   * @param parallel    whether to read and merge the pieces on several threads
+   * @return a new piece made of all of the given pieces
+   * @throws IllegalArgumentException if the pieces do not all have the same resolution
    */
-  private int convertNoteToMIDIInt(PitchType p, OctaveType o) {
-    this.validPitch(p);
-    this.validOctave(o);
-    Note tempNote = new Note(p, o);
-    return tempNote.hashCode();
+  public static MusicModel combineAll(CombineType combineType, List<? extends IMusicModel> pieces,
+                                      boolean parallel) {
+    Objects.requireNonNull(combineType);
+    MusicModel combined = new MusicModel();
+    if (pieces.isEmpty()) {
+      return combined;
+    }
+    combined.setTempo(pieces.get(0).getTempo());
+    int resolution = pieces.get(0).getResolution();
+    for (IMusicModel<?, ?> piece : pieces) {
+      if (piece.getResolution() != resolution) {
+        throw new IllegalArgumentException("Pieces of different resolutions cannot be combined.");
+      }
+    }
+    combined.setResolution(resolution);
+
+    // Where each piece starts has to be known before any of them can be read.
+    IMusicModel<?, ?>[] frozen = new IMusicModel<?, ?>[pieces.size()];
+    int[] offsets = new int[pieces.size()];
+    int offset = 0;
+    for (int i = 0; i < frozen.length; i += 1) {
+      frozen[i] = pieces.get(i).snapshot();
+      offsets[i] = offset;
+      if (combineType == CombineType.CONSECUTIVE && frozen[i].getSounds().next()) {
+        offset += (frozen[i].getEndBeat() + 1) * resolution;
+      }
+    }
+
+    NoteRun[] runs = new NoteRun[frozen.length];
+    IntStream indices = IntStream.range(0, runs.length);
+    (parallel ? indices.parallel() : indices).forEach(i ->
+            runs[i] = new NoteRun(frozen[i].getSounds(), offsets[i]));
+    // Merge neighbouring runs until one is left, keeping earlier pieces first on a tie.
+    for (int width = 1; width < runs.length; width *= 2) {
+      int step = width;
+      IntStream pairs = IntStream.range(0, (runs.length + width - 1) / (2 * width));
+      (parallel ? pairs.parallel() : pairs).forEach(pair -> {
+        int left = pair * 2 * step;
+        runs[left] = new NoteRun(runs[left], runs[left + step]);
+      });
+    }
+    runs[0].addTo(combined);
+    combined.clearHistory();
+    return combined;
   }
-  // Added for conversion of our interpretation of note info into abstracted integer data.
 
   @Override
   public String display() {
-    if (this.beatMap.isEmpty()) {
+    if (this.sounds.size() == 0) {
       return "";
     }
     StringBuilder out = new StringBuilder();
     List<Note> notesToDisplay = getNotesToDisplay();
 
     //Column length for beats
-    int beatDigits = String.valueOf(this.endBeat).length();
+    int lastBeat = this.lastPlayingTick() / this.resolution;
+    int beatDigits = String.valueOf(lastBeat).length();
     out.append(this.getSpacesAsString(beatDigits));
 
     //Note Row
@@ -174,20 +895,16 @@ public class MusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>
     out.append("\n");
 
     //Each beat
-    for (int i = 0; i <= this.endBeat; i += 1) {
+    for (int i = 0; i <= lastBeat; i += 1) {
       out.append(this.getBeatDisplay(i, beatDigits));
-      if (this.beatMap.containsKey(i)) {
-        List<Sound> retrieve = this.beatMap.get(i);
+      int[] retrieve = this.sounds.rowsIn(firstTick(i, this.resolution),
+              lastTick(i, this.resolution));
+      if (retrieve.length > 0) {
 
         for (Note tempNote : notesToDisplay) {
-          if (this.containsNote(retrieve, tempNote)) {
-            Sound curSound = this.getSound(retrieve, tempNote);
-
-            if (curSound == null) {
-              throw new IllegalArgumentException("Note is not in HashMap.");
-            }
-
-            if (curSound.getStartBeat() == i) {
+          int curRow = this.getRow(retrieve, tempNote.getValue());
+          if (curRow != IntervalTree.NIL) {
+            if (this.notes.start(curRow) / this.resolution == i) {
               out.append("  X  ");
             } else {
               out.append("  |  ");
@@ -206,38 +923,22 @@ public class MusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>
     return out.toString();
   }
 
-  /**
-   * Checks if a note is present in a list of sounds.
-   *
-   * @param sounds      the list of sounds to be checked from
-   * @param noteToCheck the note to be checked
-   * @return whether the note was found in the list of sounds or not
-   */
-  private boolean containsNote(List<Sound> sounds, Note noteToCheck) {
-    for (Sound tempSounds : sounds) {
-      if (tempSounds.getNote().equals(noteToCheck)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
   //Added : Implemented functions using getters instead of protected fields.
 
   /**
-   * Returns the sound found with the particular note being looked for.
+   * Returns the first row found with the particular pitch being looked for.
    *
-   * @param sounds      the list of sounds to be checked from
-   * @param noteToCheck the note to be looked for
-   * @return the sound which consists of the note being looked for
+   * @param rows  the rows of the sounds to be checked from
+   * @param pitch the pitch to be looked for
+   * @return the row of the sound with the pitch being looked for, or NIL if there is none
    */
-  private Sound getSound(List<Sound> sounds, Note noteToCheck) {
-    for (Sound tempSounds : sounds) {
-      if (tempSounds.getNote().equals(noteToCheck)) {
-        return tempSounds;
+  private int getRow(int[] rows, int pitch) {
+    for (int row : rows) {
+      if (this.notes.pitch(row) == pitch) {
+        return row;
       }
     }
-    return null;
+    return IntervalTree.NIL;
   }
 
   /**
@@ -277,21 +978,13 @@ public class MusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>
    * @return List of notes present in the entire sound
    */
   private List<Note> getNotesToDisplay() {
-    if (this.beatMap.isEmpty()) {
-      return new ArrayList<Note>();
+    List<Note> notesToDisplay = new ArrayList<Note>();
+    if (this.sounds.size() == 0) {
+      return notesToDisplay;
     }
-    List<Note> notesToDisplay;
-    ArrayList<Note> allNotes = new ArrayList<Note>();
-    for (OctaveType tempOctave : OctaveType.values()) {
-      for (PitchType tempPitch : PitchType.values()) {
-        Note tempNote = new Note(tempPitch, tempOctave);
-        allNotes.add(tempNote);
-      }
+    for (int i = this.pitches.high(); i >= this.pitches.low(); i -= 1) {
+      notesToDisplay.add(Note.valueOf(i));
     }
-    int startIdx = allNotes.indexOf(this.treeMinMax.firstKey());
-    int endIdx = allNotes.indexOf(this.treeMinMax.lastKey());
-    notesToDisplay = allNotes.subList(startIdx, endIdx + 1);
-    Collections.reverse(notesToDisplay);
     return notesToDisplay;
   }
 
@@ -302,28 +995,28 @@ public class MusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>
    */
   @Override
   public List<Note> notesToDisplay() {
-    List<Note> temp = new ArrayList<Note>();
-    temp.addAll(this.getNotesToDisplay());
-    return temp;
+    return this.getNotesToDisplay();
   }
 
   @Override
   public int getEndBeat() {
-    int end = this.endBeat + 1;
+    int end = this.lastPlayingTick() / this.resolution + 1;
     return end;
   }
 
   /**
-   * Checks the values of all parameters.
+   * Checks the values of all parameters. Also used by the other models in this package, and by
+   * builders which check each note as it is read but only add them to a model later.
    *
-   * @param start      The start time of the note, in beats
-   * @param end        The end time of the note, in beats
+   * @param start      The start time of the note, in ticks
+   * @param end        The end time of the note, in ticks
    * @param instrument The instrument number (to be interpreted by MIDI)
    * @param pitch      The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
    *                   piano)
    * @param volume     The volume (in the range [0, 127])
+   * @throws IllegalArgumentException if any of the values is invalid
    */
-  private void checkValidSound(int start, int end, int instrument, int pitch, int volume)
+  public static void checkValidSound(int start, int end, int instrument, int pitch, int volume)
           throws IllegalArgumentException {
     if (start < 0) {
       throw new IllegalArgumentException("Start beat cannot be negative.");
@@ -341,106 +1034,363 @@ public class MusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>
       throw new IllegalArgumentException("Pitch value cannot be outside range [0, 127].");
     }
 
+    if (instrument < 0 || instrument > 127) {
+      throw new IllegalArgumentException("Instrument value cannot be outside range [0, 127].");
+    }
+
     if (volume < 0 || volume > 127) {
       throw new IllegalArgumentException("Volume value cannot be outside range [0, 127].");
     }
   }
 
+  @Override
+  public HashMap<Integer, ArrayList<Sound>> getBeats(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    HashMap<Integer, ArrayList<Sound>> tempBeats = new HashMap<>();
+    // Changed: the window is in beats, so it covers every tick of its first and last beats.
+    int ticks = this.resolution;
+    for (int row : this.sounds.rowsIn(firstTick(start, ticks), lastTick(end, ticks))) {
+      Sound tempSound = this.notes.toSound(row);
+      int first = Math.max(start, this.notes.start(row) / ticks);
+      int last = Math.min(end, (this.notes.end(row) - 1) / ticks);
+      for (int i = first; i <= last; i += 1) {
+        if (!tempBeats.containsKey(i)) {
+          tempBeats.put(i, new ArrayList<Sound>());
+        }
+        tempBeats.get(i).add(tempSound);
+      }
+    }
+    return tempBeats;
+  }
+
   /**
-   * Checks if the PitchType is a valid PitchType and throws an InvalidArgumentException if it is
-   * not.
+   * Returns the rows of the sounds playing at the given tick, in the order they were added.
    *
-   * @param pitch The PitchType to be checked
-   * @throws IllegalArgumentException if the PitchType is not Valid
+   * @param beat the tick to look at
+   * @return the rows of the sounds playing at that tick, which are none if nothing is playing
    */
-  private void validPitch(PitchType pitch) throws IllegalArgumentException {
-    switch (pitch) {
-      case C:
-      case C_SHARP:
-      case D:
-      case D_SHARP:
-      case E:
-      case F:
-      case F_SHARP:
-      case G:
-      case G_SHARP:
-      case A:
-      case A_SHARP:
-      case B:
-        return;
-      default:
-        throw new IllegalArgumentException("Not a valid PitchType.");
+  private int[] rowsAt(int beat) {
+    return this.sounds.rowsIn(beat, beat);
+  }
+
+  @Override
+  public SoundCursor getSounds() {
+    return new RowCursor(this.sounds.new Cursor(0, Integer.MAX_VALUE));
+  }
+
+  @Override
+  public SoundCursor getSounds(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    return new RowCursor(this.sounds.new Cursor(start, end));
+  }
+
+  @Override
+  public SoundCursor getSoundsAt(int beat) {
+    return new RowCursor(this.sounds.new Cursor(beat, beat));
+  }
+
+  @Override
+  public synchronized List<Integer> getTracks() {
+    IntervalTree tracks = this.tracks();
+    List<Integer> instruments = new ArrayList<>();
+    for (int i = 0; i < 128; i += 1) {
+      if (tracks.size(i) > 0) {
+        instruments.add(i);
+      }
     }
+    return instruments;
+  }
+
+  @Override
+  public synchronized SoundCursor getTrack(int instrument, int start, int end) {
+    if (instrument < 0 || instrument > 127) {
+      throw new IllegalArgumentException("Instrument value cannot be outside range [0, 127].");
+    }
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    return new RowCursor(this.tracks().new Cursor(instrument, start, end));
   }
 
   /**
-   * Checks if the OctaveType entered is a valid OctaveType and throws an
-   * InvalidArgumentException if it is not valid.
+   * Returns the interval trees of the sounds on each instrument, building them if this is the
+   * first time they have been needed since the rows were last renumbered or rebuilt.
    *
-   * @param octave The OctaveType to be checked
+   * @return the trees, one for each instrument
    */
-  private void validOctave(OctaveType octave) {
-    switch (octave) {
-      case ZERO:
-      case ONE:
-      case TWO:
-      case THREE:
-      case FOUR:
-      case FIVE:
-      case SIX:
-      case SEVEN:
-      case EIGHT:
-      case NINE:
-      case TEN:
-        return;
-      default:
-        throw new IllegalArgumentException("Not a valid OctaveType.");
+  private IntervalTree tracks() {
+    if (this.tracks == null) {
+      this.tracks = this.splitSounds(this.notes::instrument);
+    }
+    return this.tracks;
+  }
+
+  /**
+   * Returns the interval trees of the sounds on each pitch, building them if this is the first
+   * time they have been needed since the rows were last renumbered or rebuilt.
+   *
+   * @return the trees, one for each pitch
+   */
+  private IntervalTree voices() {
+    if (this.voices == null) {
+      this.voices = this.splitSounds(this.notes::pitch);
     }
+    return this.voices;
   }
 
+  /**
+   * Builds 128 interval trees over the sounds, putting each row in the tree given by a key.
+   *
+   * @param key gives the tree of a row, in the range [0, 127]
+   * @return the trees
+   */
+  private IntervalTree splitSounds(IntUnaryOperator key) {
+    // Splitting the rows in tree order keeps each tree's rows in order too.
+    int[] ordered = this.sounds.rowsInOrder();
+    int[] counts = new int[128];
+    for (int row : ordered) {
+      counts[key.applyAsInt(row)] += 1;
+    }
+    int[][] rows = new int[128][];
+    for (int i = 0; i < 128; i += 1) {
+      rows[i] = new int[counts[i]];
+      counts[i] = 0;
+    }
+    for (int row : ordered) {
+      int tree = key.applyAsInt(row);
+      rows[tree][counts[tree]] = row;
+      counts[tree] += 1;
+    }
+    IntervalTree trees = new IntervalTree(this.notes, 128);
+    trees.build(rows);
+    return trees;
+  }
+
+  /**
+   * {@inheritDoc} A query naming an instrument walks just the window of beats it asks for in that
+   * instrument's track, and one naming a range of pitches walks the window in the tree of each of
+   * those pitches.
+   */
   @Override
-  public HashMap<Integer, ArrayList<Sound>> getBeats(int start, int end) {
-    if (end < start) {
-      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+  public synchronized SoundCursor query(NoteQuery query) {
+    Objects.requireNonNull(query);
+    if (query.getInstrument() >= 0) {
+      return new RowCursor(this.tracks().new Cursor(query.getInstrument(), query.getFirstBeat(),
+              query.getLastBeat()), query);
     }
-    HashMap<Integer, ArrayList<Sound>> tempBeats = new HashMap<>();
-    for (int i = start; i <= end; i += 1) {
-      if (this.beatMap.containsKey(i)) {
-        tempBeats.put(i, this.beatMap.get(i));
+    if (query.getLowestPitch() == 0 && query.getHighestPitch() == 127) {
+      // Nothing narrows the query but its beats, which the interval tree already indexes.
+      return new RowCursor(this.sounds.new Cursor(query.getFirstBeat(), query.getLastBeat()),
+              query);
+    }
+    return new RowCursor(this.rowsOnPitches(query));
+  }
+
+  /**
+   * Finds the rows a query naming a range of pitches matches, walking the window of beats it asks
+   * for in the tree of each pitch.
+   *
+   * @param query the query
+   * @return the matching rows, ordered by start beat and then by row
+   */
+  private int[] rowsOnPitches(NoteQuery query) {
+    IntervalTree voices = this.voices();
+    // Sorting (start, row) pairs packed into longs gives the order of the interval tree.
+    long[] keys = new long[16];
+    int count = 0;
+    for (int p = query.getLowestPitch(); p <= query.getHighestPitch(); p += 1) {
+      IntervalTree.Cursor c = voices.new Cursor(p, query.getFirstBeat(), query.getLastBeat());
+      for (int row = c.next(); row != IntervalTree.NIL; row = c.next()) {
+        if (query.accept(this.notes.start(row), this.notes.end(row), this.notes.instrument(row),
+                this.notes.pitch(row), this.notes.volume(row))) {
+          if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+          }
+          keys[count] = ((long) this.notes.start(row) << 32) | row;
+          count += 1;
+        }
       }
     }
-    return tempBeats;
+    Arrays.sort(keys, 0, count);
+    int[] rows = new int[count];
+    for (int i = 0; i < count; i += 1) {
+      rows[i] = (int) keys[i];
+    }
+    return rows;
+  }
+
+  @Override
+  public synchronized RangeSummary summarize(int start, int end) {
+    return this.getStatistics().summarize(start, end);
   }
 
   /**
-   * Parses an integer to an OctaveType.
+   * Returns statistics of the sounds in this model. They are worked out in full the first time
+   * they are asked for, and from then on kept up to date by every edit, so asking again after an
+   * edit costs nothing. The statistics returned are only valid until this model is next modified.
    *
-   * @param pitch the pitch number read by the txt files.
-   * @return the OctaveType of the note
-   * @throws IllegalArgumentException if the given pitch is not valid (not 0 to 127)
+   * @return the statistics of this model's sounds
    */
-  //Added : to read from the text files.
-  private OctaveType parseOctave(int pitch) {
-    if (pitch < 0 || pitch > 127) {
-      throw new IllegalArgumentException("Unable to parse, pitch given out of range.");
+  public synchronized NoteStatistics getStatistics() {
+    if (this.statistics == null) {
+      this.statistics = NoteStatistics.of(this.notes);
     }
-    pitch = pitch / 12;
-    return OctaveType.values()[pitch];
+    return this.statistics;
   }
 
   /**
-   * Parses an integer to an PitchType.
+   * Works out the statistics of the sounds in this model again from scratch, in parallel for
+   * large pieces, without using or changing the statistics kept by getStatistics. Useful to check
+   * that the two are equal.
    *
-   * @param pitch the pitch number read by the txt files.
-   * @return the PitchType of the note
-   * @throws IllegalArgumentException if the given pitch is not valid (not 0 to 127)
+   * @return new statistics of this model's sounds
    */
-  //Added : to read from the text files.
-  private PitchType parsePitch(int pitch) {
-    if (pitch < 0 || pitch > 127) {
-      throw new IllegalArgumentException("Unable to parse, pitch given out of range.");
+  public synchronized NoteStatistics recomputeStatistics() {
+    return NoteStatistics.of(this.notes);
+  }
+
+  /**
+   * Returns a hash of every sound in this model, as the root of a Merkle tree of the hashes of
+   * each measure of four beats. Models with the same sounds have the same hash, whatever order
+   * they were added in, and a change to any sound almost certainly changes it. Like the
+   * statistics, the hashes are worked out in full the first time they are asked for and from then
+   * on kept up to date by every edit, in time proportional to the log of the number of measures.
+   * Tempo is not part of the hash.
+   *
+   * @return the hash of the whole piece, or 0 if it has no sounds
+   */
+  public synchronized long getHash() {
+    return this.hashes().root();
+  }
+
+  /**
+   * Returns a hash of the sounds starting within a range of measures of four beats, so that an
+   * edit can be told to have left a range alone by its hash staying the same. A sound belongs to
+   * the measure it starts in. The hash depends on where the range is as well as on its sounds, and
+   * takes time proportional to the log of the number of measures to work out.
+   *
+   * @param firstMeasure the first measure (inclusive), where measure 0 starts at beat 0
+   * @param lastMeasure  the last measure (inclusive)
+   * @return the hash of the range, or 0 if no sounds start in it
+   * @throws IllegalArgumentException if lastMeasure is before firstMeasure
+   */
+  public synchronized long getHash(int firstMeasure, int lastMeasure) {
+    if (lastMeasure < firstMeasure) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end "
+              + "measure.");
+    }
+    return this.hashes().range(firstMeasure, lastMeasure);
+  }
+
+  /**
+   * Returns the hashes of each measure, building them if they haven't been asked for yet.
+   *
+   * @return the hashes of each measure
+   */
+  private MeasureHashes hashes() {
+    if (this.hashes == null) {
+      int ticksPerMeasure = (int) Math.min(Integer.MAX_VALUE,
+              (long) BEATS_PER_MEASURE * this.resolution);
+      this.hashes = MeasureHashes.of(this.notes, ticksPerMeasure);
+    }
+    return this.hashes;
+  }
+
+  /**
+   * A flyweight SoundCursor which walks an interval tree cursor, or a list of rows already found,
+   * and reads each note's values from this model's columns.
+   */
+  private final class RowCursor implements SoundCursor {
+    private final IntervalTree.Cursor rows;
+    private final NoteFilter filter;
+    private final int[] found;
+    private int at;
+    private int row;
+
+    /**
+     * Constructs a cursor over the rows produced by the given tree cursor.
+     *
+     * @param rows the tree cursor to walk
+     */
+    RowCursor(IntervalTree.Cursor rows) {
+      this(rows, null);
+    }
+
+    /**
+     * Constructs a cursor over the rows produced by the given tree cursor which a filter accepts.
+     *
+     * @param rows   the tree cursor to walk
+     * @param filter which rows to stop on, or null for every row
+     */
+    RowCursor(IntervalTree.Cursor rows, NoteFilter filter) {
+      this.rows = rows;
+      this.filter = filter;
+      this.found = null;
+      this.row = IntervalTree.NIL;
+    }
+
+    /**
+     * Constructs a cursor over rows which have already been found.
+     *
+     * @param found the rows, in the order to visit them
+     */
+    RowCursor(int[] found) {
+      this.rows = null;
+      this.filter = null;
+      this.found = found;
+      this.at = 0;
+      this.row = IntervalTree.NIL;
+    }
+
+    @Override
+    public boolean next() {
+      if (this.found != null) {
+        this.row = this.at < this.found.length ? this.found[this.at] : IntervalTree.NIL;
+        this.at += 1;
+        return this.row != IntervalTree.NIL;
+      }
+      this.row = this.rows.next();
+      while (this.row != IntervalTree.NIL && this.filter != null
+              && !this.filter.accept(notes.start(this.row), notes.end(this.row),
+              notes.instrument(this.row), notes.pitch(this.row), notes.volume(this.row))) {
+        this.row = this.rows.next();
+      }
+      return this.row != IntervalTree.NIL;
+    }
+
+    @Override
+    public int getStartBeat() {
+      return notes.start(this.row);
+    }
+
+    @Override
+    public int getEndBeat() {
+      return notes.end(this.row);
+    }
+
+    @Override
+    public int getInstrument() {
+      return notes.instrument(this.row);
+    }
+
+    @Override
+    public int getPitch() {
+      return notes.pitch(this.row);
+    }
+
+    @Override
+    public int getVolume() {
+      return notes.volume(this.row);
+    }
+
+    @Override
+    public Sound getSound() {
+      return notes.toSound(this.row);
     }
-    return PitchType.values()[pitch % 12];
   }
 
   //Added: to read sound from text files
@@ -451,10 +1401,65 @@ public class MusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>
 
   //Added: to play sound from midi
   @Override
-  public void setTempo(int tempo) {
+  public synchronized void setTempo(int tempo) {
     if (tempo < 0) {
       throw new IllegalArgumentException("Tempo cannot be negative.");
     }
+    if (this.frozen) {
+      throw new UnsupportedOperationException("A snapshot cannot be changed.");
+    }
+    this.snapshot = null;
+    this.record(EditJournal.TEMPO, this.tempo, tempo, 0, 0, 0);
     this.tempo = tempo;
+    if (this.muted == 0) {
+      this.listeners.tempoChanged(tempo);
+    }
+  }
+
+  @Override
+  public int getResolution() {
+    return this.resolution;
+  }
+
+  @Override
+  public synchronized void setResolution(int ticksPerBeat) {
+    if (ticksPerBeat < 1) {
+      throw new IllegalArgumentException("There must be at least one tick per beat.");
+    }
+    if (this.frozen) {
+      throw new UnsupportedOperationException("A snapshot cannot be changed.");
+    }
+    if (!this.pitches.isEmpty()) {
+      throw new IllegalArgumentException("Resolution cannot be changed once there are notes.");
+    }
+    this.snapshot = null;
+    this.resolution = ticksPerBeat;
+    // Measures are counted in ticks of the old resolution.
+    this.hashes = null;
+    this.clearHistory();
+  }
+
+  /**
+   * Returns the first tick of a beat. Also used by the other models in this package.
+   *
+   * @param beat       the beat
+   * @param resolution the number of ticks per beat
+   * @return the first tick of the beat, kept within the range of an int
+   */
+  static int firstTick(int beat, int resolution) {
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE,
+            (long) beat * resolution));
+  }
+
+  /**
+   * Returns the last tick of a beat. Also used by the other models in this package.
+   *
+   * @param beat       the beat
+   * @param resolution the number of ticks per beat
+   * @return the last tick of the beat, kept within the range of an int
+   */
+  static int lastTick(int beat, int resolution) {
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE,
+            (long) beat * resolution + resolution - 1));
   }
 }
@@ -3,11 +3,28 @@ package cs3500.music.model;
 import java.util.Objects;
 
 /**
- * Represents one particular Note. It consists of a pitch and an Octave(0-10).
+ * Represents one particular Note. It consists of a pitch and an Octave(0-10). Notes are
+ * immutable, and there are only as many distinct notes as there are pitch and octave pairs, so
+ * {@link #valueOf(int)} hands out one shared instance per note instead of creating new ones.
  */
 public final class Note implements Comparable<Note> {
-  private PitchType pitch;
-  private OctaveType octave;
+  // Added: one shared Note for each pitch and octave pair, indexed by its integer value.
+  private static final Note[] NOTES = new Note[OctaveType.values().length
+          * PitchType.values().length];
+
+  static {
+    for (OctaveType octave : OctaveType.values()) {
+      for (PitchType pitch : PitchType.values()) {
+        Note note = new Note(pitch, octave);
+        NOTES[note.value] = note;
+      }
+    }
+  }
+
+  private final PitchType pitch;
+  private final OctaveType octave;
+  private final int value;
+  private final String label;
 
   /**
    * Constructs an object of the note. Checks for valid arguments and throws
@@ -21,6 +38,8 @@ public final class Note implements Comparable<Note> {
     this.validOctave(octave);
     this.pitch = pitch;
     this.octave = octave;
+    this.value = (octave.ordinal() * 12) + pitch.ordinal();
+    this.label = this.makeLabel();
   }
 
   /**
@@ -31,6 +50,36 @@ public final class Note implements Comparable<Note> {
   public Note(Note other) {
     this.pitch = other.pitch;
     this.octave = other.octave;
+    this.value = other.value;
+    this.label = other.label;
+  }
+
+  /**
+   * Returns the shared Note with the given integer value, where 60 represents C5 in this
+   * model's octave numbering (middle-C on a piano). No new Note is created.
+   *
+   * @param value the integer value of the note, in the range [0, 131]
+   * @return the note with that value
+   * @throws IllegalArgumentException if the value is out of range
+   */
+  public static Note valueOf(int value) {
+    if (value < 0 || value >= NOTES.length) {
+      throw new IllegalArgumentException("Note value outside of range.");
+    }
+    return NOTES[value];
+  }
+
+  /**
+   * Returns the shared Note with the given pitch and octave. No new Note is created.
+   *
+   * @param pitch  the pitch of the note
+   * @param octave the octave of the note
+   * @return the note with that pitch and octave
+   */
+  public static Note valueOf(PitchType pitch, OctaveType octave) {
+    Objects.requireNonNull(pitch);
+    Objects.requireNonNull(octave);
+    return NOTES[(octave.ordinal() * 12) + pitch.ordinal()];
   }
 
   /**
@@ -102,7 +151,7 @@ public final class Note implements Comparable<Note> {
 
   @Override
   public int hashCode() {
-    return (this.octave.ordinal() * 12) + this.pitch.ordinal();
+    return this.value;
   }
   // Changed hashcode to MIDI's interpretation of a note (0 to 127)
 
@@ -123,6 +172,15 @@ public final class Note implements Comparable<Note> {
 
   @Override
   public String toString() {
+    return this.label;
+  }
+
+  /**
+   * Builds the padded, five character label of this note used when displaying it.
+   *
+   * @return the label of this note
+   */
+  private String makeLabel() {
     String out = this.pitch.toString() + this.octave.toString();
     if (out.length() == 2) {
       out = "  " + out + " ";
@@ -134,6 +192,15 @@ public final class Note implements Comparable<Note> {
     return out;
   }
 
+  /**
+   * Gets the integer value of this Note, which is the same as the MIDI pitch it represents.
+   *
+   * @return the integer value of the note
+   */
+  public int getValue() {
+    return this.value;
+  }
+
   /**
    * Gets a copy the OctaveType of the current Note.
    *
@@ -0,0 +1,471 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The differences between two pieces: the notes added, removed and edited to turn the first into
+ * the second, and whether the tempo changed. A note is known by its start, instrument and pitch,
+ * so a note of the first piece and a note of the second with the same start, instrument and pitch
+ * but a different end or volume are one edited note. Any other change (a note moved to another
+ * beat, pitch or instrument) is a removal and an addition.
+ *
+ * <p>Both pieces are read in a canonical order, by start, instrument, pitch, end and volume, one
+ * start beat at a time. Only the notes of one start beat are sorted at once, so comparing pieces of
+ * n notes takes O(n log n) time, and the changes found are as few as possible: notes equal in both
+ * pieces always cancel out, and an edit is used wherever one can take the place of a removal and
+ * an addition. Changes are listed in the same canonical order.</p>
+ *
+ * <p>Like the sound cursors, only sounds are compared, so notes which last no time at all are
+ * left out.</p>
+ */
+public final class NoteDiff {
+  private static final int ADD = 0;
+  private static final int REMOVE = 1;
+  private static final int EDIT = 2;
+  // Each change is its kind followed by the start, end, instrument, pitch and volume of the note
+  // before the change, then those of the note after it. Unused values are 0.
+  private static final int FIELDS = 11;
+
+  private final int[] changes;
+  private final int size;
+  private final int tempoBefore;
+  private final int tempoAfter;
+
+  /**
+   * Constructs a diff from the changes recorded in a recorder.
+   *
+   * @param recorder the changes, in order
+   */
+  private NoteDiff(Recorder recorder) {
+    this.changes = Arrays.copyOf(recorder.changes, recorder.size * FIELDS);
+    this.size = recorder.size;
+    this.tempoBefore = recorder.tempoBefore;
+    this.tempoAfter = recorder.tempoAfter;
+  }
+
+  /**
+   * Works out the differences between two pieces. Both are read from a snapshot, so either may be
+   * edited while this runs.
+   *
+   * @param before the first piece
+   * @param after  the second piece
+   * @return the changes that turn the first piece into the second
+   * @throws IllegalArgumentException if the pieces have different resolutions
+   */
+  public static NoteDiff between(IMusicModel<?, ?> before, IMusicModel<?, ?> after) {
+    Objects.requireNonNull(before);
+    Objects.requireNonNull(after);
+    Recorder recorder = new Recorder(before.getTempo(), after.getTempo());
+    stream(before.snapshot(), after.snapshot(), recorder);
+    return new NoteDiff(recorder);
+  }
+
+  /**
+   * Works out the differences between two pieces, telling a listener about each change as soon as
+   * it is found rather than collecting them. Only the notes starting on one beat are held at
+   * once, so even pieces too large to keep in memory, such as paged ones, can be compared. Neither
+   * piece may be edited until this returns.
+   *
+   * <p>If the tempos differ, tempoChanged is called first with the tempo of the second piece. Then
+   * each change is passed to noteAdded, noteRemoved or noteEdited, in canonical order. Making the
+   * same calls on the first piece's addNote, removeNote, editNote and setTempo turns it into the
+   * second piece.</p>
+   *
+   * @param before   the first piece
+   * @param after    the second piece
+   * @param listener told about each change
+   * @throws IllegalArgumentException if the pieces have different resolutions
+   */
+  public static void stream(IMusicModel<?, ?> before, IMusicModel<?, ?> after,
+                            ModelListener listener) {
+    Objects.requireNonNull(before);
+    Objects.requireNonNull(after);
+    Objects.requireNonNull(listener);
+    if (before.getResolution() != after.getResolution()) {
+      throw new IllegalArgumentException("Pieces of different resolutions cannot be compared.");
+    }
+    if (before.getTempo() != after.getTempo()) {
+      listener.tempoChanged(after.getTempo());
+    }
+    Side first = new Side(before.getSounds());
+    Side second = new Side(after.getSounds());
+    while (first.hasMore() || second.hasMore()) {
+      int beat = Math.min(first.nextStart(), second.nextStart());
+      first.take(beat);
+      second.take(beat);
+      compare(beat, first, second, listener);
+    }
+  }
+
+  /**
+   * Compares the notes of both pieces starting on one beat, which are sorted in canonical order.
+   * Notes are grouped by instrument and pitch; within a group, equal notes cancel out, and the
+   * notes left over on both sides are paired up as edits, in order, with any left after that
+   * removed or added.
+   *
+   * @param beat     the start beat of the notes
+   * @param first    the notes of the first piece starting on the beat
+   * @param second   the notes of the second piece starting on the beat
+   * @param listener told about each change
+   */
+  private static void compare(int beat, Side first, Side second, ModelListener listener) {
+    long[] a = first.group;
+    long[] b = second.group;
+    int i = 0;
+    int j = 0;
+    while (i < first.size || j < second.size) {
+      long identity = Math.min(i < first.size ? a[i] >>> Side.IDENTITY : Long.MAX_VALUE,
+              j < second.size ? b[j] >>> Side.IDENTITY : Long.MAX_VALUE);
+      int aEnd = i;
+      while (aEnd < first.size && a[aEnd] >>> Side.IDENTITY == identity) {
+        aEnd += 1;
+      }
+      int bEnd = j;
+      while (bEnd < second.size && b[bEnd] >>> Side.IDENTITY == identity) {
+        bEnd += 1;
+      }
+      // Both runs are sorted, so equal notes are found by merging them. What is left of each run
+      // is moved to its front, still in order.
+      int aLeft = i;
+      int bLeft = j;
+      int x = i;
+      int y = j;
+      while (x < aEnd || y < bEnd) {
+        if (y == bEnd || (x < aEnd && a[x] < b[y])) {
+          a[aLeft] = a[x];
+          aLeft += 1;
+          x += 1;
+        } else if (x == aEnd || b[y] < a[x]) {
+          b[bLeft] = b[y];
+          bLeft += 1;
+          y += 1;
+        } else {
+          x += 1;
+          y += 1;
+        }
+      }
+      int edits = Math.min(aLeft - i, bLeft - j);
+      for (int k = 0; k < edits; k += 1) {
+        long from = a[i + k];
+        long to = b[j + k];
+        listener.noteEdited(beat, Side.end(from), Side.instrument(from), Side.pitch(from),
+                Side.volume(from), beat, Side.end(to), Side.instrument(to), Side.pitch(to),
+                Side.volume(to));
+      }
+      for (int k = i + edits; k < aLeft; k += 1) {
+        listener.noteRemoved(beat, Side.end(a[k]), Side.instrument(a[k]), Side.pitch(a[k]),
+                Side.volume(a[k]));
+      }
+      for (int k = j + edits; k < bLeft; k += 1) {
+        listener.noteAdded(beat, Side.end(b[k]), Side.instrument(b[k]), Side.pitch(b[k]),
+                Side.volume(b[k]));
+      }
+      i = aEnd;
+      j = bEnd;
+    }
+  }
+
+  /**
+   * Returns the number of notes added.
+   *
+   * @return the number of notes only in the second piece
+   */
+  public int getAddedCount() {
+    return this.count(ADD);
+  }
+
+  /**
+   * Returns the number of notes removed.
+   *
+   * @return the number of notes only in the first piece
+   */
+  public int getRemovedCount() {
+    return this.count(REMOVE);
+  }
+
+  /**
+   * Returns the number of notes edited.
+   *
+   * @return the number of notes whose end or volume differs between the pieces
+   */
+  public int getEditedCount() {
+    return this.count(EDIT);
+  }
+
+  /**
+   * Counts the changes of one kind.
+   *
+   * @param kind the kind of change
+   * @return how many of the changes are of that kind
+   */
+  private int count(int kind) {
+    int count = 0;
+    for (int i = 0; i < this.size; i += 1) {
+      if (this.changes[i * FIELDS] == kind) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns whether the pieces are the same.
+   *
+   * @return true if no note was changed and the tempos are equal
+   */
+  public boolean isEmpty() {
+    return this.size == 0 && this.tempoBefore == this.tempoAfter;
+  }
+
+  /**
+   * Tells a listener about every change, just as stream would have.
+   *
+   * @param listener told about each change
+   */
+  public void replay(ModelListener listener) {
+    Objects.requireNonNull(listener);
+    if (this.tempoBefore != this.tempoAfter) {
+      listener.tempoChanged(this.tempoAfter);
+    }
+    int[] v = this.changes;
+    for (int i = 0; i < this.size * FIELDS; i += FIELDS) {
+      if (v[i] == ADD) {
+        listener.noteAdded(v[i + 6], v[i + 7], v[i + 8], v[i + 9], v[i + 10]);
+      } else if (v[i] == REMOVE) {
+        listener.noteRemoved(v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5]);
+      } else {
+        listener.noteEdited(v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5], v[i + 6],
+                v[i + 7], v[i + 8], v[i + 9], v[i + 10]);
+      }
+    }
+  }
+
+  /**
+   * Makes every change to a piece holding the notes of the first piece, so that it holds those of
+   * the second. Each change is made as a separate edit.
+   *
+   * @param model the piece to change
+   */
+  public void applyTo(IMusicModel<?, ?> model) {
+    Objects.requireNonNull(model);
+    this.replay(new ModelListener() {
+      @Override
+      public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+        model.addNote(start, end, instrument, pitch, volume);
+      }
+
+      @Override
+      public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+        model.removeNote(start, end, instrument, pitch, volume);
+      }
+
+      @Override
+      public void noteEdited(int startSource, int endSource, int instrumentSource,
+                             int pitchSource, int volumeSource, int startDest, int endDest,
+                             int instrumentDest, int pitchDest, int volumeDest) {
+        model.editNote(startSource, endSource, instrumentSource, pitchSource, volumeSource,
+                startDest, endDest, instrumentDest, pitchDest, volumeDest);
+      }
+
+      @Override
+      public void tempoChanged(int tempo) {
+        model.setTempo(tempo);
+      }
+    });
+  }
+
+  /**
+   * Lists the changes one per line: "+" and the note for an addition, "-" and the note for a
+   * removal, and "~" and the note before and after for an edit, each note written as
+   * start-end instrument pitch volume. A changed tempo comes first.
+   *
+   * @return the changes as text
+   */
+  @Override
+  public String toString() {
+    StringBuilder out = new StringBuilder();
+    this.replay(new ModelListener() {
+      @Override
+      public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+        out.append("+ " + start + "-" + end + " " + instrument + " " + pitch + " " + volume
+                + "\n");
+      }
+
+      @Override
+      public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+        out.append("- " + start + "-" + end + " " + instrument + " " + pitch + " " + volume
+                + "\n");
+      }
+
+      @Override
+      public void noteEdited(int startSource, int endSource, int instrumentSource,
+                             int pitchSource, int volumeSource, int startDest, int endDest,
+                             int instrumentDest, int pitchDest, int volumeDest) {
+        out.append("~ " + startSource + "-" + endSource + " " + instrumentSource + " "
+                + pitchSource + " " + volumeSource + " to " + startDest + "-" + endDest + " "
+                + instrumentDest + " " + pitchDest + " " + volumeDest + "\n");
+      }
+
+      @Override
+      public void tempoChanged(int tempo) {
+        out.append("tempo " + tempo + "\n");
+      }
+    });
+    return out.toString();
+  }
+
+  /**
+   * One of the pieces being compared, read one start beat at a time.
+   */
+  private static final class Side {
+    // Notes starting on the same beat are packed into longs which sort in canonical order: the
+    // instrument, the pitch, the end and the volume, from the highest bits down. Shifting a note
+    // right by this leaves its instrument and pitch.
+    static final int IDENTITY = 39;
+
+    private final SoundCursor cursor;
+    private boolean more;
+    private long[] group;
+    private int size;
+
+    /**
+     * Constructs a side reading from a cursor.
+     *
+     * @param cursor the notes of the piece, ordered by start beat
+     */
+    Side(SoundCursor cursor) {
+      this.cursor = cursor;
+      this.more = cursor.next();
+      this.group = new long[16];
+      this.size = 0;
+    }
+
+    /**
+     * Returns whether any notes are left to take.
+     */
+    boolean hasMore() {
+      return this.more;
+    }
+
+    /**
+     * Returns the start beat of the next note to take, or the largest int if there is none.
+     */
+    int nextStart() {
+      return this.more ? this.cursor.getStartBeat() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Takes every note starting on a beat, replacing the last group taken, and sorts them.
+     *
+     * @param beat the start beat, which no note left to take starts before
+     */
+    void take(int beat) {
+      this.size = 0;
+      while (this.more && this.cursor.getStartBeat() == beat) {
+        if (this.size == this.group.length) {
+          this.group = Arrays.copyOf(this.group, this.size * 2);
+        }
+        this.group[this.size] = (long) this.cursor.getInstrument() << 46
+                | (long) this.cursor.getPitch() << IDENTITY
+                | (long) this.cursor.getEndBeat() << 7 | this.cursor.getVolume();
+        this.size += 1;
+        this.more = this.cursor.next();
+      }
+      Arrays.sort(this.group, 0, this.size);
+    }
+
+    /**
+     * Returns the end of a packed note.
+     */
+    static int end(long note) {
+      return (int) (note >>> 7) & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the instrument of a packed note.
+     */
+    static int instrument(long note) {
+      return (int) (note >>> 46);
+    }
+
+    /**
+     * Returns the pitch of a packed note.
+     */
+    static int pitch(long note) {
+      return (int) (note >>> IDENTITY) & 127;
+    }
+
+    /**
+     * Returns the volume of a packed note.
+     */
+    static int volume(long note) {
+      return (int) note & 127;
+    }
+  }
+
+  /**
+   * Collects the changes found while comparing two pieces.
+   */
+  private static final class Recorder implements ModelListener {
+    private final int tempoBefore;
+    private final int tempoAfter;
+    private int[] changes;
+    private int size;
+
+    /**
+     * Constructs a recorder with no changes.
+     *
+     * @param tempoBefore the tempo of the first piece
+     * @param tempoAfter  the tempo of the second piece
+     */
+    Recorder(int tempoBefore, int tempoAfter) {
+      this.tempoBefore = tempoBefore;
+      this.tempoAfter = tempoAfter;
+      this.changes = new int[64 * FIELDS];
+      this.size = 0;
+    }
+
+    /**
+     * Records a change.
+     */
+    private void keep(int kind, int s0, int e0, int i0, int p0, int v0, int s1, int e1, int i1,
+                      int p1, int v1) {
+      if ((this.size + 1) * FIELDS > this.changes.length) {
+        this.changes = Arrays.copyOf(this.changes, this.changes.length * 2);
+      }
+      int[] v = this.changes;
+      int at = this.size * FIELDS;
+      v[at] = kind;
+      v[at + 1] = s0;
+      v[at + 2] = e0;
+      v[at + 3] = i0;
+      v[at + 4] = p0;
+      v[at + 5] = v0;
+      v[at + 6] = s1;
+      v[at + 7] = e1;
+      v[at + 8] = i1;
+      v[at + 9] = p1;
+      v[at + 10] = v1;
+      this.size += 1;
+    }
+
+    @Override
+    public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+      this.keep(ADD, 0, 0, 0, 0, 0, start, end, instrument, pitch, volume);
+    }
+
+    @Override
+    public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+      this.keep(REMOVE, start, end, instrument, pitch, volume, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void noteEdited(int startSource, int endSource, int instrumentSource, int pitchSource,
+                           int volumeSource, int startDest, int endDest, int instrumentDest,
+                           int pitchDest, int volumeDest) {
+      this.keep(EDIT, startSource, endSource, instrumentSource, pitchSource, volumeSource,
+              startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package cs3500.music.model;
+
+/**
+ * Picks which notes a region transform applies to. Filters are given a note's values directly,
+ * so that testing a note allocates nothing.
+ */
+public interface NoteFilter {
+
+  /**
+   * A filter which accepts every note.
+   */
+  NoteFilter ALL = (start, end, instrument, pitch, volume) -> true;
+
+  /**
+   * Decides whether a note should be transformed.
+   *
+   * @param start      The start time of the note, in ticks
+   * @param end        The end time of the note, in ticks
+   * @param instrument The instrument number (to be interpreted by MIDI)
+   * @param pitch      The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
+   *                   piano)
+   * @param volume     The volume (in the range [0, 127])
+   * @return true if the note should be transformed
+   */
+  boolean accept(int start, int end, int instrument, int pitch, int volume);
+
+  /**
+   * Returns a filter which accepts the notes this filter and the given one both accept.
+   *
+   * @param other the other filter
+   * @return a filter accepting notes only both filters accept
+   */
+  default NoteFilter and(NoteFilter other) {
+    return (start, end, instrument, pitch, volume) ->
+            this.accept(start, end, instrument, pitch, volume)
+                    && other.accept(start, end, instrument, pitch, volume);
+  }
+
+  /**
+   * Returns a filter which accepts notes whose pitch is within the given range.
+   *
+   * @param lowest  the lowest pitch to accept (inclusive)
+   * @param highest the highest pitch to accept (inclusive)
+   * @return a filter on pitch
+   */
+  static NoteFilter pitches(int lowest, int highest) {
+    return (start, end, instrument, pitch, volume) -> pitch >= lowest && pitch <= highest;
+  }
+
+  /**
+   * Returns a filter which accepts notes played on the given instrument.
+   *
+   * @param instrument the instrument number to accept
+   * @return a filter on instrument
+   */
+  static NoteFilter instrument(int instrument) {
+    return (start, end, i, pitch, volume) -> i == instrument;
+  }
+}
@@ -0,0 +1,140 @@
+package cs3500.music.model;
+
+/**
+ * An immutable description of which notes to look up in a model: those on one instrument, within
+ * a range of pitches, within a range of volumes, and playing within a range of beats. Queries are
+ * built up from ALL, each call returning a new query which also narrows the notes by the given
+ * condition:
+ *
+ * <pre>
+ *   SoundCursor c = model.query(NoteQuery.ALL.instrument(3).pitches(60, 79));
+ * </pre>
+ *
+ * <p>Because a model can see which conditions a query has, it can use its indexes to find the
+ * notes rather than looking at every note. A query is also a NoteFilter, so the notes it finds can
+ * be handed straight to transformNotes.</p>
+ */
+public final class NoteQuery implements NoteFilter {
+
+  /**
+   * The query which finds every note.
+   */
+  public static final NoteQuery ALL = new NoteQuery(-1, 0, 127, 0, 127, 0, Integer.MAX_VALUE);
+
+  // The instrument notes must be on, or -1 for any instrument.
+  private final int instrument;
+  private final int lowestPitch;
+  private final int highestPitch;
+  private final int lowestVolume;
+  private final int highestVolume;
+  private final int firstBeat;
+  private final int lastBeat;
+
+  /**
+   * Constructs a query.
+   */
+  private NoteQuery(int instrument, int lowestPitch, int highestPitch, int lowestVolume,
+                    int highestVolume, int firstBeat, int lastBeat) {
+    this.instrument = instrument;
+    this.lowestPitch = lowestPitch;
+    this.highestPitch = highestPitch;
+    this.lowestVolume = lowestVolume;
+    this.highestVolume = highestVolume;
+    this.firstBeat = firstBeat;
+    this.lastBeat = lastBeat;
+  }
+
+  /**
+   * Returns a query which also only finds notes played on the given instrument.
+   *
+   * @param instrument the instrument number, in the range [0, 127]
+   * @return the new query
+   * @throws IllegalArgumentException if the instrument is out of range
+   */
+  public NoteQuery instrument(int instrument) {
+    if (instrument < 0 || instrument > 127) {
+      throw new IllegalArgumentException("Instrument value cannot be outside range [0, 127].");
+    }
+    return new NoteQuery(instrument, this.lowestPitch, this.highestPitch, this.lowestVolume,
+            this.highestVolume, this.firstBeat, this.lastBeat);
+  }
+
+  /**
+   * Returns a query which also only finds notes whose pitch is within the given range.
+   *
+   * @param lowest  the lowest pitch to find (inclusive)
+   * @param highest the highest pitch to find (inclusive)
+   * @return the new query
+   * @throws IllegalArgumentException if lowest is above highest
+   */
+  public NoteQuery pitches(int lowest, int highest) {
+    if (highest < lowest) {
+      throw new IllegalArgumentException("Lowest pitch cannot be above the highest pitch.");
+    }
+    return new NoteQuery(this.instrument, Math.max(0, lowest), Math.min(127, highest),
+            this.lowestVolume, this.highestVolume, this.firstBeat, this.lastBeat);
+  }
+
+  /**
+   * Returns a query which also only finds notes whose volume is within the given range.
+   *
+   * @param lowest  the lowest volume to find (inclusive)
+   * @param highest the highest volume to find (inclusive)
+   * @return the new query
+   * @throws IllegalArgumentException if lowest is above highest
+   */
+  public NoteQuery volumes(int lowest, int highest) {
+    if (highest < lowest) {
+      throw new IllegalArgumentException("Lowest volume cannot be above the highest volume.");
+    }
+    return new NoteQuery(this.instrument, this.lowestPitch, this.highestPitch,
+            Math.max(0, lowest), Math.min(127, highest), this.firstBeat, this.lastBeat);
+  }
+
+  /**
+   * Returns a query which also only finds notes playing at some beat within [start, end].
+   *
+   * @param start the first beat of the range (inclusive)
+   * @param end   the last beat of the range (inclusive)
+   * @return the new query
+   * @throws IllegalArgumentException if end is before start
+   */
+  public NoteQuery beats(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    return new NoteQuery(this.instrument, this.lowestPitch, this.highestPitch,
+            this.lowestVolume, this.highestVolume, start, end);
+  }
+
+  @Override
+  public boolean accept(int start, int end, int instrument, int pitch, int volume) {
+    return (this.instrument < 0 || instrument == this.instrument)
+            && pitch >= this.lowestPitch && pitch <= this.highestPitch
+            && volume >= this.lowestVolume && volume <= this.highestVolume
+            && start <= this.lastBeat && end > this.firstBeat;
+  }
+
+  /**
+   * Returns the instrument notes must be on, or -1 if they may be on any instrument.
+   */
+  int getInstrument() {
+    return this.instrument;
+  }
+
+  int getLowestPitch() {
+    return this.lowestPitch;
+  }
+
+  int getHighestPitch() {
+    return this.highestPitch;
+  }
+
+  int getFirstBeat() {
+    return this.firstBeat;
+  }
+
+  int getLastBeat() {
+    return this.lastBeat;
+  }
+}
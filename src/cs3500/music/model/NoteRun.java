@@ -0,0 +1,111 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * The notes of a piece as parallel columns, ordered by start beat. Runs are what pieces are
+ * combined through: each piece is read once into a run, and runs are merged in linear time rather
+ * than adding notes to a model one at a time.
+ */
+final class NoteRun {
+  final int[] starts;
+  final int[] ends;
+  final int[] instruments;
+  final int[] pitches;
+  final int[] volumes;
+
+  /**
+   * Reads every sound a cursor gives into a run, moving each later by the given number of beats.
+   *
+   * @param sounds a cursor over sounds ordered by start beat
+   * @param offset how many beats to move every sound by
+   */
+  NoteRun(SoundCursor sounds, int offset) {
+    int[] s = new int[16];
+    int[] e = new int[16];
+    int[] in = new int[16];
+    int[] p = new int[16];
+    int[] v = new int[16];
+    int count = 0;
+    while (sounds.next()) {
+      if (count == s.length) {
+        s = Arrays.copyOf(s, count * 2);
+        e = Arrays.copyOf(e, count * 2);
+        in = Arrays.copyOf(in, count * 2);
+        p = Arrays.copyOf(p, count * 2);
+        v = Arrays.copyOf(v, count * 2);
+      }
+      s[count] = sounds.getStartBeat() + offset;
+      e[count] = sounds.getEndBeat() + offset;
+      in[count] = sounds.getInstrument();
+      p[count] = sounds.getPitch();
+      v[count] = sounds.getVolume();
+      count += 1;
+    }
+    this.starts = Arrays.copyOf(s, count);
+    this.ends = Arrays.copyOf(e, count);
+    this.instruments = Arrays.copyOf(in, count);
+    this.pitches = Arrays.copyOf(p, count);
+    this.volumes = Arrays.copyOf(v, count);
+  }
+
+  /**
+   * Merges two runs into one, still ordered by start beat. Notes starting on the same beat keep
+   * their order, with those of the first run coming first.
+   *
+   * @param first  the run whose notes come first on a tie
+   * @param second the other run
+   */
+  NoteRun(NoteRun first, NoteRun second) {
+    int count = first.size() + second.size();
+    this.starts = new int[count];
+    this.ends = new int[count];
+    this.instruments = new int[count];
+    this.pitches = new int[count];
+    this.volumes = new int[count];
+    int a = 0;
+    int b = 0;
+    for (int i = 0; i < count; i += 1) {
+      if (b == second.size() || (a < first.size() && first.starts[a] <= second.starts[b])) {
+        this.copy(i, first, a);
+        a += 1;
+      } else {
+        this.copy(i, second, b);
+        b += 1;
+      }
+    }
+  }
+
+  /**
+   * Copies one note from a run into this run.
+   *
+   * @param to   where in this run to put the note
+   * @param from the run to copy from
+   * @param i    which note of that run to copy
+   */
+  private void copy(int to, NoteRun from, int i) {
+    this.starts[to] = from.starts[i];
+    this.ends[to] = from.ends[i];
+    this.instruments[to] = from.instruments[i];
+    this.pitches[to] = from.pitches[i];
+    this.volumes[to] = from.volumes[i];
+  }
+
+  /**
+   * Returns the number of notes in this run.
+   *
+   * @return the number of notes
+   */
+  int size() {
+    return this.starts.length;
+  }
+
+  /**
+   * Adds every note of this run to a model, all at once.
+   *
+   * @param model the model to add the notes to
+   */
+  void addTo(IMusicModel<?, ?> model) {
+    model.addNotes(this.starts, this.ends, this.instruments, this.pitches, this.volumes);
+  }
+}
@@ -0,0 +1,278 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Figures about the sounds of a piece: how many there are on each pitch and each instrument, how
+ * many are playing at each tick, the most that play at once, how long they last in total, and
+ * summaries of the sounds starting in any range of ticks. A model keeps its statistics up to date
+ * as it is edited, so reading any of them takes constant time, apart from the count at one tick
+ * and the summary of a range, which take time proportional to the log of the number of ticks.
+ *
+ * <p>Only sounds are counted, so notes which last no time at all are left out. Statistics read
+ * from a model are only valid until the model is next modified.</p>
+ */
+public final class NoteStatistics {
+  // Below this many notes, counting them again is not worth splitting across threads.
+  private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+  private int count;
+  private long totalDuration;
+  private final int[] byPitch;
+  private final int[] byInstrument;
+  private final PolyphonyTree playing;
+  // Added: the notes by start time and volume, to sum up ranges of ticks.
+  private final OnsetTree onsets;
+
+  /**
+   * Constructs statistics for a piece with no sounds.
+   */
+  NoteStatistics() {
+    this(new PolyphonyTree(), new OnsetTree());
+  }
+
+  /**
+   * Constructs statistics with no sounds counted but those already in the given trees.
+   *
+   * @param playing how many sounds are playing at each tick
+   * @param onsets  the sounds starting at each tick
+   */
+  private NoteStatistics(PolyphonyTree playing, OnsetTree onsets) {
+    this.count = 0;
+    this.totalDuration = 0;
+    this.byPitch = new int[128];
+    this.byInstrument = new int[128];
+    this.playing = playing;
+    this.onsets = onsets;
+  }
+
+  /**
+   * Constructs a copy of the given statistics.
+   *
+   * @param other the statistics to copy
+   */
+  NoteStatistics(NoteStatistics other) {
+    this.count = other.count;
+    this.totalDuration = other.totalDuration;
+    this.byPitch = other.byPitch.clone();
+    this.byInstrument = other.byInstrument.clone();
+    this.playing = new PolyphonyTree(other.playing);
+    this.onsets = new OnsetTree(other.onsets);
+  }
+
+  /**
+   * Works out the statistics of every live row of a table from scratch. Large tables are split
+   * into chunks counted on separate threads, and the beats at which notes start and stop are
+   * sorted in parallel.
+   *
+   * @param table the notes to count
+   * @return the statistics of the notes
+   */
+  static NoteStatistics of(NoteTable table) {
+    int[] rows = new int[table.rows()];
+    int live = 0;
+    for (int row = 0; row < table.rows(); row += 1) {
+      if (!table.isDead(row)) {
+        rows[live] = row;
+        live += 1;
+      }
+    }
+    int size = live;
+    boolean parallel = size >= PARALLEL_THRESHOLD;
+    int chunks = parallel ? Runtime.getRuntime().availableProcessors() : 1;
+
+    NoteStatistics[] parts = new NoteStatistics[chunks];
+    // Each note starts one beat of a run and ends another, packed as (beat, +1 or -1) into a long.
+    long[] changes = new long[size * 2];
+    long[] starts = new long[size];
+    IntStream indexes = IntStream.range(0, chunks);
+    (parallel ? indexes.parallel() : indexes).forEach(chunk -> {
+      NoteStatistics part = new NoteStatistics();
+      for (int i = (int) ((long) size * chunk / chunks);
+           i < (int) ((long) size * (chunk + 1) / chunks); i += 1) {
+        int row = rows[i];
+        int start = table.start(row);
+        int end = table.end(row);
+        part.count += 1;
+        part.totalDuration += end - start;
+        part.byPitch[table.pitch(row)] += 1;
+        part.byInstrument[table.instrument(row)] += 1;
+        changes[i * 2] = ((long) start << 1) | 1;
+        changes[i * 2 + 1] = (long) end << 1;
+        starts[i] = (long) start << 7 | table.volume(row);
+      }
+      parts[chunk] = part;
+    });
+    if (parallel) {
+      Arrays.parallelSort(changes);
+      Arrays.parallelSort(starts);
+    } else {
+      Arrays.sort(changes);
+      Arrays.sort(starts);
+    }
+
+    // Sweeping the sorted changes gives the runs of beats with the same count, from which the
+    // tree is built directly.
+    int[] runs = new int[16];
+    int used = 2;
+    int playing = 0;
+    for (int i = 0; i < changes.length; i += 1) {
+      playing += (changes[i] & 1) == 1 ? 1 : -1;
+      int beat = (int) (changes[i] >> 1);
+      if (i + 1 < changes.length && (int) (changes[i + 1] >> 1) == beat) {
+        continue;
+      }
+      if (runs[used - 2] == beat) {
+        // Only notes starting at beat 0 can reach here, replacing the run of silence before them.
+        runs[used - 1] = playing;
+      } else if (playing != runs[used - 1]) {
+        if (used + 2 > runs.length) {
+          runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        runs[used] = beat;
+        runs[used + 1] = playing;
+        used += 2;
+      }
+    }
+
+    NoteStatistics all = new NoteStatistics(new PolyphonyTree(runs, used), new OnsetTree(starts));
+    for (NoteStatistics part : parts) {
+      all.count += part.count;
+      all.totalDuration += part.totalDuration;
+      for (int i = 0; i < 128; i += 1) {
+        all.byPitch[i] += part.byPitch[i];
+        all.byInstrument[i] += part.byInstrument[i];
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Counts a sound added to the piece.
+   */
+  void add(int start, int end, int instrument, int pitch, int volume) {
+    this.count += 1;
+    this.totalDuration += end - start;
+    this.byPitch[pitch] += 1;
+    this.byInstrument[instrument] += 1;
+    this.playing.add(start, end, 1);
+    this.onsets.add(start, volume);
+  }
+
+  /**
+   * Counts a sound removed from the piece.
+   */
+  void remove(int start, int end, int instrument, int pitch, int volume) {
+    this.count -= 1;
+    this.totalDuration -= end - start;
+    this.byPitch[pitch] -= 1;
+    this.byInstrument[instrument] -= 1;
+    this.playing.add(start, end, -1);
+    this.onsets.remove(start, volume);
+  }
+
+  /**
+   * Returns the number of sounds in the piece.
+   *
+   * @return the number of sounds
+   */
+  public int getNoteCount() {
+    return this.count;
+  }
+
+  /**
+   * Returns the sum of the lengths of every sound in the piece.
+   *
+   * @return the total length of the sounds, in ticks
+   */
+  public long getTotalDuration() {
+    return this.totalDuration;
+  }
+
+  /**
+   * Returns the number of sounds on a pitch.
+   *
+   * @param pitch the pitch, in the range [0, 127]
+   * @return the number of sounds on that pitch
+   * @throws IllegalArgumentException if the pitch is out of range
+   */
+  public int getPitchCount(int pitch) {
+    if (pitch < 0 || pitch > 127) {
+      throw new IllegalArgumentException("Pitch value cannot be outside range [0, 127].");
+    }
+    return this.byPitch[pitch];
+  }
+
+  /**
+   * Returns the number of sounds played on an instrument.
+   *
+   * @param instrument the instrument number, in the range [0, 127]
+   * @return the number of sounds on that instrument
+   * @throws IllegalArgumentException if the instrument is out of range
+   */
+  public int getInstrumentCount(int instrument) {
+    if (instrument < 0 || instrument > 127) {
+      throw new IllegalArgumentException("Instrument value cannot be outside range [0, 127].");
+    }
+    return this.byInstrument[instrument];
+  }
+
+  /**
+   * Returns the number of sounds playing at a tick.
+   *
+   * @param beat the tick
+   * @return the number of sounds playing at that tick
+   */
+  public int getPlayingAt(int beat) {
+    return this.playing.at(beat);
+  }
+
+  /**
+   * Returns the largest number of sounds playing at any one tick.
+   *
+   * @return the most sounds playing at once
+   */
+  public int getMaxPolyphony() {
+    return this.playing.max();
+  }
+
+  /**
+   * Sums up the sounds starting within a range of ticks, in time proportional to the log of the
+   * number of ticks.
+   *
+   * @param start the first tick (inclusive)
+   * @param end   the last tick (inclusive)
+   * @return a summary of the sounds starting in the range
+   * @throws IllegalArgumentException if end is before start
+   */
+  public RangeSummary summarize(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    return this.onsets.summarize(start, end);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof NoteStatistics)) {
+      return false;
+    }
+    NoteStatistics that = (NoteStatistics) other;
+    return this.count == that.count && this.totalDuration == that.totalDuration
+            && Arrays.equals(this.byPitch, that.byPitch)
+            && Arrays.equals(this.byInstrument, that.byInstrument)
+            && Arrays.equals(this.playing.runs(), that.playing.runs())
+            && Arrays.equals(this.onsets.keys(), that.onsets.keys());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.count, this.totalDuration, Arrays.hashCode(this.byPitch),
+            Arrays.hashCode(this.byInstrument));
+  }
+}
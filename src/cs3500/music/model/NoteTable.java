@@ -0,0 +1,242 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage for the notes of a piece. Rather than one Sound object (holding a Note object,
+ * holding two enum references) per note, every note is a row spread across parallel primitive
+ * arrays: start and end beats as ints, and instrument, pitch and volume as bytes, since MIDI limits
+ * them to [0, 127]. Rows are handed out in the order notes are added, so a row number doubles as
+ * the note's insertion order. Removed rows are marked dead rather than moved, so that row numbers
+ * held by indexes stay valid, until enough of them pile up that the table is worth compacting.
+ */
+final class NoteTable {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int MIN_ROWS_TO_COMPACT = 32;
+
+  private int[] start;
+  private int[] end;
+  private byte[] instrument;
+  private byte[] pitch;
+  private byte[] volume;
+  private boolean[] dead;
+  private int rows;
+  private int liveRows;
+
+  /**
+   * Constructs a new, empty table.
+   */
+  NoteTable() {
+    this.start = new int[INITIAL_CAPACITY];
+    this.end = new int[INITIAL_CAPACITY];
+    this.instrument = new byte[INITIAL_CAPACITY];
+    this.pitch = new byte[INITIAL_CAPACITY];
+    this.volume = new byte[INITIAL_CAPACITY];
+    this.dead = new boolean[INITIAL_CAPACITY];
+    this.rows = 0;
+    this.liveRows = 0;
+  }
+
+  /**
+   * Constructs a copy of the given table, with its own columns.
+   *
+   * @param other the table to copy
+   */
+  NoteTable(NoteTable other) {
+    this.start = other.start.clone();
+    this.end = other.end.clone();
+    this.instrument = other.instrument.clone();
+    this.pitch = other.pitch.clone();
+    this.volume = other.volume.clone();
+    this.dead = other.dead.clone();
+    this.rows = other.rows;
+    this.liveRows = other.liveRows;
+  }
+
+  /**
+   * Appends a note to the table. The values are expected to have been validated already.
+   *
+   * @param start      The start time of the note, in ticks
+   * @param end        The end time of the note, in ticks
+   * @param instrument The instrument number, in the range [0, 127]
+   * @param pitch      The pitch, in the range [0, 127]
+   * @param volume     The volume, in the range [0, 127]
+   * @return the row number of the new note
+   */
+  int add(int start, int end, int instrument, int pitch, int volume) {
+    if (this.rows == this.start.length) {
+      this.grow();
+    }
+    int row = this.rows;
+    this.start[row] = start;
+    this.end[row] = end;
+    this.instrument[row] = (byte) instrument;
+    this.pitch[row] = (byte) pitch;
+    this.volume[row] = (byte) volume;
+    this.dead[row] = false;
+    this.rows += 1;
+    this.liveRows += 1;
+    return row;
+  }
+
+  /**
+   * Makes sure at least the given number of further rows can be added without the columns
+   * having to grow again.
+   *
+   * @param extra the number of rows about to be added
+   */
+  void ensureCapacity(int extra) {
+    if (this.rows + extra > this.start.length) {
+      this.resize(this.rows + extra);
+    }
+  }
+
+  /**
+   * Marks a row as removed.
+   *
+   * @param row the row of the note to remove
+   */
+  void kill(int row) {
+    if (!this.dead[row]) {
+      this.dead[row] = true;
+      this.liveRows -= 1;
+    }
+  }
+
+  /**
+   * Grows every column by half again its current size.
+   */
+  private void grow() {
+    this.resize(this.start.length + (this.start.length >> 1));
+  }
+
+  /**
+   * Copies every column into arrays of the given size.
+   *
+   * @param capacity the new capacity, which must be at least the number of rows in use
+   */
+  private void resize(int capacity) {
+    this.start = Arrays.copyOf(this.start, capacity);
+    this.end = Arrays.copyOf(this.end, capacity);
+    this.instrument = Arrays.copyOf(this.instrument, capacity);
+    this.pitch = Arrays.copyOf(this.pitch, capacity);
+    this.volume = Arrays.copyOf(this.volume, capacity);
+    this.dead = Arrays.copyOf(this.dead, capacity);
+  }
+
+  /**
+   * Is at least half of the table made of removed rows, and is the table big enough for that to
+   * matter.
+   *
+   * @return true if the table should be compacted
+   */
+  boolean needsCompacting() {
+    return this.rows >= MIN_ROWS_TO_COMPACT && this.liveRows <= this.rows / 2;
+  }
+
+  /**
+   * Slides every live row down over the removed ones, keeping them in the same relative order, and
+   * shrinks the columns to fit. Row numbers change, so every index over this table must be rebuilt
+   * using the returned mapping.
+   *
+   * @return an array which maps each old row number to its new one, or to -1 if it was removed
+   */
+  int[] compact() {
+    int[] newRows = new int[this.rows];
+    int next = 0;
+    for (int row = 0; row < this.rows; row += 1) {
+      if (this.dead[row]) {
+        newRows[row] = -1;
+      } else {
+        this.start[next] = this.start[row];
+        this.end[next] = this.end[row];
+        this.instrument[next] = this.instrument[row];
+        this.pitch[next] = this.pitch[row];
+        this.volume[next] = this.volume[row];
+        this.dead[next] = false;
+        newRows[row] = next;
+        next += 1;
+      }
+    }
+    this.rows = next;
+    this.resize(Math.max(INITIAL_CAPACITY, next + (next >> 1)));
+    return newRows;
+  }
+
+  /**
+   * Returns the number of rows ever handed out, including removed ones. Every valid row number is
+   * below this value.
+   *
+   * @return the number of rows in use
+   */
+  int rows() {
+    return this.rows;
+  }
+
+  /**
+   * Returns the number of rows that have not been removed.
+   *
+   * @return the number of notes in the table
+   */
+  int size() {
+    return this.liveRows;
+  }
+
+  /**
+   * Returns the current capacity of the columns.
+   *
+   * @return the number of rows that fit before the columns must grow
+   */
+  int capacity() {
+    return this.start.length;
+  }
+
+  boolean isDead(int row) {
+    return this.dead[row];
+  }
+
+  int start(int row) {
+    return this.start[row];
+  }
+
+  int end(int row) {
+    return this.end[row];
+  }
+
+  int instrument(int row) {
+    return this.instrument[row];
+  }
+
+  int pitch(int row) {
+    return this.pitch[row];
+  }
+
+  int volume(int row) {
+    return this.volume[row];
+  }
+
+  /**
+   * Checks whether a row holds exactly the given note.
+   *
+   * @return true if the row is live and every field matches
+   */
+  boolean matches(int row, int start, int end, int instrument, int pitch, int volume) {
+    return !this.dead[row]
+            && this.start[row] == start
+            && this.end[row] == end
+            && this.instrument[row] == instrument
+            && this.pitch[row] == pitch
+            && this.volume[row] == volume;
+  }
+
+  /**
+   * Builds a Sound object for the given row, for callers that need one.
+   *
+   * @param row the row of the note
+   * @return a new Sound with the same values as the row, sharing the row's Note
+   */
+  Sound toSound(int row) {
+    return new Sound(Note.valueOf(this.pitch[row]), this.start[row],
+            this.end[row] - this.start[row] + 1, this.instrument[row], this.volume[row]);
+  }
+}
@@ -0,0 +1,131 @@
+package cs3500.music.model;
+
+/**
+ * An immutable change to apply to every note in a region: transposing, moving in time, changing
+ * volume and changing instrument. Transforms are built up from IDENTITY, each call returning a new
+ * transform which also makes the given change after the ones before it:
+ *
+ * <pre>
+ *   model.transformNotes(16, 31, NoteFilter.ALL, NoteTransform.IDENTITY.transpose(12).shift(4));
+ * </pre>
+ */
+public final class NoteTransform {
+
+  /**
+   * The transform which leaves every note as it is.
+   */
+  public static final NoteTransform IDENTITY = new NoteTransform(0, 0, 1.0, 0.0, -1);
+
+  private final int semitones;
+  private final int beats;
+  private final double volumeScale;
+  private final double volumeOffset;
+  // The instrument to move notes to, or -1 to keep each note's own.
+  private final int instrument;
+
+  /**
+   * Constructs a transform.
+   */
+  private NoteTransform(int semitones, int beats, double volumeScale, double volumeOffset,
+                        int instrument) {
+    this.semitones = semitones;
+    this.beats = beats;
+    this.volumeScale = volumeScale;
+    this.volumeOffset = volumeOffset;
+    this.instrument = instrument;
+  }
+
+  /**
+   * Returns a transform which also moves notes up (or, if negative, down) by some semitones.
+   *
+   * @param semitones how many semitones to move notes up by
+   * @return the new transform
+   */
+  public NoteTransform transpose(int semitones) {
+    return new NoteTransform(this.semitones + semitones, this.beats, this.volumeScale,
+            this.volumeOffset, this.instrument);
+  }
+
+  /**
+   * Returns a transform which also moves notes later (or, if negative, earlier) by some beats.
+   *
+   * @param beats how many beats to move notes later by
+   * @return the new transform
+   */
+  public NoteTransform shift(int beats) {
+    return new NoteTransform(this.semitones, this.beats + beats, this.volumeScale,
+            this.volumeOffset, this.instrument);
+  }
+
+  /**
+   * Returns a transform which also multiplies the volume of notes by some factor. Volumes are
+   * rounded to the nearest whole number and kept within [0, 127].
+   *
+   * @param factor what to multiply volumes by
+   * @return the new transform
+   * @throws IllegalArgumentException if the factor is negative
+   */
+  public NoteTransform scaleVolume(double factor) {
+    if (factor < 0) {
+      throw new IllegalArgumentException("Volume cannot be scaled by a negative factor.");
+    }
+    return new NoteTransform(this.semitones, this.beats, this.volumeScale * factor,
+            this.volumeOffset * factor, this.instrument);
+  }
+
+  /**
+   * Returns a transform which also adds some amount to the volume of notes. Volumes are kept
+   * within [0, 127].
+   *
+   * @param amount how much to add to volumes
+   * @return the new transform
+   */
+  public NoteTransform offsetVolume(int amount) {
+    return new NoteTransform(this.semitones, this.beats, this.volumeScale,
+            this.volumeOffset + amount, this.instrument);
+  }
+
+  /**
+   * Returns a transform which also moves notes to the given instrument.
+   *
+   * @param instrument the instrument number, in the range [0, 127]
+   * @return the new transform
+   * @throws IllegalArgumentException if the instrument is out of range
+   */
+  public NoteTransform setInstrument(int instrument) {
+    if (instrument < 0 || instrument > 127) {
+      throw new IllegalArgumentException("Instrument value cannot be outside range [0, 127].");
+    }
+    return new NoteTransform(this.semitones, this.beats, this.volumeScale, this.volumeOffset,
+            instrument);
+  }
+
+  /**
+   * Applies this transform to a start or end beat.
+   */
+  int beat(int beat) {
+    return beat + this.beats;
+  }
+
+  /**
+   * Applies this transform to an instrument.
+   */
+  int instrument(int instrument) {
+    return this.instrument < 0 ? instrument : this.instrument;
+  }
+
+  /**
+   * Applies this transform to a pitch.
+   */
+  int pitch(int pitch) {
+    return pitch + this.semitones;
+  }
+
+  /**
+   * Applies this transform to a volume.
+   */
+  int volume(int volume) {
+    long scaled = Math.round(volume * this.volumeScale + this.volumeOffset);
+    return (int) Math.max(0, Math.min(127, scaled));
+  }
+}
@@ -0,0 +1,326 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * Sums up the notes of a piece by the beat they start on, as a segment tree over the beats. Each
+ * node keeps the number of notes starting in its range, the sum of their volumes and the loudest
+ * of them, so adding or removing a note, or summing up any range of beats, takes time
+ * proportional to the log of the number of beats.
+ *
+ * <p>Only the beats notes start on have a leaf, holding the volumes of those notes in order, so
+ * that the loudest is still known when one is removed. Like the polyphony tree, nodes are only
+ * made where there are notes, and a new root is put above the old one when a note starts past the
+ * last beat the tree covers.</p>
+ */
+final class OnsetTree {
+  // Node 0 stands for every node not yet made, which has no notes.
+  private static final int NONE = 0;
+
+  private int[] left;
+  private int[] right;
+  private int[] count;
+  private long[] sum;
+  // The loudest volume in each node's range, or -1 if it has no notes.
+  private int[] max;
+  // The volumes of the notes starting on each leaf's beat, quietest first. Null for other nodes.
+  private int[][] volumes;
+  private int size;
+  private int root;
+  // The root covers the beats [0, beats), a power of two.
+  private long beats;
+
+  /**
+   * Constructs a tree with no notes.
+   */
+  OnsetTree() {
+    this.left = new int[64];
+    this.right = new int[64];
+    this.count = new int[64];
+    this.sum = new long[64];
+    this.max = new int[64];
+    this.volumes = new int[64][];
+    this.max[NONE] = -1;
+    this.size = 1;
+    this.root = NONE;
+    this.beats = 64;
+  }
+
+  /**
+   * Constructs a tree holding the given notes, in time proportional to the number of nodes it
+   * needs.
+   *
+   * @param keys the start beat and volume of every note, packed as {@code start << 7 | volume},
+   *             in ascending order
+   */
+  OnsetTree(long[] keys) {
+    this();
+    while (keys.length > 0 && this.beats <= keys[keys.length - 1] >> 7) {
+      this.beats *= 2;
+    }
+    this.root = this.build(keys, 0, keys.length, 0, this.beats);
+  }
+
+  /**
+   * Constructs a copy of the given tree.
+   *
+   * @param other the tree to copy
+   */
+  OnsetTree(OnsetTree other) {
+    this.left = Arrays.copyOf(other.left, other.size);
+    this.right = Arrays.copyOf(other.right, other.size);
+    this.count = Arrays.copyOf(other.count, other.size);
+    this.sum = Arrays.copyOf(other.sum, other.size);
+    this.max = Arrays.copyOf(other.max, other.size);
+    this.volumes = new int[other.size][];
+    for (int i = 0; i < other.size; i += 1) {
+      if (other.volumes[i] != null) {
+        this.volumes[i] = other.volumes[i].clone();
+      }
+    }
+    this.size = other.size;
+    this.root = other.root;
+    this.beats = other.beats;
+  }
+
+  /**
+   * Adds a note starting at a beat.
+   *
+   * @param start  the start beat of the note, which is not negative
+   * @param volume the volume of the note
+   */
+  void add(int start, int volume) {
+    while (start >= this.beats) {
+      // The old root becomes the left half of a new one, and the new right half has no notes.
+      int above = this.newNode();
+      this.left[above] = this.root;
+      this.count[above] = this.count[this.root];
+      this.sum[above] = this.sum[this.root];
+      this.max[above] = this.max[this.root];
+      this.root = above;
+      this.beats *= 2;
+    }
+    this.root = this.update(this.root, 0, this.beats, start, volume, 1);
+  }
+
+  /**
+   * Removes a note starting at a beat, which must have been added.
+   *
+   * @param start  the start beat of the note
+   * @param volume the volume of the note
+   */
+  void remove(int start, int volume) {
+    this.update(this.root, 0, this.beats, start, volume, -1);
+  }
+
+  /**
+   * Adds or removes a note within a node's range.
+   *
+   * @param node   the node, which is made if it is NONE
+   * @param low    the first beat of the node's range (inclusive)
+   * @param high   the last beat of the node's range (exclusive)
+   * @param change 1 to add the note, -1 to remove it
+   * @return the node
+   */
+  private int update(int node, long low, long high, int start, int volume, int change) {
+    if (node == NONE) {
+      node = this.newNode();
+    }
+    if (high - low == 1) {
+      this.volumes[node] = change > 0
+              ? insert(this.volumes[node], this.count[node], volume)
+              : delete(this.volumes[node], this.count[node], volume);
+      this.count[node] += change;
+      this.sum[node] += change * volume;
+      this.max[node] = this.count[node] > 0 ? this.volumes[node][this.count[node] - 1] : -1;
+      return node;
+    }
+    long middle = (low + high) >>> 1;
+    if (start < middle) {
+      int child = this.update(this.left[node], low, middle, start, volume, change);
+      this.left[node] = child;
+    } else {
+      int child = this.update(this.right[node], middle, high, start, volume, change);
+      this.right[node] = child;
+    }
+    this.count[node] = this.count[this.left[node]] + this.count[this.right[node]];
+    this.sum[node] = this.sum[this.left[node]] + this.sum[this.right[node]];
+    this.max[node] = Math.max(this.max[this.left[node]], this.max[this.right[node]]);
+    return node;
+  }
+
+  /**
+   * Puts a volume into a sorted list, growing the list if it is full.
+   *
+   * @param list   the list, or null if it has never held a volume
+   * @param count  how many volumes the list holds
+   * @param volume the volume to add
+   * @return the list, which may be a new array
+   */
+  private static int[] insert(int[] list, int count, int volume) {
+    if (list == null) {
+      list = new int[2];
+    } else if (count == list.length) {
+      list = Arrays.copyOf(list, count * 2);
+    }
+    int at = count;
+    while (at > 0 && list[at - 1] > volume) {
+      at -= 1;
+    }
+    System.arraycopy(list, at, list, at + 1, count - at);
+    list[at] = volume;
+    return list;
+  }
+
+  /**
+   * Takes one copy of a volume out of a sorted list.
+   *
+   * @param list   the list
+   * @param count  how many volumes the list holds
+   * @param volume the volume to take out
+   * @return the list
+   */
+  private static int[] delete(int[] list, int count, int volume) {
+    int at = Arrays.binarySearch(list, 0, count, volume);
+    System.arraycopy(list, at + 1, list, at, count - at - 1);
+    return list;
+  }
+
+  /**
+   * Makes a new node with no children and no notes.
+   *
+   * @return the new node
+   */
+  private int newNode() {
+    if (this.size == this.max.length) {
+      int capacity = this.size * 2;
+      this.left = Arrays.copyOf(this.left, capacity);
+      this.right = Arrays.copyOf(this.right, capacity);
+      this.count = Arrays.copyOf(this.count, capacity);
+      this.sum = Arrays.copyOf(this.sum, capacity);
+      this.max = Arrays.copyOf(this.max, capacity);
+      this.volumes = Arrays.copyOf(this.volumes, capacity);
+    }
+    this.max[this.size] = -1;
+    this.size += 1;
+    return this.size - 1;
+  }
+
+  /**
+   * Sums up the notes starting within [from, to].
+   *
+   * @param from the first beat (inclusive)
+   * @param to   the last beat (inclusive)
+   * @return a summary of the notes
+   */
+  RangeSummary summarize(int from, int to) {
+    // The number of notes, the sum of their volumes and the loudest of them.
+    long[] total = {0, 0, -1};
+    this.summarize(this.root, 0, this.beats, from, (long) to + 1, total);
+    return new RangeSummary((int) total[0], (int) total[2], total[1]);
+  }
+
+  /**
+   * Adds the notes starting within [from, to) and a node's range to a running total.
+   *
+   * @param node  the node
+   * @param low   the first beat of the node's range (inclusive)
+   * @param high  the last beat of the node's range (exclusive)
+   * @param total the number of notes, sum of volumes and loudest volume so far
+   */
+  private void summarize(int node, long low, long high, long from, long to, long[] total) {
+    if (node == NONE || to <= low || high <= from) {
+      return;
+    }
+    if (from <= low && high <= to) {
+      total[0] += this.count[node];
+      total[1] += this.sum[node];
+      total[2] = Math.max(total[2], this.max[node]);
+      return;
+    }
+    long middle = (low + high) >>> 1;
+    this.summarize(this.left[node], low, middle, from, to, total);
+    this.summarize(this.right[node], middle, high, from, to, total);
+  }
+
+  /**
+   * Lists every note in the tree. Two trees holding the same notes give the same list, however
+   * they were built.
+   *
+   * @return the start beat and volume of every note, packed as for the constructor, in order
+   */
+  long[] keys() {
+    long[] keys = new long[this.count[this.root]];
+    this.keys(this.root, 0, this.beats, keys, 0);
+    return keys;
+  }
+
+  /**
+   * Lists the notes within a node's range.
+   *
+   * @return how many notes have been listed now
+   */
+  private int keys(int node, long low, long high, long[] keys, int at) {
+    if (node == NONE) {
+      return at;
+    }
+    if (high - low == 1) {
+      for (int i = 0; i < this.count[node]; i += 1) {
+        keys[at] = low << 7 | this.volumes[node][i];
+        at += 1;
+      }
+      return at;
+    }
+    long middle = (low + high) >>> 1;
+    at = this.keys(this.left[node], low, middle, keys, at);
+    return this.keys(this.right[node], middle, high, keys, at);
+  }
+
+  /**
+   * Builds the nodes for a range of beats from a run of sorted keys.
+   *
+   * @param keys  the keys, as given to the constructor
+   * @param first the first key starting in the range
+   * @param last  the key after the last one starting in the range
+   * @param low   the first beat of the range (inclusive)
+   * @param high  the last beat of the range (exclusive)
+   * @return the node for the range, or NONE if no notes start in it
+   */
+  private int build(long[] keys, int first, int last, long low, long high) {
+    if (first == last) {
+      return NONE;
+    }
+    int node = this.newNode();
+    if (high - low == 1) {
+      int[] list = new int[last - first];
+      for (int i = first; i < last; i += 1) {
+        list[i - first] = (int) (keys[i] & 127);
+      }
+      this.volumes[node] = list;
+      this.count[node] = list.length;
+      this.sum[node] = Arrays.stream(list).asLongStream().sum();
+      this.max[node] = list[list.length - 1];
+      return node;
+    }
+    long middle = (low + high) >>> 1;
+    // The first key starting at or after the middle.
+    int split = first;
+    int after = last;
+    while (split < after) {
+      int mid = (split + after) >>> 1;
+      if (keys[mid] >> 7 < middle) {
+        split = mid + 1;
+      } else {
+        after = mid;
+      }
+    }
+    int leftChild = this.build(keys, first, split, low, middle);
+    int rightChild = this.build(keys, split, last, middle, high);
+    this.left[node] = leftChild;
+    this.right[node] = rightChild;
+    this.count[node] = this.count[leftChild] + this.count[rightChild];
+    this.sum[node] = this.sum[leftChild] + this.sum[rightChild];
+    this.max[node] = Math.max(this.max[leftChild], this.max[rightChild]);
+    return node;
+  }
+}
@@ -0,0 +1,134 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * Sums up the notes of a paged piece page by page, as a segment tree over the pages. Each page
+ * has a leaf holding the number of notes starting in it, the loudest of them and the sum of their
+ * volumes, and each node the same for the pages below it, so any run of whole pages is summed up
+ * in time proportional to the log of the number of pages. It takes a few words per page, however
+ * many notes the pages hold.
+ */
+final class PageSummaries {
+  // Node 1 is the root, and the leaf of page p is node leaves + p.
+  private int leaves;
+  private int[] count;
+  // The loudest volume in each node's pages, or -1 if they have no notes.
+  private int[] max;
+  private long[] sum;
+
+  /**
+   * Constructs the sums of the given pages.
+   *
+   * @param counts the number of notes starting in each page
+   * @param maxes  the loudest volume in each page, or -1 if it has no notes
+   * @param sums   the sum of the volumes in each page
+   */
+  PageSummaries(int[] counts, int[] maxes, long[] sums) {
+    this.leaves = Integer.highestOneBit(Math.max(1, counts.length - 1)) * 2;
+    this.count = new int[this.leaves * 2];
+    this.max = new int[this.leaves * 2];
+    this.sum = new long[this.leaves * 2];
+    Arrays.fill(this.max, -1);
+    System.arraycopy(counts, 0, this.count, this.leaves, counts.length);
+    System.arraycopy(maxes, 0, this.max, this.leaves, maxes.length);
+    System.arraycopy(sums, 0, this.sum, this.leaves, sums.length);
+    for (int node = this.leaves - 1; node >= 1; node -= 1) {
+      this.pull(node);
+    }
+  }
+
+  /**
+   * Returns the number of notes starting in a page.
+   *
+   * @param page the page
+   * @return the number of notes, which is 0 for pages past the end of the piece
+   */
+  int count(int page) {
+    return page < this.leaves ? this.count[this.leaves + page] : 0;
+  }
+
+  /**
+   * Replaces the sums of one page, growing the tree if the page is past the last it covers.
+   *
+   * @param page    the page
+   * @param summary the notes starting in the page
+   */
+  void set(int page, RangeSummary summary) {
+    while (page >= this.leaves) {
+      this.grow();
+    }
+    int node = this.leaves + page;
+    this.count[node] = summary.getNoteCount();
+    this.max[node] = summary.getMaxVolume();
+    this.sum[node] = summary.getVolumeSum();
+    for (node /= 2; node >= 1; node /= 2) {
+      this.pull(node);
+    }
+  }
+
+  /**
+   * Sums up the notes starting in the pages [first, last].
+   *
+   * @param first the first page (inclusive)
+   * @param last  the last page (inclusive)
+   * @return the summary of the pages
+   */
+  RangeSummary summarize(int first, int last) {
+    int count = 0;
+    int max = -1;
+    long sum = 0;
+    // Walks up from both ends at once, taking in every node wholly inside the range.
+    int low = this.leaves + Math.max(first, 0);
+    int high = this.leaves + Math.min(last, this.leaves - 1) + 1;
+    while (low < high) {
+      if ((low & 1) == 1) {
+        count += this.count[low];
+        max = Math.max(max, this.max[low]);
+        sum += this.sum[low];
+        low += 1;
+      }
+      if ((high & 1) == 1) {
+        high -= 1;
+        count += this.count[high];
+        max = Math.max(max, this.max[high]);
+        sum += this.sum[high];
+      }
+      low /= 2;
+      high /= 2;
+    }
+    return new RangeSummary(count, max, sum);
+  }
+
+  /**
+   * Doubles the number of pages the tree covers, keeping the sums of the ones it has.
+   */
+  private void grow() {
+    int[] counts = Arrays.copyOfRange(this.count, this.leaves, this.leaves * 2);
+    int[] maxes = Arrays.copyOfRange(this.max, this.leaves, this.leaves * 2);
+    long[] sums = Arrays.copyOfRange(this.sum, this.leaves, this.leaves * 2);
+    int pages = this.leaves * 2;
+    this.leaves = pages;
+    this.count = new int[pages * 2];
+    this.max = new int[pages * 2];
+    this.sum = new long[pages * 2];
+    Arrays.fill(this.max, -1);
+    System.arraycopy(counts, 0, this.count, pages, counts.length);
+    System.arraycopy(maxes, 0, this.max, pages, maxes.length);
+    System.arraycopy(sums, 0, this.sum, pages, sums.length);
+    for (int node = pages - 1; node >= 1; node -= 1) {
+      this.pull(node);
+    }
+  }
+
+  /**
+   * Works out the sums of a node from its two children.
+   *
+   * @param node the node
+   */
+  private void pull(int node) {
+    this.count[node] = this.count[2 * node] + this.count[2 * node + 1];
+    this.max[node] = Math.max(this.max[2 * node], this.max[2 * node + 1]);
+    this.sum[node] = this.sum[2 * node] + this.sum[2 * node + 1];
+  }
+}
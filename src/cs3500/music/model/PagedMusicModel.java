@@ -0,0 +1,845 @@
+package cs3500.music.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A music model for pieces too large to hold in memory, which leaves the piece in a MusicFile on
+ * disk and only loads the parts of it being looked at. The piece is cut into pages of a fixed
+ * number of ticks, each holding the notes which start within it. A page is loaded the first time
+ * something reads a window of ticks it overlaps, and kept in a least-recently-used cache of a fixed
+ * number of pages, so scrolling through the piece or playing it from start to end uses about the
+ * same memory however long the piece is.
+ *
+ * <p>The piece can be edited like any other model. A page which has been edited is held in memory
+ * from then on, since the file on disk no longer matches it, and does not count against the size of
+ * the cache.</p>
+ *
+ * <p>Reads of a window (getBeats, getSounds(start, end), getSoundsAt, query) only load the pages the
+ * window needs. getSounds() walks the whole piece one page at a time. display, snapshot and
+ * combineMusic need the whole piece at once, and so load all of it.</p>
+ *
+ * <p>Notes which last no time at all, which are not part of a model's sounds, are not kept in
+ * copies of the piece made by snapshot. Sounds which play on the same beat are ordered by start
+ * time and then by the order they were added, rather than purely by the order they were
+ * added.</p>
+ */
+public class PagedMusicModel implements IMusicModel<HashMap<Integer, ArrayList<Sound>>, Note> {
+  private static final int DEFAULT_PAGE_BEATS = 256;
+  private static final int DEFAULT_CACHED_PAGES = 32;
+
+  private final MusicFile file;
+  private final int pageBeats;
+  // For each page of the file, the first note in the file which starts in that page or later.
+  private final int[] fileFirst;
+  // For each page, a tick at or after which every note starting in the page has ended. Exact for
+  // pages which have not been edited.
+  private int[] pageEnds;
+  // At least as long as the longest note ever in the piece, so a window only has to look back this
+  // far for notes still playing.
+  private int longest;
+  private final Map<Integer, MusicModel> cache;
+  private final Map<Integer, MusicModel> edited;
+  private final PitchCounts pitches;
+  // The number of notes lasting at least one tick on each instrument, so the tracks are known.
+  private final int[] instruments;
+  // The number of notes which last at least one tick.
+  private int size;
+  // The notes which last at least one tick, summed up page by page, to sum up ranges of ticks.
+  private final PageSummaries summaries;
+  // Edited pages whose sums have not been worked out again since they were changed.
+  private final Set<Integer> staleSummaries;
+  private int tempo;
+  private int resolution;
+  private final EditJournal history;
+  private final ListenerList listeners;
+
+  /**
+   * Constructs a paged model over a binary music file, with pages of 256 ticks and room for 32
+   * pages in the cache.
+   *
+   * @param file the file holding the piece
+   */
+  public PagedMusicModel(MusicFile file) {
+    this(file, DEFAULT_PAGE_BEATS, DEFAULT_CACHED_PAGES);
+  }
+
+  /**
+   * Constructs a paged model over a binary music file. The notes are read once, without being
+   * kept, to find where each page starts, the sums of each page and the range of pitches in the
+   * piece.
+   *
+   * @param file        the file holding the piece
+   * @param pageBeats   the number of ticks in each page
+   * @param cachedPages the most pages which have not been edited to keep in memory at once
+   * @throws IllegalArgumentException if pageBeats or cachedPages is less than 1
+   */
+  public PagedMusicModel(MusicFile file, int pageBeats, int cachedPages) {
+    Objects.requireNonNull(file);
+    if (pageBeats < 1) {
+      throw new IllegalArgumentException("Pages must be at least one tick long.");
+    }
+    if (cachedPages < 1) {
+      throw new IllegalArgumentException("There must be room for at least one page.");
+    }
+    this.file = file;
+    this.pageBeats = pageBeats;
+    this.cache = new LinkedHashMap<Integer, MusicModel>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, MusicModel> eldest) {
+        return this.size() > cachedPages;
+      }
+    };
+    this.edited = new HashMap<>();
+    this.pitches = new PitchCounts();
+    this.instruments = new int[128];
+    this.tempo = file.getTempo();
+    this.resolution = file.getResolution();
+    this.history = new EditJournal(1 << 16, 500);
+    this.listeners = new ListenerList();
+
+    // Every note starts before the end of the piece, so this is enough pages for all of them.
+    int pages = file.getEndBeat() / pageBeats + 1;
+    this.fileFirst = new int[pages + 1];
+    this.pageEnds = new int[pages];
+    int[] counts = new int[pages];
+    int[] maxes = new int[pages];
+    long[] sums = new long[pages];
+    Arrays.fill(maxes, -1);
+    int filled = 0;
+    int i = 0;
+    SoundCursor c = file.getSounds();
+    while (c.next()) {
+      int page = c.getStartBeat() / pageBeats;
+      while (filled <= page) {
+        this.fileFirst[filled] = i;
+        filled += 1;
+      }
+      this.pageEnds[page] = Math.max(this.pageEnds[page], c.getEndBeat());
+      this.longest = Math.max(this.longest, c.getEndBeat() - c.getStartBeat());
+      this.pitches.add(c.getPitch());
+      this.instruments[c.getInstrument()] += 1;
+      counts[page] += 1;
+      maxes[page] = Math.max(maxes[page], c.getVolume());
+      sums[page] += c.getVolume();
+      i += 1;
+    }
+    while (filled <= pages) {
+      this.fileFirst[filled] = i;
+      filled += 1;
+    }
+    this.size = i;
+    this.summaries = new PageSummaries(counts, maxes, sums);
+    this.staleSummaries = new HashSet<>();
+  }
+
+  /**
+   * Returns how many pages are held in memory, whether cached or edited.
+   *
+   * @return the number of pages in memory
+   */
+  public synchronized int getLoadedPages() {
+    return this.cache.size() + this.edited.size();
+  }
+
+  /**
+   * Returns the page holding notes which start at the given tick, loading it if it is not in
+   * memory. Loading a page may push the least recently used page out of the cache.
+   *
+   * @param page the index of the page
+   * @return the page
+   */
+  private MusicModel page(int page) {
+    MusicModel found = this.edited.get(page);
+    if (found == null) {
+      found = this.cache.get(page);
+    }
+    if (found == null) {
+      found = new MusicModel(false);
+      if (page < this.fileFirst.length - 1
+              && this.fileFirst[page] < this.fileFirst[page + 1]) {
+        int[][] notes = this.file.read(this.fileFirst[page], this.fileFirst[page + 1]);
+        found.addNotes(notes[0], notes[1], notes[2], notes[3], notes[4]);
+      }
+      this.cache.put(page, found);
+    }
+    return found;
+  }
+
+  /**
+   * Returns a page which is about to be edited, loading it if needed, and moves it out of the
+   * cache so that it is kept in memory from now on.
+   *
+   * @param page the index of the page
+   * @return the page
+   */
+  private MusicModel pageForEditing(int page) {
+    MusicModel found = this.edited.get(page);
+    if (found == null) {
+      found = this.page(page);
+      this.cache.remove(page);
+      this.edited.put(page, found);
+    }
+    return found;
+  }
+
+  /**
+   * Makes sure there is a page holding the given start time, growing the piece if needed.
+   *
+   * @param start the start time of a note, in ticks
+   * @return the index of its page
+   */
+  private int pageOf(int start) {
+    int page = start / this.pageBeats;
+    if (page >= this.pageEnds.length) {
+      this.pageEnds = Arrays.copyOf(this.pageEnds, Math.max(page + 1, this.pageEnds.length * 2));
+    }
+    return page;
+  }
+
+  /**
+   * Keeps track of a note added to a page.
+   */
+  private void added(int page, int start, int end, int instrument, int pitch, int volume) {
+    this.pageEnds[page] = Math.max(this.pageEnds[page], end);
+    this.longest = Math.max(this.longest, end - start);
+    this.pitches.add(pitch);
+    if (end > start) {
+      this.size += 1;
+      this.instruments[instrument] += 1;
+      this.staleSummaries.add(page);
+    }
+  }
+
+  /**
+   * Keeps track of a note removed from a page. The page's end is left as it is, since it only
+   * needs to be a tick at or after which every note in the page has ended.
+   */
+  private void removed(int start, int end, int instrument, int pitch, int volume) {
+    this.pitches.remove(pitch);
+    if (end > start) {
+      this.size -= 1;
+      this.instruments[instrument] -= 1;
+      this.staleSummaries.add(start / this.pageBeats);
+    }
+  }
+
+  /**
+   * Tells the listeners the pitch range of the piece, if it has changed.
+   *
+   * @param low  the lowest pitch before the change
+   * @param high the highest pitch before the change
+   */
+  private void firePitchRange(int low, int high) {
+    if (this.pitches.low() != low || this.pitches.high() != high) {
+      this.listeners.pitchRangeChanged(this.pitches.low(), this.pitches.high());
+    }
+  }
+
+  @Override
+  public synchronized void addNote(int start, int end, int instrument, int pitch, int volume) {
+    MusicModel.checkValidSound(start, end, instrument, pitch, volume);
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    int page = this.pageOf(start);
+    this.pageForEditing(page).addNote(start, end, instrument, pitch, volume);
+    this.added(page, start, end, instrument, pitch, volume);
+    this.history.record(EditJournal.ADD, start, end, instrument, pitch, volume);
+    this.listeners.noteAdded(start, end, instrument, pitch, volume);
+    this.firePitchRange(low, high);
+  }
+
+  @Override
+  public synchronized void addNotes(int[] starts, int[] ends, int[] instruments, int[] pitches,
+                                    int[] volumes) {
+    int count = starts.length;
+    if (ends.length != count || instruments.length != count || pitches.length != count
+            || volumes.length != count) {
+      throw new IllegalArgumentException("Note arrays must all be the same length.");
+    }
+    // Sorting (page, index) pairs packed into longs groups the batch by page, keeping its order.
+    long[] keys = new long[count];
+    for (int i = 0; i < count; i += 1) {
+      MusicModel.checkValidSound(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+      keys[i] = ((long) this.pageOf(starts[i]) << 32) | i;
+    }
+    Arrays.sort(keys);
+
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    int from = 0;
+    while (from < count) {
+      int page = (int) (keys[from] >>> 32);
+      int to = from;
+      while (to < count && (int) (keys[to] >>> 32) == page) {
+        to += 1;
+      }
+      int[][] group = new int[5][to - from];
+      for (int k = from; k < to; k += 1) {
+        int i = (int) keys[k];
+        group[0][k - from] = starts[i];
+        group[1][k - from] = ends[i];
+        group[2][k - from] = instruments[i];
+        group[3][k - from] = pitches[i];
+        group[4][k - from] = volumes[i];
+        this.added(page, starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+      }
+      this.pageForEditing(page).addNotes(group[0], group[1], group[2], group[3], group[4]);
+      from = to;
+    }
+
+    this.history.beginCompound();
+    for (int i = 0; i < count; i += 1) {
+      this.history.record(EditJournal.ADD, starts[i], ends[i], instruments[i], pitches[i],
+              volumes[i]);
+    }
+    this.history.endCompound();
+    for (int i = 0; i < count; i += 1) {
+      this.listeners.noteAdded(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    this.firePitchRange(low, high);
+  }
+
+  @Override
+  public synchronized void removeNote(int start, int end, int instrument, int pitch, int volume) {
+    MusicModel.checkValidSound(start, end, instrument, pitch, volume);
+    int page = start / this.pageBeats;
+    if (page >= this.pageEnds.length) {
+      throw new IllegalArgumentException("Sound not present in track.");
+    }
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    // The page is only kept as edited once the note has been found and removed.
+    this.page(page).removeNote(start, end, instrument, pitch, volume);
+    this.pageForEditing(page);
+    this.removed(start, end, instrument, pitch, volume);
+    this.history.record(EditJournal.REMOVE, start, end, instrument, pitch, volume);
+    this.listeners.noteRemoved(start, end, instrument, pitch, volume);
+    this.firePitchRange(low, high);
+  }
+
+  @Override
+  public synchronized void editNote(int startSource, int endSource, int instrumentSource,
+                                    int pitchSource, int volumeSource, int startDest, int endDest,
+                                    int instrumentDest, int pitchDest, int volumeDest) {
+    MusicModel.checkValidSound(startSource, endSource, instrumentSource, pitchSource,
+            volumeSource);
+    MusicModel.checkValidSound(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    int from = startSource / this.pageBeats;
+    if (from >= this.pageEnds.length) {
+      throw new IllegalArgumentException("Sound not present in track.");
+    }
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    this.page(from).removeNote(startSource, endSource, instrumentSource, pitchSource,
+            volumeSource);
+    this.pageForEditing(from);
+    this.removed(startSource, endSource, instrumentSource, pitchSource, volumeSource);
+    int to = this.pageOf(startDest);
+    this.pageForEditing(to).addNote(startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    this.added(to, startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    this.history.beginCompound();
+    this.history.record(EditJournal.REMOVE, startSource, endSource, instrumentSource,
+            pitchSource, volumeSource);
+    this.history.record(EditJournal.ADD, startDest, endDest, instrumentDest, pitchDest,
+            volumeDest);
+    this.history.endCompound();
+    this.listeners.noteEdited(startSource, endSource, instrumentSource, pitchSource, volumeSource,
+            startDest, endDest, instrumentDest, pitchDest, volumeDest);
+    this.firePitchRange(low, high);
+  }
+
+  @Override
+  public synchronized int transformNotes(int start, int end, NoteFilter filter,
+                                         NoteTransform transform) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    Objects.requireNonNull(filter);
+    Objects.requireNonNull(transform);
+    int firstPage = start / this.pageBeats;
+    int lastPage = Math.min(end / this.pageBeats, this.pageEnds.length - 1);
+    // Each transformed note as it was, five values to a note, and the pages they were found in.
+    int[] before = new int[80];
+    int count = 0;
+    boolean[] touched = new boolean[Math.max(0, lastPage - firstPage + 1)];
+    for (int page = firstPage; page <= lastPage; page += 1) {
+      SoundCursor c = this.page(page).getSounds(start, end);
+      while (c.next()) {
+        if (c.getStartBeat() >= start && filter.accept(c.getStartBeat(), c.getEndBeat(),
+                c.getInstrument(), c.getPitch(), c.getVolume())) {
+          if (count * 5 == before.length) {
+            before = Arrays.copyOf(before, before.length * 2);
+          }
+          before[count * 5] = c.getStartBeat();
+          before[count * 5 + 1] = c.getEndBeat();
+          before[count * 5 + 2] = c.getInstrument();
+          before[count * 5 + 3] = c.getPitch();
+          before[count * 5 + 4] = c.getVolume();
+          count += 1;
+          touched[page - firstPage] = true;
+        }
+      }
+    }
+    for (int i = 0; i < count; i += 1) {
+      MusicModel.checkValidSound(transform.beat(before[i * 5]),
+              transform.beat(before[i * 5 + 1]), transform.instrument(before[i * 5 + 2]),
+              transform.pitch(before[i * 5 + 3]), transform.volume(before[i * 5 + 4]));
+    }
+
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    for (int page = firstPage; page <= lastPage; page += 1) {
+      if (touched[page - firstPage]) {
+        this.pageForEditing(page).transformNotes(start, end, filter, transform);
+      }
+    }
+    for (int i = 0; i < count; i += 1) {
+      int[] n = this.transformed(before, i, transform);
+      int from = before[i * 5] / this.pageBeats;
+      int to = this.pageOf(n[0]);
+      if (from != to) {
+        // Notes moved in time may now belong to another page.
+        this.edited.get(from).removeNote(n[0], n[1], n[2], n[3], n[4]);
+        this.pageForEditing(to).addNote(n[0], n[1], n[2], n[3], n[4]);
+      }
+      this.removed(before[i * 5], before[i * 5 + 1], before[i * 5 + 2], before[i * 5 + 3],
+              before[i * 5 + 4]);
+      this.added(to, n[0], n[1], n[2], n[3], n[4]);
+    }
+
+    this.history.beginCompound();
+    for (int i = 0; i < count; i += 1) {
+      int[] n = this.transformed(before, i, transform);
+      this.history.record(EditJournal.REMOVE, before[i * 5], before[i * 5 + 1],
+              before[i * 5 + 2], before[i * 5 + 3], before[i * 5 + 4]);
+      this.history.record(EditJournal.ADD, n[0], n[1], n[2], n[3], n[4]);
+    }
+    this.history.endCompound();
+    for (int i = 0; i < count; i += 1) {
+      int[] n = this.transformed(before, i, transform);
+      this.listeners.noteEdited(before[i * 5], before[i * 5 + 1], before[i * 5 + 2],
+              before[i * 5 + 3], before[i * 5 + 4], n[0], n[1], n[2], n[3], n[4]);
+    }
+    this.firePitchRange(low, high);
+    return count;
+  }
+
+  /**
+   * Applies a transform to one of a list of notes.
+   *
+   * @param notes the notes, five values to a note
+   * @param i     which note to transform
+   * @return the transformed note's start, end, instrument, pitch and volume
+   */
+  private int[] transformed(int[] notes, int i, NoteTransform transform) {
+    return new int[]{transform.beat(notes[i * 5]), transform.beat(notes[i * 5 + 1]),
+        transform.instrument(notes[i * 5 + 2]), transform.pitch(notes[i * 5 + 3]),
+        transform.volume(notes[i * 5 + 4])};
+  }
+
+  @Override
+  public synchronized boolean undo() {
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    boolean undone = this.history.undo(new Replay());
+    this.firePitchRange(low, high);
+    return undone;
+  }
+
+  @Override
+  public synchronized boolean redo() {
+    int low = this.pitches.low();
+    int high = this.pitches.high();
+    boolean redone = this.history.redo(new Replay());
+    this.firePitchRange(low, high);
+    return redone;
+  }
+
+  /**
+   * Applies the deltas of the undo history straight to the pages.
+   */
+  private final class Replay implements EditJournal.Target {
+    @Override
+    public void add(int start, int end, int instrument, int pitch, int volume) {
+      int page = pageOf(start);
+      pageForEditing(page).addNote(start, end, instrument, pitch, volume);
+      added(page, start, end, instrument, pitch, volume);
+      listeners.noteAdded(start, end, instrument, pitch, volume);
+    }
+
+    @Override
+    public void remove(int start, int end, int instrument, int pitch, int volume) {
+      pageForEditing(start / pageBeats).undoAdd(start, end, instrument, pitch, volume);
+      removed(start, end, instrument, pitch, volume);
+      listeners.noteRemoved(start, end, instrument, pitch, volume);
+    }
+
+    @Override
+    public void setTempo(int tempo) {
+      PagedMusicModel.this.tempo = tempo;
+      listeners.tempoChanged(tempo);
+    }
+  }
+
+  @Override
+  public IMusicModel<?, ?> combineMusic(CombineType combineType, IMusicModel<?, ?> that) {
+    int resolution = this.getResolution();
+    if (that.getResolution() != resolution) {
+      throw new IllegalArgumentException("Pieces of different resolutions cannot be combined.");
+    }
+    int offset;
+    switch (combineType) {
+      //One after the other
+      case CONSECUTIVE:
+        offset = (that.getEndBeat() + 1) * resolution;
+        break;
+      //Both together
+      case SIMULTANEOUS:
+        offset = 0;
+        break;
+      default:
+        throw new IllegalArgumentException("Not a valid CombineType.");
+    }
+    new NoteRun(this.getSounds(), offset).addTo(that);
+    return that;
+  }
+
+  @Override
+  public String display() {
+    return this.snapshot().display();
+  }
+
+  @Override
+  public synchronized int getEndBeat() {
+    int end = 1;
+    for (int page = 0; page < this.pageEnds.length; page += 1) {
+      MusicModel edits = this.edited.get(page);
+      if (edits != null) {
+        end = Math.max(end, edits.getEndBeat());
+      } else {
+        end = Math.max(end, Math.max(0, this.pageEnds[page] - 1) + 1);
+      }
+    }
+    // Pages are kept in ticks, so this is the tick after the last one played.
+    return (end - 1) / this.resolution + 1;
+  }
+
+  /**
+   * {@inheritDoc} Only the pages overlapping the window are loaded.
+   */
+  @Override
+  public HashMap<Integer, ArrayList<Sound>> getBeats(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    MusicModel window = new MusicModel(false);
+    SoundCursor sounds;
+    synchronized (this) {
+      window.setResolution(this.resolution);
+      sounds = this.getSounds(MusicModel.firstTick(start, this.resolution),
+              MusicModel.lastTick(end, this.resolution));
+    }
+    new NoteRun(sounds, 0).addTo(window);
+    return window.getBeats(start, end);
+  }
+
+  /**
+   * {@inheritDoc} Pages are loaded one at a time as the cursor reaches them.
+   */
+  @Override
+  public SoundCursor getSounds() {
+    return new PageCursor(0, Integer.MAX_VALUE, null);
+  }
+
+  @Override
+  public SoundCursor getSounds(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    return new PageCursor(start, end, null);
+  }
+
+  @Override
+  public SoundCursor getSoundsAt(int beat) {
+    return this.getSounds(beat, beat);
+  }
+
+  @Override
+  public SoundCursor query(NoteQuery query) {
+    Objects.requireNonNull(query);
+    return new PageCursor(query.getFirstBeat(), query.getLastBeat(), query);
+  }
+
+  /**
+   * {@inheritDoc} The sums are kept page by page, so whole pages are summed up without being read.
+   * The notes of the pages at either end which the range only partly covers are read from the
+   * file, or from memory if the page has been edited, but no pages are loaded into the cache.
+   */
+  @Override
+  public synchronized RangeSummary summarize(int start, int end) {
+    if (end < start) {
+      throw new IllegalArgumentException("Start value must be lesser than or equal to end beat.");
+    }
+    for (int page : this.staleSummaries) {
+      this.summaries.set(page, this.edited.get(page).summarize(this.firstBeatOf(page),
+              this.lastBeatOf(page)));
+    }
+    this.staleSummaries.clear();
+
+    int first = Math.max(start, 0) / this.pageBeats;
+    int last = Math.min(end / this.pageBeats, this.pageEnds.length - 1);
+    if (first > last) {
+      return new RangeSummary(0, -1, 0);
+    }
+    if (first == last) {
+      return this.summarizePage(first, start, end);
+    }
+    RangeSummary total = new RangeSummary(0, -1, 0);
+    if (start > this.firstBeatOf(first)) {
+      total = total.plus(this.summarizePage(first, start, end));
+      first += 1;
+    }
+    if (end < this.lastBeatOf(last)) {
+      total = total.plus(this.summarizePage(last, start, end));
+      last -= 1;
+    }
+    return total.plus(this.summaries.summarize(first, last));
+  }
+
+  /**
+   * Sums up the notes of one page which start within a range, without loading the page.
+   *
+   * @param page  the page
+   * @param start the first beat of the range (inclusive)
+   * @param end   the last beat of the range (inclusive)
+   * @return the summary of the notes
+   */
+  private RangeSummary summarizePage(int page, int start, int end) {
+    if (start <= this.firstBeatOf(page) && this.lastBeatOf(page) <= end) {
+      return this.summaries.summarize(page, page);
+    }
+    if (this.edited.containsKey(page)) {
+      return this.edited.get(page).summarize(start, end);
+    }
+    int count = 0;
+    int max = -1;
+    long sum = 0;
+    if (this.summaries.count(page) > 0) {
+      int[][] notes = this.file.read(this.fileFirst[page], this.fileFirst[page + 1]);
+      for (int i = 0; i < notes[0].length; i += 1) {
+        if (notes[0][i] >= start && notes[0][i] <= end && notes[1][i] > notes[0][i]) {
+          count += 1;
+          max = Math.max(max, notes[4][i]);
+          sum += notes[4][i];
+        }
+      }
+    }
+    return new RangeSummary(count, max, sum);
+  }
+
+  /**
+   * Returns the first beat of a page.
+   */
+  private int firstBeatOf(int page) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) page * this.pageBeats);
+  }
+
+  /**
+   * Returns the last beat of a page.
+   */
+  private int lastBeatOf(int page) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) (page + 1) * this.pageBeats - 1);
+  }
+
+  @Override
+  public synchronized List<Integer> getTracks() {
+    List<Integer> tracks = new ArrayList<>();
+    for (int i = 0; i < 128; i += 1) {
+      if (this.instruments[i] > 0) {
+        tracks.add(i);
+      }
+    }
+    return tracks;
+  }
+
+  /**
+   * {@inheritDoc} Only the pages the window covers are read, and the notes of other instruments
+   * in them are skipped.
+   */
+  @Override
+  public SoundCursor getTrack(int instrument, int start, int end) {
+    if (instrument < 0 || instrument > 127) {
+      throw new IllegalArgumentException("Instrument value cannot be outside range [0, 127].");
+    }
+    return this.query(NoteQuery.ALL.instrument(instrument).beats(start, end));
+  }
+
+  @Override
+  public synchronized List<Note> notesToDisplay() {
+    List<Note> notesToDisplay = new ArrayList<Note>();
+    if (this.size == 0) {
+      return notesToDisplay;
+    }
+    for (int i = this.pitches.high(); i >= this.pitches.low(); i -= 1) {
+      notesToDisplay.add(Note.valueOf(i));
+    }
+    return notesToDisplay;
+  }
+
+  /**
+   * {@inheritDoc} Every page is read to make the copy, which holds the whole piece in memory.
+   */
+  @Override
+  public MusicModel snapshot() {
+    MusicModel copy = new MusicModel(false);
+    synchronized (this) {
+      copy.setResolution(this.resolution);
+      new NoteRun(this.getSounds(), 0).addTo(copy);
+      copy.setTempo(this.tempo);
+    }
+    return copy.snapshot();
+  }
+
+  @Override
+  public void addListener(ModelListener listener) {
+    this.listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  @Override
+  public synchronized int getTempo() {
+    return this.tempo;
+  }
+
+  @Override
+  public synchronized void setTempo(int tempo) {
+    if (tempo < 0) {
+      throw new IllegalArgumentException("Tempo cannot be negative.");
+    }
+    this.history.record(EditJournal.TEMPO, this.tempo, tempo, 0, 0, 0);
+    this.tempo = tempo;
+    this.listeners.tempoChanged(tempo);
+  }
+
+  @Override
+  public synchronized int getResolution() {
+    return this.resolution;
+  }
+
+  @Override
+  public synchronized void setResolution(int ticksPerBeat) {
+    if (ticksPerBeat < 1) {
+      throw new IllegalArgumentException("There must be at least one tick per beat.");
+    }
+    if (!this.pitches.isEmpty()) {
+      throw new IllegalArgumentException("Resolution cannot be changed once there are notes.");
+    }
+    this.resolution = ticksPerBeat;
+    this.history.clear();
+  }
+
+  /**
+   * A cursor which walks the pages overlapping a window in order, loading each one as it is
+   * reached. Every note in a page starts before every note in the next, so the notes come out in
+   * the same order as from a single model. Only valid until the model is next modified.
+   */
+  private final class PageCursor implements SoundCursor {
+    private final int from;
+    private final int to;
+    private final NoteQuery query;
+    private int nextPage;
+    private SoundCursor current;
+
+    /**
+     * Constructs a cursor over the notes playing within [from, to].
+     *
+     * @param from  the first beat of the window (inclusive)
+     * @param to    the last beat of the window (inclusive)
+     * @param query which notes in the window to visit, or null for all of them
+     */
+    PageCursor(int from, int to, NoteQuery query) {
+      this.from = from;
+      this.to = to;
+      this.query = query;
+      this.nextPage = (int) (Math.max(0, (long) from - longest) / pageBeats);
+      this.current = null;
+    }
+
+    @Override
+    public boolean next() {
+      while (true) {
+        if (this.current != null && this.current.next()) {
+          return true;
+        }
+        this.current = this.nextPage();
+        if (this.current == null) {
+          return false;
+        }
+      }
+    }
+
+    /**
+     * Opens the next page which may hold notes playing in the window.
+     *
+     * @return a cursor over its notes in the window, or null if there are no more pages
+     */
+    private SoundCursor nextPage() {
+      synchronized (PagedMusicModel.this) {
+        int lastPage = Math.min(this.to / pageBeats, pageEnds.length - 1);
+        while (this.nextPage <= lastPage) {
+          int page = this.nextPage;
+          this.nextPage += 1;
+          // Skips pages whose notes have all ended before the window, without loading them.
+          if (pageEnds[page] > this.from) {
+            MusicModel notes = page(page);
+            return this.query != null ? notes.query(this.query)
+                    : notes.getSounds(Math.max(0, this.from), this.to);
+          }
+        }
+        return null;
+      }
+    }
+
+    @Override
+    public int getStartBeat() {
+      return this.current.getStartBeat();
+    }
+
+    @Override
+    public int getEndBeat() {
+      return this.current.getEndBeat();
+    }
+
+    @Override
+    public int getInstrument() {
+      return this.current.getInstrument();
+    }
+
+    @Override
+    public int getPitch() {
+      return this.current.getPitch();
+    }
+
+    @Override
+    public int getVolume() {
+      return this.current.getVolume();
+    }
+
+    @Override
+    public Sound getSound() {
+      return this.current.getSound();
+    }
+  }
+}
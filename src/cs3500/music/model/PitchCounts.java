@@ -0,0 +1,111 @@
+package cs3500.music.model;
+
+/**
+ * Keeps count of how many notes of a piece are on each of the 128 MIDI pitches, along with the
+ * lowest and highest pitch in use. Counts are updated as notes are added and removed, so the pitch
+ * range of a piece is always known without looking at its notes.
+ */
+final class PitchCounts {
+  private final int[] counts;
+  private int low;
+  private int high;
+
+  /**
+   * Constructs a new set of counts with no notes.
+   */
+  PitchCounts() {
+    this.counts = new int[128];
+    this.low = 128;
+    this.high = -1;
+  }
+
+  /**
+   * Constructs a copy of the given counts.
+   *
+   * @param other the counts to copy
+   */
+  PitchCounts(PitchCounts other) {
+    this.counts = other.counts.clone();
+    this.low = other.low;
+    this.high = other.high;
+  }
+
+  /**
+   * Records a note being added on the given pitch.
+   *
+   * @param pitch the pitch of the added note, in the range [0, 127]
+   */
+  void add(int pitch) {
+    this.counts[pitch] += 1;
+    if (pitch < this.low) {
+      this.low = pitch;
+    }
+    if (pitch > this.high) {
+      this.high = pitch;
+    }
+  }
+
+  /**
+   * Records a note being removed from the given pitch. If it was the last note on the lowest or
+   * highest pitch, the range shrinks to the next pitch still in use.
+   *
+   * @param pitch the pitch of the removed note, in the range [0, 127]
+   */
+  void remove(int pitch) {
+    this.counts[pitch] -= 1;
+    if (this.counts[pitch] > 0) {
+      return;
+    }
+    if (pitch == this.low) {
+      while (this.low <= this.high && this.counts[this.low] == 0) {
+        this.low += 1;
+      }
+    }
+    if (pitch == this.high) {
+      while (this.high >= this.low && this.counts[this.high] == 0) {
+        this.high -= 1;
+      }
+    }
+    if (this.low > this.high) {
+      this.low = 128;
+      this.high = -1;
+    }
+  }
+
+  /**
+   * Returns the number of notes on the given pitch.
+   *
+   * @param pitch the pitch to look at, in the range [0, 127]
+   * @return how many notes are on that pitch
+   */
+  int count(int pitch) {
+    return this.counts[pitch];
+  }
+
+  /**
+   * Is there at least one note counted.
+   *
+   * @return true if no pitch has any notes
+   */
+  boolean isEmpty() {
+    return this.high < 0;
+  }
+
+  /**
+   * Returns the lowest pitch with any notes on it. Only meaningful if this is not empty.
+   *
+   * @return the lowest pitch in use
+   */
+  int low() {
+    return this.low;
+  }
+
+  /**
+   * Returns the highest pitch with any notes on it. Only meaningful if this is not empty.
+   *
+   * @return the highest pitch in use
+   */
+  int high() {
+    return this.high;
+  }
+}
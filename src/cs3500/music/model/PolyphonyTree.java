@@ -0,0 +1,273 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * Counts how many notes are playing at every beat of a piece, as a segment tree over the beats.
+ * Adding or removing a note adds one to, or takes one from, every beat it plays for in time
+ * proportional to the log of the number of beats, and the largest count of any beat is always at
+ * the root.
+ *
+ * <p>Each node covers a range of beats, and keeps an amount added to every beat in its range along
+ * with the largest count in its range, so a change to a range of beats only touches the nodes
+ * covering it and their ancestors. The count of one beat is the sum of the amounts on the path from
+ * the root down to it. Nodes are only made for ranges a note starts or ends inside, so a piece
+ * with a few very long or very late notes costs no more than any other. When a note plays past
+ * the last beat the tree covers, a new root is put above the old one, doubling its range.</p>
+ */
+final class PolyphonyTree {
+  // Node 0 stands for every node not yet made, whose beats all have a count of 0.
+  private static final int NONE = 0;
+
+  private int[] left;
+  private int[] right;
+  // The largest count of any beat in each node's range.
+  private int[] max;
+  // The amount added to every beat in each node's range.
+  private int[] amount;
+  private int size;
+  private int root;
+  // The root covers the beats [0, beats), a power of two.
+  private long beats;
+
+  /**
+   * Constructs a tree with every count zero.
+   */
+  PolyphonyTree() {
+    this.left = new int[64];
+    this.right = new int[64];
+    this.max = new int[64];
+    this.amount = new int[64];
+    this.size = 1;
+    this.root = NONE;
+    this.beats = 64;
+  }
+
+  /**
+   * Constructs a tree holding the given counts, in time proportional to the number of nodes it
+   * needs rather than to the number of changes it would take to add them one by one.
+   *
+   * @param runs the first beat and the count of each run of beats with the same count, in order,
+   *             two values to a run, as given by runs(); the last run must have a count of 0
+   * @param size how many values of the array are used
+   */
+  PolyphonyTree(int[] runs, int size) {
+    this();
+    while (size > 0 && this.beats <= runs[size - 2]) {
+      this.beats *= 2;
+    }
+    this.root = this.build(runs, size, 0, 0, this.beats);
+  }
+
+  /**
+   * Constructs a copy of the given tree.
+   *
+   * @param other the tree to copy
+   */
+  PolyphonyTree(PolyphonyTree other) {
+    this.left = Arrays.copyOf(other.left, other.size);
+    this.right = Arrays.copyOf(other.right, other.size);
+    this.max = Arrays.copyOf(other.max, other.size);
+    this.amount = Arrays.copyOf(other.amount, other.size);
+    this.size = other.size;
+    this.root = other.root;
+    this.beats = other.beats;
+  }
+
+  /**
+   * Adds an amount to the count of every beat in [from, to).
+   *
+   * @param from  the first beat (inclusive)
+   * @param to    the last beat (exclusive)
+   * @param count how much to add, which is negative to take away
+   */
+  void add(int from, int to, int count) {
+    if (from >= to) {
+      return;
+    }
+    while (to > this.beats) {
+      // The old root becomes the left half of a new one, and the new right half has no notes.
+      int above = this.newNode();
+      this.left[above] = this.root;
+      this.max[above] = this.max[this.root];
+      this.root = above;
+      this.beats *= 2;
+    }
+    this.root = this.add(this.root, 0, this.beats, from, to, count);
+  }
+
+  /**
+   * Adds an amount to the count of every beat in [from, to) within a node's range.
+   *
+   * @param node the node, which is made if it is NONE
+   * @param low  the first beat of the node's range (inclusive)
+   * @param high the last beat of the node's range (exclusive)
+   * @return the node
+   */
+  private int add(int node, long low, long high, int from, int to, int count) {
+    if (node == NONE) {
+      node = this.newNode();
+    }
+    if (from <= low && high <= to) {
+      this.max[node] += count;
+      this.amount[node] += count;
+      return node;
+    }
+    long middle = (low + high) >>> 1;
+    if (from < middle) {
+      int child = this.add(this.left[node], low, middle, from, to, count);
+      this.left[node] = child;
+    }
+    if (to > middle) {
+      int child = this.add(this.right[node], middle, high, from, to, count);
+      this.right[node] = child;
+    }
+    this.max[node] = Math.max(this.max[this.left[node]], this.max[this.right[node]])
+            + this.amount[node];
+    return node;
+  }
+
+  /**
+   * Makes a new node with no children and nothing added to it.
+   *
+   * @return the new node
+   */
+  private int newNode() {
+    if (this.size == this.max.length) {
+      int capacity = this.size * 2;
+      this.left = Arrays.copyOf(this.left, capacity);
+      this.right = Arrays.copyOf(this.right, capacity);
+      this.max = Arrays.copyOf(this.max, capacity);
+      this.amount = Arrays.copyOf(this.amount, capacity);
+    }
+    this.size += 1;
+    return this.size - 1;
+  }
+
+  /**
+   * Returns how many notes are playing at a beat.
+   *
+   * @param beat the beat
+   * @return the count of that beat, which is 0 for beats outside the tree
+   */
+  int at(int beat) {
+    if (beat < 0 || beat >= this.beats) {
+      return 0;
+    }
+    int count = 0;
+    int node = this.root;
+    long low = 0;
+    long high = this.beats;
+    while (node != NONE) {
+      count += this.amount[node];
+      long middle = (low + high) >>> 1;
+      if (beat < middle) {
+        node = this.left[node];
+        high = middle;
+      } else {
+        node = this.right[node];
+        low = middle;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the largest number of notes playing at any one beat.
+   *
+   * @return the largest count
+   */
+  int max() {
+    return this.max[this.root];
+  }
+
+  /**
+   * Lists the counts of every beat as runs of beats with the same count, in order. Two trees with
+   * the same counts give the same runs, however they were built.
+   *
+   * @return the first beat and the count of each run, two values to a run; the last run has a
+   *         count of 0 and goes on forever
+   */
+  int[] runs() {
+    int[][] runs = {new int[16]};
+    int size = this.runs(this.root, 0, this.beats, 0, runs, 0);
+    if (runs[0][size - 1] != 0) {
+      size = this.addRun(runs, size, this.beats, 0);
+    }
+    return Arrays.copyOf(runs[0], size);
+  }
+
+  /**
+   * Adds the runs of counts within a node's range to a list of runs.
+   *
+   * @param node  the node
+   * @param low   the first beat of the node's range (inclusive)
+   * @param high  the last beat of the node's range (exclusive)
+   * @param above the sum of the amounts added to the node's ancestors
+   * @param runs  holds the list of runs, which is replaced by a larger array when full
+   * @param size  how many values the list holds
+   * @return how many values the list holds now
+   */
+  private int runs(int node, long low, long high, int above, int[][] runs, int size) {
+    int count = above + this.amount[node];
+    if (node != NONE && (this.left[node] != NONE || this.right[node] != NONE)) {
+      long middle = (low + high) >>> 1;
+      size = this.runs(this.left[node], low, middle, count, runs, size);
+      return this.runs(this.right[node], middle, high, count, runs, size);
+    }
+    if (size > 0 && runs[0][size - 1] == count) {
+      return size;
+    }
+    return this.addRun(runs, size, low, count);
+  }
+
+  /**
+   * Adds a run to the end of a list of runs.
+   *
+   * @return how many values the list holds now
+   */
+  private int addRun(int[][] runs, int size, long first, int count) {
+    if (size == runs[0].length) {
+      runs[0] = Arrays.copyOf(runs[0], size * 2);
+    }
+    runs[0][size] = (int) first;
+    runs[0][size + 1] = count;
+    return size + 2;
+  }
+
+  /**
+   * Builds the nodes for a range of beats from a list of runs.
+   *
+   * @param runs  the runs, as given to the constructor
+   * @param size  how many values of the array are used
+   * @param first the index of the run holding the first beat of the range
+   * @param low   the first beat of the range (inclusive)
+   * @param high  the last beat of the range (exclusive)
+   * @return the node for the range, or NONE if every count in it is 0
+   */
+  private int build(int[] runs, int size, int first, long low, long high) {
+    boolean wholeRange = first + 2 >= size || runs[first + 2] >= high;
+    if (wholeRange) {
+      int count = runs[first + 1];
+      if (count == 0) {
+        return NONE;
+      }
+      int node = this.newNode();
+      this.max[node] = count;
+      this.amount[node] = count;
+      return node;
+    }
+    long middle = (low + high) >>> 1;
+    int second = first;
+    while (second + 2 < size && runs[second + 2] <= middle) {
+      second += 2;
+    }
+    int node = this.newNode();
+    int leftChild = this.build(runs, size, first, low, middle);
+    int rightChild = this.build(runs, size, second, middle, high);
+    this.left[node] = leftChild;
+    this.right[node] = rightChild;
+    this.max[node] = Math.max(this.max[leftChild], this.max[rightChild]);
+    return node;
+  }
+}
@@ -0,0 +1,87 @@
+package cs3500.music.model;
+
+import java.util.Objects;
+
+/**
+ * A summary of the sounds starting within a range of beats: how many there are, the loudest of
+ * them and the sum of their volumes.
+ */
+public final class RangeSummary {
+  private final int count;
+  private final int maxVolume;
+  private final long volumeSum;
+
+  /**
+   * Constructs a summary.
+   *
+   * @param count     the number of sounds
+   * @param maxVolume the loudest volume of the sounds, or -1 if there are none
+   * @param volumeSum the sum of the volumes of the sounds
+   */
+  RangeSummary(int count, int maxVolume, long volumeSum) {
+    this.count = count;
+    this.maxVolume = maxVolume;
+    this.volumeSum = volumeSum;
+  }
+
+  /**
+   * Returns the number of sounds in the range.
+   *
+   * @return the number of sounds
+   */
+  public int getNoteCount() {
+    return this.count;
+  }
+
+  /**
+   * Returns the volume of the loudest sound in the range.
+   *
+   * @return the loudest volume, or -1 if there are no sounds in the range
+   */
+  public int getMaxVolume() {
+    return this.maxVolume;
+  }
+
+  /**
+   * Returns the sum of the volumes of the sounds in the range.
+   *
+   * @return the sum of the volumes
+   */
+  public long getVolumeSum() {
+    return this.volumeSum;
+  }
+
+  /**
+   * Adds another summary to this one, as if their ranges were one.
+   *
+   * @param other the summary to add
+   * @return the summary of both
+   */
+  RangeSummary plus(RangeSummary other) {
+    return new RangeSummary(this.count + other.count, Math.max(this.maxVolume, other.maxVolume),
+            this.volumeSum + other.volumeSum);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof RangeSummary)) {
+      return false;
+    }
+    RangeSummary that = (RangeSummary) other;
+    return this.count == that.count && this.maxVolume == that.maxVolume
+            && this.volumeSum == that.volumeSum;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.count, this.maxVolume, this.volumeSum);
+  }
+
+  @Override
+  public String toString() {
+    return this.count + " notes, loudest " + this.maxVolume + ", volume sum " + this.volumeSum;
+  }
+}
@@ -0,0 +1,161 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+
+/**
+ * A change to the timing of a batch of notes: either snapping them to a grid, or stretching them
+ * by a ratio. Once every note has its new start and end, notes on the same instrument and pitch
+ * which now collide are sorted out, since a MIDI channel cannot play the same key twice at once:
+ * where two such notes start on the same tick only the longer is kept (the first, if they are
+ * equally long), and a note still sounding when the next one starts is cut short to end there.
+ */
+abstract class Retiming {
+
+  /**
+   * Returns a retiming which moves the start and end of each note to the nearest multiple of the
+   * grid, halves rounding up. A note which would then last no time at all is given one grid step.
+   *
+   * @param grid the size of the grid, in ticks
+   * @return the retiming
+   * @throws IllegalArgumentException if the grid is smaller than one tick
+   */
+  static Retiming quantize(int grid) {
+    if (grid < 1) {
+      throw new IllegalArgumentException("Grid must be at least one tick.");
+    }
+    return new Retiming() {
+      @Override
+      int start(int start) {
+        return snap(start);
+      }
+
+      @Override
+      int end(int start, int end) {
+        int snapped = snap(end);
+        return snapped > snap(start) ? snapped : snap(start) + grid;
+      }
+
+      private int snap(int beat) {
+        return (int) Math.min(Integer.MAX_VALUE - grid, (beat + (long) grid / 2) / grid * grid);
+      }
+    };
+  }
+
+  /**
+   * Returns a retiming which stretches the time between an anchor tick and each note's start and
+   * end by a ratio, rounding to the nearest tick. A note keeps lasting at least one tick.
+   *
+   * @param anchor the tick which stays where it is
+   * @param ratio  how much longer to make the notes and the gaps between them
+   * @return the retiming
+   * @throws IllegalArgumentException if the ratio is not positive
+   */
+  static Retiming stretch(int anchor, double ratio) {
+    if (!(ratio > 0) || Double.isInfinite(ratio)) {
+      throw new IllegalArgumentException("Stretch ratio must be positive.");
+    }
+    return new Retiming() {
+      @Override
+      int start(int start) {
+        return scale(start);
+      }
+
+      @Override
+      int end(int start, int end) {
+        return Math.max(scale(start) + 1, scale(end));
+      }
+
+      private int scale(int beat) {
+        double scaled = Math.rint(anchor + (beat - anchor) * ratio);
+        if (scaled > Integer.MAX_VALUE - 1) {
+          throw new IllegalArgumentException("Stretched note would end too late.");
+        }
+        return (int) scaled;
+      }
+    };
+  }
+
+  /**
+   * Returns the new start time of a note.
+   *
+   * @param start the note's start time
+   * @return its new start time
+   */
+  abstract int start(int start);
+
+  /**
+   * Returns the new end time of a note, which is after its new start time.
+   *
+   * @param start the note's start time
+   * @param end   the note's end time
+   * @return its new end time
+   */
+  abstract int end(int start, int end);
+
+  /**
+   * Retimes a batch of notes, five values to a note as start, end, instrument, pitch and volume,
+   * and sorts out the collisions this causes. Notes which have to be dropped are given a start of
+   * -1. The batch is changed in place.
+   *
+   * @param notes the notes, ordered by start time and then by the order they were added
+   * @param count how many notes there are
+   */
+  void apply(int[] notes, int count) {
+    for (int i = 0; i < count; i += 1) {
+      int at = i * 5;
+      int start = notes[at];
+      notes[at] = this.start(start);
+      notes[at + 1] = this.end(start, notes[at + 1]);
+    }
+
+    // Group notes by instrument and pitch with a counting sort, then sort each group by new start
+    // time, keeping the notes' own order on a tie.
+    int[] groupStart = new int[128 * 128 + 1];
+    for (int i = 0; i < count; i += 1) {
+      groupStart[group(notes, i) + 1] += 1;
+    }
+    for (int g = 0; g < 128 * 128; g += 1) {
+      groupStart[g + 1] += groupStart[g];
+    }
+    long[] keys = new long[count];
+    int[] next = Arrays.copyOf(groupStart, 128 * 128);
+    for (int i = 0; i < count; i += 1) {
+      int g = group(notes, i);
+      keys[next[g]] = ((long) notes[i * 5] << 32) | i;
+      next[g] += 1;
+    }
+
+    for (int g = 0; g < 128 * 128; g += 1) {
+      int from = groupStart[g];
+      int to = groupStart[g + 1];
+      if (to - from < 2) {
+        continue;
+      }
+      Arrays.sort(keys, from, to);
+      int kept = (int) keys[from];
+      for (int k = from + 1; k < to; k += 1) {
+        int i = (int) keys[k];
+        if (notes[i * 5] == notes[kept * 5]) {
+          if (notes[i * 5 + 1] > notes[kept * 5 + 1]) {
+            notes[kept * 5] = -1;
+            kept = i;
+          } else {
+            notes[i * 5] = -1;
+          }
+        } else {
+          if (notes[kept * 5 + 1] > notes[i * 5]) {
+            notes[kept * 5 + 1] = notes[i * 5];
+          }
+          kept = i;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns which group a note belongs to, by its instrument and pitch.
+   */
+  private static int group(int[] notes, int i) {
+    return notes[i * 5 + 2] * 128 + notes[i * 5 + 3];
+  }
+}
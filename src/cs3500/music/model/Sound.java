@@ -85,7 +85,7 @@ public class Sound {
       return false;
     }
     Sound that = (Sound) other;
-    return this.note.equals(that.note) && this.beatLength == that.beatLength
+    return this.note.getValue() == that.note.getValue() && this.beatLength == that.beatLength
             && this.startBeat == that.startBeat
             && this.instrument == that.instrument
             && this.volume == that.volume;
@@ -98,12 +98,22 @@ public class Sound {
   }
 
   /**
-   * Getter method for the note field of the sound piece.
+   * Getter method for the note field of the sound piece. Notes are immutable and shared, so no
+   * copy is made.
    *
-   * @return a copy of the note of the current sound piece
+   * @return the note of the current sound piece
    */
   public Note getNote() {
-    return new Note(this.note);
+    return this.note;
+  }
+
+  /**
+   * Getter method for the integer value of this sound's note, without going through a Note.
+   *
+   * @return this sound's pitch, in the range [0, 127]
+   */
+  public int getPitch() {
+    return this.note.getValue();
   }
 
   /**
@@ -0,0 +1,69 @@
+package cs3500.music.model;
+
+/**
+ * A read-only, reusable view over a sequence of sounds in a model. Rather than allocating a Sound
+ * for every note, a cursor is moved from one note to the next and its getters describe the note it
+ * is currently on. A cursor starts before the first note, so next() must be called before the
+ * getters are used:
+ *
+ * <pre>
+ *   SoundCursor c = model.getSounds();
+ *   while (c.next()) {
+ *     play(c.getPitch(), c.getStartBeat(), c.getEndBeat());
+ *   }
+ * </pre>
+ *
+ * <p>A cursor is only valid until the model it came from is next modified.</p>
+ */
+public interface SoundCursor {
+
+  /**
+   * Moves the cursor to the next sound.
+   *
+   * @return true if the cursor is now on a sound, false if there are no more sounds
+   */
+  boolean next();
+
+  /**
+   * Returns the beat at which the current sound starts playing (inclusive).
+   *
+   * @return the start beat of the current sound
+   */
+  int getStartBeat();
+
+  /**
+   * Returns the beat at which the current sound stops playing (exclusive). This is the same end
+   * beat that the sound was added to the model with.
+   *
+   * @return the end beat of the current sound
+   */
+  int getEndBeat();
+
+  /**
+   * Returns the instrument of the current sound.
+   *
+   * @return the instrument number (to be interpreted by MIDI)
+   */
+  int getInstrument();
+
+  /**
+   * Returns the pitch of the current sound.
+   *
+   * @return the pitch, in the range [0, 127], where 60 represents C4
+   */
+  int getPitch();
+
+  /**
+   * Returns the volume of the current sound.
+   *
+   * @return the volume, in the range [0, 127]
+   */
+  int getVolume();
+
+  /**
+   * Returns a new Sound object equal to the current sound, for callers that need to keep it.
+   *
+   * @return a copy of the current sound
+   */
+  Sound getSound();
+}
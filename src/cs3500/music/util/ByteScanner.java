@@ -0,0 +1,275 @@
+package cs3500.music.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * Splits UTF-8 text read from a stream into tokens the way a {@link Scanner} with its default
+ * delimiter does, but works on the bytes directly: the stream is read in large chunks, and whole
+ * numbers are worked out digit by digit without making a string of each token. Strings are only
+ * made for the messages of errors and for the rare number that is not written as plain ASCII
+ * digits, such as one with a thousands separator, which is handed to a Scanner so that every
+ * number a Scanner reads is read the same way here.
+ *
+ * <p>Like a Scanner, a token that is not a number is not consumed by {@link #nextInt()}, so
+ * {@link #nextLine()} after a failure returns the line from the bad token on.</p>
+ */
+final class ByteScanner {
+  private static final int CHUNK_SIZE = 1 << 16;
+  // Which ASCII characters separate tokens, as Character.isWhitespace decides.
+  private static final boolean[] SPACE = new boolean[128];
+
+  static {
+    for (int c = 0; c < 128; c += 1) {
+      SPACE[c] = Character.isWhitespace(c);
+    }
+  }
+
+  private final InputStream in;
+  private byte[] buf;
+  // The bytes not yet consumed are buf[pos, limit).
+  private int pos;
+  private int limit;
+  private boolean eof;
+  // The number of bytes dropped from the front of the buffer, so pos is at this plus pos.
+  private long dropped;
+  // Set by findToken to the length of the token starting at pos.
+  private int tokenLength;
+
+  /**
+   * Constructs a scanner reading from the given stream, which is not closed.
+   *
+   * @param in the stream, holding UTF-8 text
+   */
+  ByteScanner(InputStream in) {
+    this.in = in;
+    this.buf = new byte[CHUNK_SIZE];
+    this.pos = 0;
+    this.limit = 0;
+    this.eof = false;
+    this.dropped = 0;
+  }
+
+  /**
+   * Returns whether there is another token.
+   *
+   * @return true if a token is left before the end of the stream
+   * @throws IOException if the stream cannot be read
+   */
+  boolean hasNext() throws IOException {
+    return this.findToken();
+  }
+
+  /**
+   * Returns how many bytes of the stream have been consumed, which after hasNext is where the next
+   * token starts.
+   *
+   * @return the offset of the next byte in the stream
+   */
+  long offset() {
+    return this.dropped + this.pos;
+  }
+
+  /**
+   * Returns whether the next token, which must have been found, is the given word, and consumes
+   * it if so.
+   *
+   * @param word the word, in ASCII
+   * @return true if the token is the word
+   */
+  boolean nextIs(byte[] word) {
+    if (!this.peekIs(word)) {
+      return false;
+    }
+    this.pos += this.tokenLength;
+    return true;
+  }
+
+  /**
+   * Returns whether the next token, which must have been found, is the given word, without
+   * consuming it.
+   *
+   * @param word the word, in ASCII
+   * @return true if the token is the word
+   */
+  boolean peekIs(byte[] word) {
+    if (this.tokenLength != word.length) {
+      return false;
+    }
+    for (int i = 0; i < word.length; i += 1) {
+      if (this.buf[this.pos + i] != word[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Consumes the next token, which must have been found, and returns it.
+   *
+   * @return the token
+   */
+  String next() {
+    String token = new String(this.buf, this.pos, this.tokenLength, StandardCharsets.UTF_8);
+    this.pos += this.tokenLength;
+    return token;
+  }
+
+  /**
+   * Consumes the next token as a whole number, in the same forms as Scanner.nextInt.
+   *
+   * @return the number
+   * @throws InputMismatchException if the next token is not a number, which is not consumed
+   * @throws NoSuchElementException if there are no tokens left
+   * @throws IOException            if the stream cannot be read
+   */
+  int nextInt() throws IOException {
+    if (!this.findToken()) {
+      throw new NoSuchElementException();
+    }
+    int at = this.pos;
+    int end = this.pos + this.tokenLength;
+    boolean negative = this.buf[at] == '-';
+    if (negative || this.buf[at] == '+') {
+      at += 1;
+    }
+    // Ten digits always fit in a long, and anything longer goes to the Scanner.
+    if (at < end && end - at <= 10) {
+      long value = 0;
+      while (at < end && this.buf[at] >= '0' && this.buf[at] <= '9') {
+        value = value * 10 + (this.buf[at] - '0');
+        at += 1;
+      }
+      value = negative ? -value : value;
+      if (at == end && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+        this.pos = end;
+        return (int) value;
+      }
+    }
+    Scanner token = new Scanner(
+            new String(this.buf, this.pos, this.tokenLength, StandardCharsets.UTF_8));
+    if (!token.hasNextInt()) {
+      throw new InputMismatchException();
+    }
+    this.pos = end;
+    return token.nextInt();
+  }
+
+  /**
+   * Returns the rest of the current line, from pos, without the line separator, as
+   * Scanner.nextLine does. This is only used for the messages of errors, so the line is left
+   * unconsumed.
+   *
+   * @return the rest of the line
+   * @throws NoSuchElementException if the stream has been read to the end
+   * @throws IOException            if the stream cannot be read
+   */
+  String nextLine() throws IOException {
+    if (!this.ensure(1)) {
+      throw new NoSuchElementException("No line found");
+    }
+    int length = 0;
+    while (this.ensure(length + 1)
+            && this.buf[this.pos + length] != '\n' && this.buf[this.pos + length] != '\r') {
+      length += 1;
+    }
+    String line = new String(this.buf, this.pos, length, StandardCharsets.UTF_8);
+    // The other line separators are not ASCII, and are only found once the line is decoded.
+    for (int i = 0; i < line.length(); i += 1) {
+      char c = line.charAt(i);
+      if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return line.substring(0, i);
+      }
+    }
+    return line;
+  }
+
+  /**
+   * Skips the separators before the next token and measures it, reading as much of the stream as
+   * it takes to hold the whole token.
+   *
+   * @return true if there is a token, whose length is then in tokenLength
+   * @throws IOException if the stream cannot be read
+   */
+  private boolean findToken() throws IOException {
+    while (true) {
+      if (!this.ensure(1)) {
+        return false;
+      }
+      int space = this.spaceAt(0);
+      if (space == 0) {
+        break;
+      }
+      this.pos += space;
+    }
+    int length = 1;
+    while (this.ensure(length + 1) && this.spaceAt(length) == 0) {
+      length += 1;
+    }
+    this.tokenLength = length;
+    return true;
+  }
+
+  /**
+   * Returns the length in bytes of the separator at an offset from pos, or 0 if the character
+   * there does not separate tokens. The only separators outside ASCII take three bytes in UTF-8,
+   * such as U+2003 EM SPACE.
+   *
+   * @param offset the offset, which must be within the bytes read
+   * @return the length of the separator, or 0
+   * @throws IOException if the stream cannot be read
+   */
+  private int spaceAt(int offset) throws IOException {
+    int b = this.buf[this.pos + offset] & 0xFF;
+    if (b < 128) {
+      return SPACE[b] ? 1 : 0;
+    }
+    if (b < 0xE1 || b > 0xE3 || !this.ensure(offset + 3)) {
+      return 0;
+    }
+    int second = this.buf[this.pos + offset + 1] & 0xFF;
+    int third = this.buf[this.pos + offset + 2] & 0xFF;
+    if ((second & 0xC0) != 0x80 || (third & 0xC0) != 0x80) {
+      return 0;
+    }
+    int c = (b & 0x0F) << 12 | (second & 0x3F) << 6 | (third & 0x3F);
+    return Character.isWhitespace(c) ? 3 : 0;
+  }
+
+  /**
+   * Reads the stream until at least the given number of bytes past pos have been read, or it
+   * ends. The bytes before pos are dropped, and the buffer grows if it is too small.
+   *
+   * @param count the number of bytes wanted
+   * @return true if that many bytes are there
+   * @throws IOException if the stream cannot be read
+   */
+  private boolean ensure(int count) throws IOException {
+    while (this.limit - this.pos < count) {
+      if (this.eof) {
+        return false;
+      }
+      if (this.pos > 0) {
+        System.arraycopy(this.buf, this.pos, this.buf, 0, this.limit - this.pos);
+        this.limit -= this.pos;
+        this.dropped += this.pos;
+        this.pos = 0;
+      }
+      if (this.limit == this.buf.length) {
+        this.buf = Arrays.copyOf(this.buf, this.buf.length * 2);
+      }
+      int read = this.in.read(this.buf, this.limit, this.buf.length - this.limit);
+      if (read < 0) {
+        this.eof = true;
+      } else {
+        this.limit += read;
+      }
+    }
+    return true;
+  }
+}
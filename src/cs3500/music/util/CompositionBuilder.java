@@ -23,11 +23,23 @@ public interface CompositionBuilder<T> {
    */
   CompositionBuilder<T> setTempo(int tempo);
 
+  /**
+   * Sets the resolution of the piece. The start and end times of the notes are then in ticks, so
+   * this must be set before any note is added.
+   *
+   * @param ticksPerBeat The number of ticks in each beat
+   * @return This builder
+   * @throws IllegalArgumentException if ticksPerBeat is less than 1, or notes have been added
+   */
+  CompositionBuilder<T> setResolution(int ticksPerBeat);
+  // Added: so performances recorded in ticks, such as at 480 per beat, can be read.
+
   /**
    * Adds a new note to the piece.
    *
-   * @param start      The start time of the note, in beats
-   * @param end        The end time of the note, in beats
+   * @param start      The start time of the note, in ticks (which are beats unless the resolution
+   *                   has been set)
+   * @param end        The end time of the note, in ticks
    * @param instrument The instrument number (to be interpreted by MIDI)
    * @param pitch      The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
    *                   piano)
@@ -35,4 +47,27 @@ public interface CompositionBuilder<T> {
    * @return this composition builder but with a note added to this model.
    */
   CompositionBuilder<T> addNote(int start, int end, int instrument, int pitch, int volume);
+
+  /**
+   * Adds many notes to the piece at once. The i-th note is made of the i-th element of each
+   * array, and the result is the same as adding each note, in order, with addNote, which is all
+   * this default does. Builders that can index a whole batch of notes faster than one note at a
+   * time should override it. The arrays may be reused by the caller once this returns.
+   *
+   * @param starts      The start times of the notes, in ticks
+   * @param ends        The end times of the notes, in ticks
+   * @param instruments The instrument numbers (to be interpreted by MIDI)
+   * @param pitches     The pitches (in the range [0, 127], where 60 represents C4, the middle-C on
+   *                    a piano)
+   * @param volumes     The volumes (in the range [0, 127])
+   * @param count       How many notes, taken from the front of the arrays, to add
+   * @return this composition builder but with the notes added to this model.
+   */
+  default CompositionBuilder<T> addNotes(int[] starts, int[] ends, int[] instruments,
+                                         int[] pitches, int[] volumes, int count) {
+    for (int i = 0; i < count; i += 1) {
+      this.addNote(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    return this;
+  }
 }
@@ -1,23 +1,48 @@
 package cs3500.music.util;
 
+import java.util.Arrays;
+
 import cs3500.music.model.MusicModel;
 
 /**
- * Class implemented for building our specific MusicModel by adding notes.
+ * Class implemented for building our specific MusicModel by adding notes. Notes are collected
+ * as they are added and only handed to the model, all in one batch, when it is built, so the model
+ * can sort and index them in a single pass.
  */
 public class ModelBuilder implements CompositionBuilder<MusicModel> {
 
   private MusicModel model;
+  // Added: notes waiting to be handed to the model, as parallel columns.
+  private int[] starts;
+  private int[] ends;
+  private int[] instruments;
+  private int[] pitches;
+  private int[] volumes;
+  private int count;
 
   /**
    * Constructs a new ModelBuilder with an empty MusicModel.
    */
   public ModelBuilder() {
     this.model = new MusicModel();
+    this.starts = new int[64];
+    this.ends = new int[64];
+    this.instruments = new int[64];
+    this.pitches = new int[64];
+    this.volumes = new int[64];
+    this.count = 0;
   }
 
   @Override
   public MusicModel build() {
+    if (this.count > 0) {
+      this.model.addNotes(Arrays.copyOf(this.starts, this.count),
+              Arrays.copyOf(this.ends, this.count), Arrays.copyOf(this.instruments, this.count),
+              Arrays.copyOf(this.pitches, this.count), Arrays.copyOf(this.volumes, this.count));
+      this.count = 0;
+    }
+    // A piece that has just been built has nothing to undo.
+    this.model.clearHistory();
     return this.model;
   }
 
@@ -27,10 +52,61 @@ public class ModelBuilder implements CompositionBuilder<MusicModel> {
     return this;
   }
 
+  @Override
+  public CompositionBuilder<MusicModel> setResolution(int ticksPerBeat) {
+    // The model holds no notes until it is built, so the ones waiting here are checked instead.
+    if (this.count > 0) {
+      throw new IllegalArgumentException("Resolution cannot be changed once there are notes.");
+    }
+    this.model.setResolution(ticksPerBeat);
+    return this;
+  }
+
   @Override
   public CompositionBuilder<MusicModel> addNote(int start, int end, int instrument,
                                                 int pitch, int volume) {
-    this.model.addNote(start, end, instrument, pitch, volume);
+    // Checked now rather than when built, so the first bad line of a file is the one reported.
+    MusicModel.checkValidSound(start, end, instrument, pitch, volume);
+    this.ensureCapacity(1);
+    this.starts[this.count] = start;
+    this.ends[this.count] = end;
+    this.instruments[this.count] = instrument;
+    this.pitches[this.count] = pitch;
+    this.volumes[this.count] = volume;
+    this.count += 1;
     return this;
   }
+
+  @Override
+  public CompositionBuilder<MusicModel> addNotes(int[] starts, int[] ends, int[] instruments,
+                                                 int[] pitches, int[] volumes, int count) {
+    for (int i = 0; i < count; i += 1) {
+      MusicModel.checkValidSound(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    this.ensureCapacity(count);
+    System.arraycopy(starts, 0, this.starts, this.count, count);
+    System.arraycopy(ends, 0, this.ends, this.count, count);
+    System.arraycopy(instruments, 0, this.instruments, this.count, count);
+    System.arraycopy(pitches, 0, this.pitches, this.count, count);
+    System.arraycopy(volumes, 0, this.volumes, this.count, count);
+    this.count += count;
+    return this;
+  }
+
+  /**
+   * Grows the buffered columns, if needed, so that the given number of further notes fit.
+   *
+   * @param extra the number of notes about to be added
+   */
+  private void ensureCapacity(int extra) {
+    int needed = this.count + extra;
+    if (needed > this.starts.length) {
+      int capacity = Math.max(needed, this.starts.length * 2);
+      this.starts = Arrays.copyOf(this.starts, capacity);
+      this.ends = Arrays.copyOf(this.ends, capacity);
+      this.instruments = Arrays.copyOf(this.instruments, capacity);
+      this.pitches = Arrays.copyOf(this.pitches, capacity);
+      this.volumes = Arrays.copyOf(this.volumes, capacity);
+    }
+  }
 }
@@ -1,33 +1,59 @@
 package cs3500.music.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 
+import cs3500.music.model.MusicFile;
+
 /**
  * A helper to read music data and construct a music composition from it.
  */
 public class MusicReader {
+  // Added: notes are read into batches of this size and handed to the builder together.
+  private static final int BATCH_SIZE = 1024;
+  // Added: the line types, as the bytes parseStream compares tokens against.
+  static final byte[] TEMPO = "tempo".getBytes(StandardCharsets.US_ASCII);
+  static final byte[] RESOLUTION = "resolution".getBytes(StandardCharsets.US_ASCII);
+  static final byte[] NOTE = "note".getBytes(StandardCharsets.US_ASCII);
+
   /**
    * A factory for producing new music compositions, given a source of music and a
    * builder for constructing compositions.
    *
    * <p>
-   * The input file format consists of two types of lines:
+   * The input file format consists of three types of lines:
    * <ul>
    * <li>Tempo lines: the keyword "tempo" followed by a number,
    * describing the tempo in microseconds per beat</li>
+   * <li>Resolution lines: the keyword "resolution" followed by a number,
+   * describing how many ticks make up a beat. If there is one it must come
+   * before every note line; without one, a tick is a beat</li>
    * <li>Note lines: the keyword "note" followed by five numbers indicating
-   * the start and end times of the note, the instrument,
+   * the start and end times of the note in ticks, the instrument,
    * the pitch, and the volume</li>
    * </ul>
    * </p>
    *
+   * <p>Notes are passed to the builder in batches through
+   * {@link CompositionBuilder#addNotes}, in the order they appear in the file.</p>
+   *
    * @param readable The source of data for the music composition
    * @param piece    A builder for helping to construct a new composition
    * @param <T>      The main model interface type describing music compositions
    */
   public static <T> T parseFile(Readable readable, CompositionBuilder<T> piece) {
     Scanner scanner = new Scanner(readable);
+    int[] starts = new int[BATCH_SIZE];
+    int[] ends = new int[BATCH_SIZE];
+    int[] instruments = new int[BATCH_SIZE];
+    int[] pitches = new int[BATCH_SIZE];
+    int[] volumes = new int[BATCH_SIZE];
+    int count = 0;
+    boolean anyNotes = false;
     while (scanner.hasNext()) {
       String lineType = scanner.next();
       switch (lineType) {
@@ -35,26 +61,178 @@ public class MusicReader {
           try {
             piece.setTempo(scanner.nextInt());
           } catch (NoSuchElementException e) {
+            flush(piece, starts, ends, instruments, pitches, volumes, count);
             throw new IllegalArgumentException("Malformed tempo line: " + scanner.nextLine());
           }
           break;
+        case "resolution":
+          if (anyNotes) {
+            flush(piece, starts, ends, instruments, pitches, volumes, count);
+            throw new IllegalArgumentException("Resolution must come before every note.");
+          }
+          try {
+            piece.setResolution(scanner.nextInt());
+          } catch (NoSuchElementException e) {
+            flush(piece, starts, ends, instruments, pitches, volumes, count);
+            throw new IllegalArgumentException("Malformed resolution line: " + scanner.nextLine());
+          }
+          break;
         case "note":
+          anyNotes = true;
           try {
-            int startBeat = scanner.nextInt();
-            int endBeat = scanner.nextInt();
-            int instrument = scanner.nextInt();
-            int pitch = scanner.nextInt();
-            int volume = scanner.nextInt();
-            piece.addNote(startBeat, endBeat, instrument, pitch, volume);
+            starts[count] = scanner.nextInt();
+            ends[count] = scanner.nextInt();
+            instruments[count] = scanner.nextInt();
+            pitches[count] = scanner.nextInt();
+            volumes[count] = scanner.nextInt();
           } catch (NoSuchElementException e) {
+            flush(piece, starts, ends, instruments, pitches, volumes, count);
             throw new IllegalArgumentException("Malformed note line: " + scanner.nextLine());
           }
+          count += 1;
+          if (count == BATCH_SIZE) {
+            piece.addNotes(starts, ends, instruments, pitches, volumes, count);
+            count = 0;
+          }
           break;
         default:
+          flush(piece, starts, ends, instruments, pitches, volumes, count);
           throw new IllegalArgumentException("Bad line type: " + lineType);
       }
     }
 
+    if (count > 0) {
+      piece.addNotes(starts, ends, instruments, pitches, volumes, count);
+    }
+    return piece.build();
+  }
+
+  /**
+   * Reads a music composition in the format read by parseFile from a stream of UTF-8 text, with
+   * the same result, and the same errors for malformed input, as parseFile given the stream as a
+   * reader. It is much faster on large files: the stream is read in large chunks and the numbers
+   * are read straight from its bytes, without the regular expressions of a Scanner or a string
+   * for every token.
+   *
+   * @param in    The source of data for the music composition, which is not closed
+   * @param piece A builder for helping to construct a new composition
+   * @param <T>   The main model interface type describing music compositions
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  public static <T> T parseStream(InputStream in, CompositionBuilder<T> piece)
+          throws IOException {
+    return parse(new ByteScanner(in), piece, false);
+  }
+
+  /**
+   * Reads a music composition file in the format read by parseFile, on as many threads as there
+   * are processors, with the same result, and the same errors for malformed input, as parseStream
+   * reading the file. The file is memory-mapped and split at line breaks into chunks, which are
+   * parsed at the same time and then given to the builder in the order of the file, so the notes
+   * reach it in the same order and the last tempo line is the one that counts, wherever it is.
+   *
+   * @param file  The file holding the music composition, in UTF-8 text
+   * @param piece A builder for helping to construct a new composition
+   * @param <T>   The main model interface type describing music compositions
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  public static <T> T parseParallel(Path file, CompositionBuilder<T> piece) throws IOException {
+    return ParallelParser.parse(file, piece);
+  }
+
+  /**
+   * Reads the rest of a composition from a scanner, as parseStream does, and builds it.
+   *
+   * @param scanner  The scanner, at the start of a line
+   * @param piece    A builder for helping to construct a new composition
+   * @param anyNotes Whether the builder has been given notes already, so a resolution line is
+   *                 too late
+   * @param <T>      The main model interface type describing music compositions
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  static <T> T parse(ByteScanner scanner, CompositionBuilder<T> piece, boolean anyNotes)
+          throws IOException {
+    int[] starts = new int[BATCH_SIZE];
+    int[] ends = new int[BATCH_SIZE];
+    int[] instruments = new int[BATCH_SIZE];
+    int[] pitches = new int[BATCH_SIZE];
+    int[] volumes = new int[BATCH_SIZE];
+    int count = 0;
+    while (scanner.hasNext()) {
+      if (scanner.nextIs(NOTE)) {
+        anyNotes = true;
+        try {
+          starts[count] = scanner.nextInt();
+          ends[count] = scanner.nextInt();
+          instruments[count] = scanner.nextInt();
+          pitches[count] = scanner.nextInt();
+          volumes[count] = scanner.nextInt();
+        } catch (NoSuchElementException e) {
+          flush(piece, starts, ends, instruments, pitches, volumes, count);
+          throw new IllegalArgumentException("Malformed note line: " + scanner.nextLine());
+        }
+        count += 1;
+        if (count == BATCH_SIZE) {
+          piece.addNotes(starts, ends, instruments, pitches, volumes, count);
+          count = 0;
+        }
+      } else if (scanner.nextIs(TEMPO)) {
+        try {
+          piece.setTempo(scanner.nextInt());
+        } catch (NoSuchElementException e) {
+          flush(piece, starts, ends, instruments, pitches, volumes, count);
+          throw new IllegalArgumentException("Malformed tempo line: " + scanner.nextLine());
+        }
+      } else if (scanner.nextIs(RESOLUTION)) {
+        if (anyNotes) {
+          flush(piece, starts, ends, instruments, pitches, volumes, count);
+          throw new IllegalArgumentException("Resolution must come before every note.");
+        }
+        try {
+          piece.setResolution(scanner.nextInt());
+        } catch (NoSuchElementException e) {
+          flush(piece, starts, ends, instruments, pitches, volumes, count);
+          throw new IllegalArgumentException("Malformed resolution line: " + scanner.nextLine());
+        }
+      } else {
+        flush(piece, starts, ends, instruments, pitches, volumes, count);
+        throw new IllegalArgumentException("Bad line type: " + scanner.next());
+      }
+    }
+
+    if (count > 0) {
+      piece.addNotes(starts, ends, instruments, pitches, volumes, count);
+    }
     return piece.build();
   }
+
+  /**
+   * Gives the builder the notes read but not yet given to it, before an error in a later line is
+   * thrown, so that an error in one of those notes is the one reported, as it comes first.
+   *
+   * @param piece the builder
+   * @param count the number of notes read
+   */
+  private static void flush(CompositionBuilder<?> piece, int[] starts, int[] ends,
+                            int[] instruments, int[] pitches, int[] volumes, int count) {
+    if (count > 0) {
+      piece.addNotes(starts, ends, instruments, pitches, volumes, count);
+    }
+  }
+
+  /**
+   * Converts a piece from the text format read by parseFile to the binary format of MusicFile,
+   * which can be opened without parsing anything.
+   *
+   * @param readable The source of data for the music composition, in the text format
+   * @param binary   The binary file to write, which is replaced if it exists
+   * @throws IOException              if the binary file cannot be written
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  public static void convertToBinary(Readable readable, Path binary) throws IOException {
+    MusicFile.write(parseFile(readable, new ModelBuilder()), binary);
+  }
 }
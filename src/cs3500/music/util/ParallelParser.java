@@ -0,0 +1,451 @@
+package cs3500.music.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads a composition file in the text format on many threads. The file is split into chunks at
+ * line breaks, each chunk is memory-mapped and parsed on its own by a fork/join pool into a
+ * buffer of its notes and its other lines, and the buffers are then handed to the builder one
+ * after another in the order of the file. As everything reaches the builder in that order, tempo
+ * and resolution lines take effect wherever they are, and the first error in the file is the one
+ * thrown, so the result is the same as reading the file from start to end.
+ *
+ * <p>A note may be written across lines, so a chunk may end partway through one. The chunk after
+ * it then starts with the rest of that note, so each chunk skips any numbers it starts with and
+ * parses from its first line type on. While the chunks are replayed, a note left unfinished is
+ * read again from its start on into the next chunk, and the next chunk is used from the line after
+ * it. Should that line not be where the next chunk started parsing, only that one chunk is parsed
+ * again from there.</p>
+ */
+final class ParallelParser {
+  // Chunks are about this long, unless the file is large enough that more are needed to keep
+  // under MAX_CHUNKS.
+  private static final long CHUNK_BYTES = 1 << 22;
+  private static final int MAX_CHUNKS = 4096;
+  // How much of the file is mapped at a time while looking for a line break.
+  private static final int WINDOW_BYTES = 1 << 16;
+
+  /**
+   * What each kind of event in a chunk does: a tempo line sets the tempo, a resolution line
+   * first checks no note came before it and then, if its number could be read, sets the
+   * resolution.
+   */
+  private static final int TEMPO = 0;
+  private static final int CHECK = 1;
+  private static final int RESOLUTION = 2;
+
+  private ParallelParser() {
+  }
+
+  /**
+   * Reads a composition file, with the same result, and the same errors for malformed input, as
+   * MusicReader.parseStream reading it from start to end.
+   *
+   * @param path  the file, holding UTF-8 text
+   * @param piece the builder to give the composition to
+   * @param <T>   the main model interface type describing music compositions
+   * @return the built composition
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  static <T> T parse(Path path, CompositionBuilder<T> piece) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long[] bounds = split(channel);
+      Chunk[] chunks = new Chunk[bounds.length - 1];
+      for (int i = 0; i < chunks.length; i += 1) {
+        chunks[i] = new Chunk(channel, bounds[i], bounds[i + 1], i == chunks.length - 1);
+      }
+      ForkJoinPool.commonPool().invoke(new ParseTask(chunks, 0, chunks.length));
+
+      boolean anyNotes = false;
+      // Whether the numbers the chunk being replayed skipped were the end of the chunk before's.
+      boolean joined = false;
+      int i = 0;
+      while (i < chunks.length) {
+        Chunk chunk = chunks[i];
+        if (chunk.failure != null) {
+          throw chunk.failure;
+        }
+        if (chunk.skipped != null && !joined) {
+          throw new IllegalArgumentException("Bad line type: " + chunk.skipped);
+        }
+        anyNotes = chunk.replay(piece, anyNotes);
+        if (chunk.error != null) {
+          throw chunk.error;
+        }
+        i += 1;
+        joined = false;
+        if (chunk.unfinished >= 0) {
+          Chunk note = new Chunk(channel, chunk.unfinished, channel.size(), true);
+          note.parseOne();
+          if (note.failure != null) {
+            throw note.failure;
+          }
+          anyNotes = note.replay(piece, anyNotes);
+          if (note.error != null) {
+            throw note.error;
+          }
+          while (i < chunks.length && chunks[i].end <= note.next) {
+            i += 1;
+          }
+          if (i < chunks.length && chunks[i].first == note.next) {
+            joined = true;
+          } else if (i < chunks.length) {
+            chunks[i] = new Chunk(channel, note.next, chunks[i].end, chunks[i].last);
+            chunks[i].parse();
+          }
+        }
+      }
+      return piece.build();
+    }
+  }
+
+  /**
+   * Works out where the chunks of a file start, which is just after a line break, and where the
+   * last ends.
+   *
+   * @param channel the file
+   * @return the offsets the chunks start at, followed by the length of the file
+   * @throws IOException if the file cannot be read
+   */
+  private static long[] split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    long chunkBytes = Math.max(CHUNK_BYTES, size / MAX_CHUNKS + 1);
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    long at = chunkBytes;
+    while (at < size) {
+      at = lineAfter(channel, at, size);
+      if (at < size) {
+        bounds.add(at);
+      }
+      at += chunkBytes;
+    }
+    bounds.add(size);
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i += 1) {
+      result[i] = bounds.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Finds the start of the first line beginning at or after an offset.
+   *
+   * @param channel the file
+   * @param from    the offset, which is not the start of the file
+   * @param size    the length of the file
+   * @return the offset just after the first '\n' at or after from - 1, or size if there is none
+   * @throws IOException if the file cannot be read
+   */
+  private static long lineAfter(FileChannel channel, long from, long size) throws IOException {
+    long at = from - 1;
+    while (at < size) {
+      int length = (int) Math.min(WINDOW_BYTES, size - at);
+      ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, at, length);
+      for (int i = 0; i < length; i += 1) {
+        if (window.get(i) == '\n') {
+          return at + i + 1;
+        }
+      }
+      at += length;
+    }
+    return size;
+  }
+
+  /**
+   * Parses a range of chunks, splitting it in two until there is one chunk to a task.
+   */
+  private static final class ParseTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Chunk[] chunks;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a task parsing the chunks in [from, to).
+     */
+    ParseTask(Chunk[] chunks, int from, int to) {
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= 1) {
+        if (this.from < this.to) {
+          this.chunks[this.from].parse();
+        }
+        return;
+      }
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(new ParseTask(this.chunks, this.from, middle),
+              new ParseTask(this.chunks, middle, this.to));
+    }
+  }
+
+  /**
+   * One chunk of a file, and what was read from it: its notes as parallel columns, and its tempo
+   * and resolution lines as events, each at the number of notes that came before it.
+   */
+  private static final class Chunk {
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final boolean last;
+
+    private int[] starts;
+    private int[] ends;
+    private int[] instruments;
+    private int[] pitches;
+    private int[] volumes;
+    private int count;
+    // Each event is its kind, its value and the number of notes before it, in that order.
+    private final List<int[]> events;
+    // The error in the chunk, if there is one, thrown once everything before it is built.
+    private RuntimeException error;
+    // Where the note the chunk ends partway through starts, or -1.
+    private long unfinished;
+    // The file could not be read.
+    private IOException failure;
+    // The first of the numbers the chunk starts with before its first line type, or null.
+    private String skipped;
+    // Where the first line type in the chunk starts, or -1 if it has none.
+    private long first;
+    // Once parseOne has read a line, where the token after it starts, or the end of the chunk.
+    private long next;
+
+    /**
+     * Constructs a chunk of the bytes in [start, end) of a file, not yet parsed.
+     */
+    Chunk(FileChannel channel, long start, long end, boolean last) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+      this.last = last;
+      this.starts = new int[64];
+      this.ends = new int[64];
+      this.instruments = new int[64];
+      this.pitches = new int[64];
+      this.volumes = new int[64];
+      this.count = 0;
+      this.events = new ArrayList<>();
+      this.unfinished = -1;
+      this.first = -1;
+    }
+
+    /**
+     * Maps the chunk and reads its lines, up to the first error.
+     */
+    void parse() {
+      try {
+        ByteBuffer bytes = this.channel.map(FileChannel.MapMode.READ_ONLY, this.start,
+                this.end - this.start);
+        this.parse(new ByteScanner(new BufferStream(bytes)), false);
+      } catch (IOException e) {
+        this.failure = e;
+      } catch (RuntimeException e) {
+        this.error = e;
+      }
+    }
+
+    /**
+     * Reads just the line the chunk starts with, straight from the file, so it may be longer than
+     * a mapped chunk could be, and works out where the token after it starts.
+     */
+    void parseOne() {
+      try {
+        this.channel.position(this.start);
+        this.parse(new ByteScanner(Channels.newInputStream(this.channel)), true);
+      } catch (IOException e) {
+        this.failure = e;
+      } catch (RuntimeException e) {
+        this.error = e;
+      }
+    }
+
+    /**
+     * Reads the lines of the chunk as MusicReader.parse does, but keeps them here rather than
+     * giving them to a builder.
+     *
+     * @param scanner the scanner, at the start of the chunk
+     * @param one     whether to stop after the first line
+     * @throws IOException if the file cannot be read
+     */
+    private void parse(ByteScanner scanner, boolean one) throws IOException {
+      // Numbers before the first line type are the end of a note begun in the chunk before.
+      while (scanner.hasNext() && !scanner.peekIs(MusicReader.NOTE)
+              && !scanner.peekIs(MusicReader.TEMPO) && !scanner.peekIs(MusicReader.RESOLUTION)) {
+        String token = scanner.next();
+        this.skipped = this.skipped == null ? token : this.skipped;
+      }
+      while (scanner.hasNext()) {
+        long statement = this.start + scanner.offset();
+        if (this.first < 0) {
+          this.first = statement;
+        } else if (one) {
+          this.next = statement;
+          return;
+        }
+        if (scanner.nextIs(MusicReader.NOTE)) {
+          this.ensureCapacity();
+          try {
+            this.starts[this.count] = scanner.nextInt();
+            this.ends[this.count] = scanner.nextInt();
+            this.instruments[this.count] = scanner.nextInt();
+            this.pitches[this.count] = scanner.nextInt();
+            this.volumes[this.count] = scanner.nextInt();
+          } catch (NoSuchElementException e) {
+            if (this.endsPartway(e, statement)) {
+              return;
+            }
+            throw new IllegalArgumentException("Malformed note line: " + scanner.nextLine());
+          }
+          this.count += 1;
+        } else if (scanner.nextIs(MusicReader.TEMPO)) {
+          try {
+            this.events.add(new int[]{TEMPO, scanner.nextInt(), this.count});
+          } catch (NoSuchElementException e) {
+            if (this.endsPartway(e, statement)) {
+              return;
+            }
+            throw new IllegalArgumentException("Malformed tempo line: " + scanner.nextLine());
+          }
+        } else if (scanner.nextIs(MusicReader.RESOLUTION)) {
+          this.events.add(new int[]{CHECK, 0, this.count});
+          try {
+            this.events.add(new int[]{RESOLUTION, scanner.nextInt(), this.count});
+          } catch (NoSuchElementException e) {
+            if (this.endsPartway(e, statement)) {
+              return;
+            }
+            throw new IllegalArgumentException("Malformed resolution line: " + scanner.nextLine());
+          }
+        } else {
+          throw new IllegalArgumentException("Bad line type: " + scanner.next());
+        }
+      }
+      this.next = this.end;
+    }
+
+    /**
+     * Works out whether a line ran out of numbers only because the chunk ended, so the rest of it
+     * may be in the next chunk, and if so remembers where it started.
+     *
+     * @param e         the exception from reading a number
+     * @param statement where the line started
+     * @return true if the chunk ends partway through the line
+     */
+    private boolean endsPartway(NoSuchElementException e, long statement) {
+      if (e instanceof InputMismatchException || this.last) {
+        return false;
+      }
+      this.unfinished = statement;
+      return true;
+    }
+
+    /**
+     * Gives the builder everything read from the chunk, in order, up to its error if it has one.
+     *
+     * @param piece    the builder
+     * @param anyNotes whether the builder has been given notes from earlier chunks
+     * @return whether the builder has now been given any notes
+     * @throws IllegalArgumentException if a resolution line comes after a note
+     */
+    boolean replay(CompositionBuilder<?> piece, boolean anyNotes) {
+      int given = 0;
+      for (int[] event : this.events) {
+        given = this.give(piece, given, event[2]);
+        anyNotes = anyNotes || given > 0;
+        if (event[0] == TEMPO) {
+          piece.setTempo(event[1]);
+        } else if (event[0] == CHECK && anyNotes) {
+          throw new IllegalArgumentException("Resolution must come before every note.");
+        } else if (event[0] == RESOLUTION) {
+          piece.setResolution(event[1]);
+        }
+      }
+      given = this.give(piece, given, this.count);
+      return anyNotes || given > 0;
+    }
+
+    /**
+     * Gives the builder the notes in [from, to).
+     *
+     * @return to
+     */
+    private int give(CompositionBuilder<?> piece, int from, int to) {
+      if (from == to) {
+        return to;
+      }
+      if (from == 0) {
+        piece.addNotes(this.starts, this.ends, this.instruments, this.pitches, this.volumes, to);
+      } else {
+        piece.addNotes(Arrays.copyOfRange(this.starts, from, to),
+                Arrays.copyOfRange(this.ends, from, to),
+                Arrays.copyOfRange(this.instruments, from, to),
+                Arrays.copyOfRange(this.pitches, from, to),
+                Arrays.copyOfRange(this.volumes, from, to), to - from);
+      }
+      return to;
+    }
+
+    /**
+     * Grows the columns, if needed, so one more note fits.
+     */
+    private void ensureCapacity() {
+      if (this.count == this.starts.length) {
+        int capacity = this.count * 2;
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.instruments = Arrays.copyOf(this.instruments, capacity);
+        this.pitches = Arrays.copyOf(this.pitches, capacity);
+        this.volumes = Arrays.copyOf(this.volumes, capacity);
+      }
+    }
+  }
+
+  /**
+   * A stream reading the bytes of a buffer, such as a mapped part of a file.
+   */
+  private static final class BufferStream extends InputStream {
+    private final ByteBuffer bytes;
+
+    /**
+     * Constructs a stream reading the given buffer from its position to its limit.
+     */
+    BufferStream(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int read() {
+      return this.bytes.hasRemaining() ? this.bytes.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (!this.bytes.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(len, this.bytes.remaining());
+      this.bytes.get(b, off, read);
+      return read;
+    }
+  }
+}
@@ -164,6 +164,7 @@ public class GuiViewFrame extends javax.swing.JFrame implements IMusicView {
   @Override
   public void reset() {
     NotePanel newPanel = new NotePanel(this.model);
+    this.notePanel.stopListening();
     this.remove(this.notePanel);
     this.add(newPanel);
     this.notePanel = newPanel;
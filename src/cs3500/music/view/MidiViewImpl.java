@@ -3,9 +3,14 @@ package cs3500.music.view;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseListener;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sound.midi.Sequencer;
 import javax.sound.midi.Sequence;
@@ -18,15 +23,26 @@ import javax.sound.midi.ShortMessage;
 import javax.swing.Timer;
 
 import cs3500.music.model.IMusicModel;
+import cs3500.music.model.ModelListener;
 import cs3500.music.model.Note;
 import cs3500.music.model.Sound;
+import cs3500.music.model.SoundCursor;
 
 /**
- * Audio based view for playing the notes of a MusicModel, using Java's built in MIDI classes.
+ * Audio based view for playing the notes of a MusicModel, using Java's built in MIDI classes. It
+ * listens to its model and adds or removes the MIDI events of each note as it changes, rather than
+ * reloading the whole sequence.
+ *
+ * <p>Each instrument which can be played has a track of its own, after a first track setting up
+ * the channels. Every track is made when the view is, since a sequencer only looks at the tracks
+ * a sequence had when it was given the sequence.</p>
  */
 public class MidiViewImpl implements IMusicView {
   private final Sequencer sequencer;
   private final Sequence sequence;
+  // Added: the track of each instrument which maps to a MIDI channel, indexed by instrument, with
+  // the channel set up in track 0.
+  private final Track[] tracks;
 
   private final IMusicModel<HashMap<Integer, List<Sound>>, Note> model;
 
@@ -36,6 +52,10 @@ public class MidiViewImpl implements IMusicView {
   // Added: so that we can slide the slider while playing
   private Timer timer;
 
+  // Added: the NOTE_ON and NOTE_OFF events of each note in the tracks, so a removed note's events
+  // can be found without searching its track. Equal notes share a key.
+  private final Map<List<Integer>, Deque<MidiEvent[]>> events;
+
   /**
    * Construct a new MidiViewImpl, which will be used to play the notes of the given model.
    *
@@ -48,9 +68,11 @@ public class MidiViewImpl implements IMusicView {
     Objects.requireNonNull(model);
     this.model = model;
     this.sequencer = MidiSystem.getSequencer();
-    this.sequence = new Sequence(Sequence.PPQ, 1);
-    this.sequence.createTrack();
+    // Changed: a tick of the sequence is a tick of the model, however many make up a beat.
+    this.sequence = new Sequence(Sequence.PPQ, model.getResolution());
+    this.tracks = createTracks(this.sequence);
     this.sequencer.open();
+    this.events = new ConcurrentHashMap<>();
     this.loadNotesIntoSequence();
     this.sequencer.setSequence(this.sequence);
     this.startingBeat = 0;
@@ -65,6 +87,7 @@ public class MidiViewImpl implements IMusicView {
     };
 
     this.timer = new Timer(this.model.getTempo() / 1000, looper);
+    this.model.addListener(new Updater());
   }
 
   /**
@@ -82,9 +105,11 @@ public class MidiViewImpl implements IMusicView {
     Objects.requireNonNull(device);
     this.model = model;
     this.sequencer = device;
-    this.sequence = new Sequence(Sequence.PPQ, 1);
-    this.sequence.createTrack();
+    // Changed: a tick of the sequence is a tick of the model, however many make up a beat.
+    this.sequence = new Sequence(Sequence.PPQ, model.getResolution());
+    this.tracks = createTracks(this.sequence);
     this.sequencer.open();
+    this.events = new ConcurrentHashMap<>();
     this.loadNotesIntoSequence();
     this.sequencer.setSequence(this.sequence);
     this.startingBeat = 0;
@@ -99,6 +124,22 @@ public class MidiViewImpl implements IMusicView {
     };
 
     this.timer = new Timer(this.model.getTempo() / 1000, looper);
+    this.model.addListener(new Updater());
+  }
+
+  /**
+   * Makes the tracks of a new sequence: one setting up the channels, then one for each instrument
+   * with a channel of its own.
+   *
+   * @param sequence the sequence to add the tracks to
+   * @return the tracks, indexed by instrument, with the set up track first
+   */
+  private static Track[] createTracks(Sequence sequence) {
+    Track[] tracks = new Track[17];
+    for (int i = 0; i < tracks.length; i += 1) {
+      tracks[i] = sequence.createTrack();
+    }
+    return tracks;
   }
 
   /**
@@ -108,40 +149,108 @@ public class MidiViewImpl implements IMusicView {
    * @throws InvalidMidiDataException if any of the MIDI info is invalid
    */
   private void loadNotesIntoSequence() throws InvalidMidiDataException {
-    HashMap<Integer, List<Sound>> notes = this.model.getBeats(0, this.model.getEndBeat());
-
-    Track t = this.sequence.getTracks()[0];
+    Track t = this.tracks[0];
 
     for (int i = 1; i <= 10; i++) {
       t.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, i - 1, i, 0), 0));
     }
 
-    for (int i = 0; i < this.model.getEndBeat(); i++) {
-      if (notes.containsKey(i)) {
-        for (Sound s : notes.get(i)) {
-          if (i == s.getStartBeat()) {
-            t.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, s.getInstrument() - 1,
-                    s.getNote().hashCode(), s.getVolume()), s.getStartBeat()));
-            t.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, s.getInstrument() - 1,
-                    s.getNote().hashCode(), s.getVolume()),
-                    s.getStartBeat() + s.getDuration() - 1));
-          }
+    // Changed: each instrument's sounds are read from its own track of the model and go on its
+    // own MIDI track, so the tracks are loaded in parallel. They are read from a snapshot so
+    // edits made while loading are not seen.
+    IMusicModel<?, ?> snapshot = this.model.snapshot();
+    List<Integer> instruments = snapshot.getTracks();
+    InvalidMidiDataException[] failed = new InvalidMidiDataException[1];
+    instruments.parallelStream().forEach(instrument -> {
+      SoundCursor s = snapshot.getTrack(instrument, 0, Integer.MAX_VALUE);
+      try {
+        while (s.next()) {
+          this.addNoteEvents(s.getStartBeat(), s.getEndBeat(), s.getInstrument(), s.getPitch(),
+                  s.getVolume());
+        }
+      } catch (InvalidMidiDataException e) {
+        synchronized (failed) {
+          failed[0] = e;
         }
       }
+    });
+    if (failed[0] != null) {
+      throw failed[0];
     }
+  }
 
+  /**
+   * Adds the NOTE_ON and NOTE_OFF events of a note to its instrument's track.
+   *
+   * @throws InvalidMidiDataException if any of the MIDI info is invalid, including an instrument
+   *                                  with no channel
+   */
+  private void addNoteEvents(int start, int end, int instrument, int pitch, int volume)
+          throws InvalidMidiDataException {
+    MidiEvent on = new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, instrument - 1, pitch,
+            volume), start);
+    MidiEvent off = new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, instrument - 1, pitch,
+            volume), end);
+    // Making the messages checked the channel, so the instrument has a track.
+    Track t = this.tracks[instrument];
+    t.add(on);
+    t.add(off);
+    this.events.computeIfAbsent(Arrays.asList(start, end, instrument, pitch, volume),
+        k -> new ArrayDeque<>()).add(new MidiEvent[]{on, off});
+  }
+
+  /**
+   * Applies each change to the model to the track being played.
+   */
+  private final class Updater implements ModelListener {
+    @Override
+    public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+      if (end <= start) {
+        return;
+      }
+      try {
+        addNoteEvents(start, end, instrument, pitch, volume);
+      } catch (InvalidMidiDataException e) {
+        //Does nothing, as in reset
+      }
+    }
+
+    @Override
+    public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+      List<Integer> key = Arrays.asList(start, end, instrument, pitch, volume);
+      Deque<MidiEvent[]> same = events.get(key);
+      if (same == null) {
+        return;
+      }
+      MidiEvent[] pair = same.poll();
+      if (same.isEmpty()) {
+        events.remove(key);
+      }
+      Track t = tracks[instrument];
+      t.remove(pair[0]);
+      t.remove(pair[1]);
+    }
+
+    @Override
+    public void tempoChanged(int tempo) {
+      timer.setDelay(tempo / 1000);
+      if (isPlaying()) {
+        sequencer.setTempoInMPQ(tempo);
+      }
+    }
   }
 
   @Override
   public void togglePlay() {
     if (!this.isPlaying()) {
-      this.sequencer.setTickPosition(this.startingBeat);
+      this.sequencer.setTickPosition((long) this.startingBeat * this.sequence.getResolution());
       this.sequencer.start();
       this.sequencer.setTempoInMPQ(this.model.getTempo());
 
       this.timer.start();
     } else {
-      this.startingBeat = (int) this.sequencer.getTickPosition();
+      this.startingBeat = (int) (this.sequencer.getTickPosition()
+              / this.sequence.getResolution());
       this.timer.stop();
       this.sequencer.stop();
     }
@@ -202,11 +311,13 @@ public class MidiViewImpl implements IMusicView {
 
   @Override
   public void reset() {
-    Track t = this.sequence.getTracks()[0];
-
-    for (int i = 0; i < t.size(); i++) {
-      t.remove(t.get(i));
+    // Changed: removes from the end, since removing from the front skipped every other event.
+    for (Track t : this.tracks) {
+      for (int i = t.size() - 1; i >= 0; i--) {
+        t.remove(t.get(i));
+      }
     }
+    this.events.clear();
     try {
       this.loadNotesIntoSequence();
     } catch (InvalidMidiDataException e) {
@@ -4,18 +4,23 @@ import java.awt.Graphics2D;
 import java.awt.Graphics;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Rectangle;
 
 import javax.swing.JPanel;
 
 import cs3500.music.model.IMusicModel;
+import cs3500.music.model.ModelListener;
 import cs3500.music.model.Note;
 import cs3500.music.model.Sound;
+import cs3500.music.model.SoundCursor;
 
 import java.util.HashMap;
 import java.util.List;
 
 /**
- * A view which displays the notes playing on each beat.
+ * A view which displays the notes playing on each beat. It listens to its model, and when a note
+ * is added or removed repaints only the area that note covers, unless the piece has grown longer
+ * or its pitch range has changed.
  */
 public class NotePanel extends JPanel {
   private IMusicModel<HashMap<Integer, List<Sound>>, Note> model;
@@ -23,12 +28,15 @@ public class NotePanel extends JPanel {
   private int left;
   private int blockSize;
   private List<Note> notesToDisp;
+  private int highestPitch;
   private int timeSignature;
   private int width;
   private int height;
   private int recX;
   private int recY;
   private int currentBeat;
+  // Added: so the panel can be updated note by note instead of being rebuilt.
+  private final ModelListener updater;
 
   /**
    * Constructor for the NotePane class. Default time signature is 4 beats per measure.
@@ -41,15 +49,84 @@ public class NotePanel extends JPanel {
     this.left = 25;
     this.blockSize = 15;
     this.notesToDisp = this.model.notesToDisplay();
+    this.highestPitch = this.notesToDisp.isEmpty() ? 0 : this.notesToDisp.get(0).getValue();
     this.timeSignature = 4;
     this.width = this.model.getEndBeat() + 1;
     this.height = this.notesToDisp.size();
     this.recX = left + blockSize;
     this.recY = top - blockSize;
     this.currentBeat = 0;
+    this.updater = new Updater();
+    this.model.addListener(this.updater);
     this.setVisible(true);
   }
 
+  /**
+   * Stops this panel from listening to its model, for when it is about to be thrown away.
+   */
+  void stopListening() {
+    this.model.removeListener(this.updater);
+  }
+
+  /**
+   * Applies each change to the model to this panel.
+   */
+  private final class Updater implements ModelListener {
+    @Override
+    public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+      this.noteChanged(start, end, pitch);
+    }
+
+    @Override
+    public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+      this.noteChanged(start, end, pitch);
+    }
+
+    @Override
+    public void pitchRangeChanged(int lowest, int highest) {
+      this.refreshPitches();
+    }
+
+    /**
+     * Repaints the area covered by a note which was added or removed, or the whole panel if its
+     * size has changed.
+     */
+    private void noteChanged(int start, int end, int pitch) {
+      if (notesToDisp.isEmpty()) {
+        this.refreshPitches();
+        return;
+      }
+      int newWidth = model.getEndBeat() + 1;
+      if (newWidth != width) {
+        width = newWidth;
+        revalidate();
+        repaint();
+        return;
+      }
+      // Changed: the note is timed in ticks, and the panel is drawn a beat to a column.
+      int ticks = model.getResolution();
+      int startBeat = start / ticks;
+      int endBeat = (int) (((long) end + ticks - 1) / ticks);
+      int locX = (startBeat * blockSize) + left + blockSize;
+      int locY = ((highestPitch - pitch) * blockSize) + top - blockSize;
+      repaint(locX, locY, (Math.max(endBeat, startBeat + 1) - startBeat) * blockSize + 1,
+              blockSize + 1);
+    }
+
+    /**
+     * Reads the range of pitches again, and repaints the whole panel since every row may have
+     * moved.
+     */
+    private void refreshPitches() {
+      notesToDisp = model.notesToDisplay();
+      highestPitch = notesToDisp.isEmpty() ? 0 : notesToDisp.get(0).getValue();
+      height = notesToDisp.size();
+      width = model.getEndBeat() + 1;
+      revalidate();
+      repaint();
+    }
+  }
+
   /**
    * Constructs a NotePanel with a custom time signature.
    *
@@ -93,30 +170,46 @@ public class NotePanel extends JPanel {
   }
 
   /**
-   * Display all the notes on the grid of notes and beat number.
+   * Display all the notes on the grid of notes and beat number. Only the beats inside the area
+   * being repainted are looked up in the model.
    *
    * @param g       The graphic Object to draw on
    * @param curBeat the notes to be lit up on the current beat
    */
+  // Changed: walks the notes in the visible beat range instead of copying every beat of the model.
   private void displayBeats(Graphics2D g, int curBeat) {
-    HashMap<Integer, List<Sound>> beatMap = this.model.getBeats(0, this.model.getEndBeat());
-    for (int i = 0; i <= this.model.getEndBeat(); i += 1) {
-      if (beatMap.containsKey(i)) {
-        List<Sound> temp = beatMap.get(i);
-        for (Sound tempSound : temp) {
-          Note tempNote = tempSound.getNote();
-          int locY = (this.notesToDisp.indexOf(tempNote) * blockSize) + top - blockSize;
-          int locX = (i * blockSize) + left + blockSize;
-          if (i == curBeat) {
-            g.setColor(Color.MAGENTA);
-            g.fillRect(locX, locY, blockSize, blockSize);
-          } else if (tempSound.getStartBeat() == i) {
-            g.setColor(Color.black);
-            g.fillRect(locX, locY, blockSize, blockSize);
-          } else {
-            g.setColor(Color.green);
-            g.fillRect(locX, locY, blockSize, blockSize);
-          }
+    // Painting and editing both happen on the event thread, so the live model is read directly.
+    IMusicModel<HashMap<Integer, List<Sound>>, Note> piece = this.model;
+    int firstBeat = 0;
+    int lastBeat = piece.getEndBeat();
+    Rectangle clip = g.getClipBounds();
+    if (clip != null) {
+      firstBeat = Math.max(firstBeat, (clip.x - left - (2 * blockSize)) / blockSize);
+      lastBeat = Math.min(lastBeat, (clip.x + clip.width - left) / blockSize);
+    }
+    if (lastBeat < firstBeat) {
+      return;
+    }
+
+    // Notes are timed in ticks, and each column is a whole beat.
+    int ticks = piece.getResolution();
+    SoundCursor sounds = piece.getSounds(firstBeat * ticks, lastBeat * ticks + ticks - 1);
+    while (sounds.next()) {
+      int locY = ((this.highestPitch - sounds.getPitch()) * blockSize) + top - blockSize;
+      int startBeat = sounds.getStartBeat() / ticks;
+      int from = Math.max(firstBeat, startBeat);
+      int to = Math.min(lastBeat, (sounds.getEndBeat() - 1) / ticks);
+      for (int i = from; i <= to; i += 1) {
+        int locX = (i * blockSize) + left + blockSize;
+        if (i == curBeat) {
+          g.setColor(Color.MAGENTA);
+          g.fillRect(locX, locY, blockSize, blockSize);
+        } else if (startBeat == i) {
+          g.setColor(Color.black);
+          g.fillRect(locX, locY, blockSize, blockSize);
+        } else {
+          g.setColor(Color.green);
+          g.fillRect(locX, locY, blockSize, blockSize);
         }
       }
     }
@@ -153,7 +246,16 @@ public class NotePanel extends JPanel {
       g.drawLine(leftBorder, temp, leftBorder + widthRec, temp);
     }
 
-    for (int i = 0; i <= this.model.getEndBeat(); i += timeSignature) {
+    // Changed: only the bar lines inside the area being repainted are drawn.
+    int firstBeat = 0;
+    int lastBeat = this.model.getEndBeat();
+    Rectangle clip = g.getClipBounds();
+    if (clip != null) {
+      firstBeat = Math.max(firstBeat, (clip.x - leftBorder) / blockSize);
+      firstBeat -= firstBeat % timeSignature;
+      lastBeat = Math.min(lastBeat, (clip.x + clip.width - leftBorder) / blockSize + 1);
+    }
+    for (int i = firstBeat; i <= lastBeat; i += timeSignature) {
       int temp = i * blockSize;
       temp = temp + leftBorder;
       g.drawLine(temp, topBorder, temp, topBorder + heightRec);
@@ -175,6 +277,6 @@ public class NotePanel extends JPanel {
    */
   private void mutateSlider(Graphics g, int curBeat) {
     g.setColor(Color.RED);
-    g.fillRect(recX + (curBeat * blockSize), recY, 3, this.model.notesToDisplay().size() * 15);
+    g.fillRect(recX + (curBeat * blockSize), recY, 3, this.height * 15);
   }
 }
@@ -13,8 +13,10 @@ import java.util.HashMap;
 import java.util.List;
 
 import cs3500.music.model.IMusicModel;
+import cs3500.music.model.ModelListener;
 import cs3500.music.model.Note;
 import cs3500.music.model.Sound;
+import cs3500.music.model.SoundCursor;
 
 /**
  * The Piano Panel which displays the notes on the piano which have to be played.
@@ -50,6 +52,26 @@ public class PianoPanel extends JPanel {
     this.blackKeys = new ArrayList<>();
     this.whiteKeys = new ArrayList<>();
     this.initKeys();
+    // Added: only repaint when a note playing on the current beat changes.
+    this.model.addListener(new ModelListener() {
+      @Override
+      public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+        this.noteChanged(start, end);
+      }
+
+      @Override
+      public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+        this.noteChanged(start, end);
+      }
+
+      private void noteChanged(int start, int end) {
+        // Changed: the note is timed in ticks, so it is compared with the ticks of the beat.
+        long ticks = model.getResolution();
+        if (start < (currentBeat + 1) * ticks && currentBeat * ticks < end) {
+          repaint();
+        }
+      }
+    });
 
     Insets insets = this.getInsets();
     Dimension size;
@@ -202,13 +224,13 @@ public class PianoPanel extends JPanel {
    */
   //Added to allow us to check for mouse clicks in a better way
   private boolean isNotePlaying(int key) {
-    HashMap<Integer, List<Sound>> beats = this.model.getBeats(0, this.model.getEndBeat());
-    if (beats.containsKey(this.currentBeat)) {
-      List<Sound> playingNow = beats.get(this.currentBeat);
-      for (Sound tempSound : playingNow) {
-        if (tempSound.getNote().hashCode() == key) {
-          return true;
-        }
+    // Changed: notes are timed in ticks, so this looks at every tick of the current beat.
+    int ticks = this.model.getResolution();
+    SoundCursor playingNow = this.model.getSounds(this.currentBeat * ticks,
+            this.currentBeat * ticks + ticks - 1);
+    while (playingNow.next()) {
+      if (playingNow.getPitch() == key) {
+        return true;
       }
     }
     return false;
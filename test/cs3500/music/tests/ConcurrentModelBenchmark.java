@@ -0,0 +1,83 @@
+package cs3500.music.tests;
+
+import java.util.concurrent.CountDownLatch;
+
+import cs3500.music.model.ConcurrentMusicModel;
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.MusicModel;
+
+/**
+ * A contention benchmark for the concurrent music model. Each worker thread repeatedly adds and
+ * then removes notes in ranges of beats which all belong to its own stripe, so that up to as many
+ * threads as there are stripes never wait on each other's locks. The total edit rate is printed
+ * for 1 up to as many threads as there are cores. The same run against a single MusicModel, whose
+ * edits are all serialized on one lock, is printed alongside for comparison. Run with:
+ *
+ * <pre>
+ *   java cs3500.music.tests.ConcurrentModelBenchmark [editsPerThread]
+ * </pre>
+ */
+public class ConcurrentModelBenchmark {
+  private static final int STRIPES = 16;
+  private static final int STRIPE_BEATS = 16;
+  // How many of its stripe's ranges each thread moves through.
+  private static final int LAPS = 32;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally, the number of edits each thread makes
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int edits = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    System.out.println("threads  concurrent (edits/s)  single lock (edits/s)");
+    for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+      // Warm up once, then measure.
+      run(new ConcurrentMusicModel(STRIPES, STRIPE_BEATS), threads, edits / 4);
+      double striped = run(new ConcurrentMusicModel(STRIPES, STRIPE_BEATS), threads, edits);
+      run(new MusicModel(), threads, edits / 4);
+      double single = run(new MusicModel(), threads, edits);
+      System.out.println(String.format("%7d  %20.0f  %21.0f", threads, striped, single));
+      if (threads == cores) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Has the given number of threads edit the model at once.
+   *
+   * @return the total number of edits per second
+   */
+  private static double run(IMusicModel model, int threads, int edits)
+          throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t += 1) {
+      int stripe = t % STRIPES;
+      new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < edits; i += 2) {
+          // Each range of the piece dealt out to this thread's stripe in turn.
+          int lap = (i / STRIPE_BEATS) % LAPS;
+          int beat = (lap * STRIPES + stripe) * STRIPE_BEATS + (i % STRIPE_BEATS);
+          int pitch = 40 + (i % 48);
+          model.addNote(beat, beat + 4, 1, pitch, 64);
+          model.removeNote(beat, beat + 4, 1, pitch, 64);
+        }
+        done.countDown();
+      }).start();
+    }
+    long began = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - began;
+    return (double) edits * threads / (elapsed / 1e9);
+  }
+}
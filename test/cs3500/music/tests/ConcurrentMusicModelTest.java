@@ -0,0 +1,263 @@
+package cs3500.music.tests;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cs3500.music.model.ConcurrentMusicModel;
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.NoteFilter;
+import cs3500.music.model.NoteQuery;
+import cs3500.music.model.NoteTransform;
+import cs3500.music.model.SoundCursor;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Class which tests the concurrent music model.
+ */
+public class ConcurrentMusicModelTest {
+
+  //Test constructing with no stripes
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoStripes() {
+    new ConcurrentMusicModel(0, 4);
+  }
+
+  //Test constructing with stripes of no beats
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoStripeBeats() {
+    new ConcurrentMusicModel(4, 0);
+  }
+
+  //Test adding an invalid note
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddInvalidNote() {
+    IMusicModel obj = new ConcurrentMusicModel();
+    obj.addNote(0, 2, 1, 128, 10);
+  }
+
+  //Test the concurrent model displays the same piece as a music model
+  @Test
+  public void testSameAsMusicModel() {
+    IMusicModel plain = new MusicModel();
+    IMusicModel obj = new ConcurrentMusicModel(3, 2);
+    int[][] notes = {{0, 4, 1, 60, 10}, {1, 3, 1, 62, 10}, {5, 9, 1, 57, 10},
+        {2, 7, 1, 64, 10}, {12, 14, 1, 60, 10}, {7, 8, 1, 59, 10}};
+    for (int[] n : notes) {
+      plain.addNote(n[0], n[1], n[2], n[3], n[4]);
+      obj.addNote(n[0], n[1], n[2], n[3], n[4]);
+    }
+    assertEquals(plain.display(), obj.display());
+    assertEquals(plain.getEndBeat(), obj.getEndBeat());
+    assertEquals(plain.notesToDisplay(), obj.notesToDisplay());
+
+    plain.removeNote(5, 9, 1, 57, 10);
+    obj.removeNote(5, 9, 1, 57, 10);
+    plain.editNote(12, 14, 1, 60, 10, 3, 5, 1, 66, 10);
+    obj.editNote(12, 14, 1, 60, 10, 3, 5, 1, 66, 10);
+    assertEquals(plain.display(), obj.display());
+    assertEquals(8, obj.getEndBeat());
+  }
+
+  //Test region transforms match those of a plain model, including notes moving between stripes
+  @Test
+  public void testTransformSameAsMusicModel() {
+    IMusicModel plain = new MusicModel();
+    IMusicModel obj = new ConcurrentMusicModel(3, 2);
+    for (int i = 0; i < 30; i += 1) {
+      plain.addNote(i % 11, i % 11 + 1 + i % 3, i % 2, 50 + i, 40);
+      obj.addNote(i % 11, i % 11 + 1 + i % 3, i % 2, 50 + i, 40);
+    }
+    NoteTransform move = NoteTransform.IDENTITY.shift(5).transpose(3).scaleVolume(0.5);
+    assertEquals(plain.transformNotes(2, 6, NoteFilter.instrument(1), move),
+            obj.transformNotes(2, 6, NoteFilter.instrument(1), move));
+    assertEquals(plain.display(), obj.display());
+    assertEquals(plain.getEndBeat(), obj.getEndBeat());
+    obj.undo();
+    plain.undo();
+    assertEquals(plain.display(), obj.display());
+  }
+
+  //Test queries find the same notes as in a plain model
+  @Test
+  public void testQuerySameAsMusicModel() {
+    IMusicModel plain = new MusicModel();
+    IMusicModel obj = new ConcurrentMusicModel(3, 2);
+    for (int i = 0; i < 30; i += 1) {
+      plain.addNote(i % 11, i % 11 + 1 + i % 3, i % 4, 50 + i % 7, 40);
+      obj.addNote(i % 11, i % 11 + 1 + i % 3, i % 4, 50 + i % 7, 40);
+    }
+    NoteQuery query = NoteQuery.ALL.instrument(2).pitches(52, 55);
+    SoundCursor expected = plain.query(query);
+    SoundCursor actual = obj.query(query);
+    int found = 0;
+    while (expected.next()) {
+      assertEquals(true, actual.next());
+      assertEquals(expected.getSound(), actual.getSound());
+      found += 1;
+    }
+    assertEquals(false, actual.next());
+    assertEquals(true, found > 0);
+  }
+
+  //Test removing a note which is not there leaves the model unchanged
+  @Test
+  public void testRemoveMissingNote() {
+    IMusicModel obj = new ConcurrentMusicModel(2, 2);
+    obj.addNote(0, 4, 1, 60, 10);
+    String before = obj.display();
+    try {
+      obj.removeNote(0, 4, 1, 61, 10);
+    } catch (IllegalArgumentException e) {
+      assertEquals(before, obj.display());
+      return;
+    }
+    assertEquals(true, false);
+  }
+
+  //Test removing a note starting where nothing is playing
+  @Test
+  public void testRemoveNoteWhereSilent() {
+    IMusicModel obj = new ConcurrentMusicModel(2, 2);
+    obj.addNote(0, 4, 1, 60, 50);
+    String before = obj.display();
+    try {
+      obj.removeNote(10, 12, 1, 60, 50);
+    } catch (IllegalArgumentException e) {
+      assertEquals("Sound not present in track.", e.getMessage());
+      assertEquals(before, obj.display());
+      return;
+    }
+    assertEquals(true, false);
+  }
+
+  //Test a cursor keeps reading the piece as it was when the cursor was made
+  @Test
+  public void testCursorAfterEdit() {
+    IMusicModel obj = new ConcurrentMusicModel();
+    obj.addNote(0, 4, 1, 60, 10);
+    SoundCursor cursor = obj.getSounds();
+    obj.addNote(1, 4, 1, 61, 10);
+    assertEquals(true, cursor.next());
+    assertEquals(60, cursor.getPitch());
+    assertEquals(false, cursor.next());
+  }
+
+  //Test undoing and redoing an edit which moves a note between stripes
+  @Test
+  public void testUndoEdit() {
+    IMusicModel obj = new ConcurrentMusicModel(4, 2);
+    obj.addNote(0, 4, 1, 60, 10);
+    String before = obj.display();
+    obj.editNote(0, 4, 1, 60, 10, 5, 8, 1, 62, 10);
+    String after = obj.display();
+    assertEquals(true, obj.undo());
+    assertEquals(before, obj.display());
+    assertEquals(true, obj.redo());
+    assertEquals(after, obj.display());
+  }
+
+  //Test edits kept by different stripes are undone newest first
+  @Test
+  public void testUndoAcrossStripes() {
+    IMusicModel obj = new ConcurrentMusicModel(4, 2);
+    IMusicModel plain = new MusicModel();
+    for (IMusicModel model : new IMusicModel[]{obj, plain}) {
+      model.addNote(0, 1, 1, 60, 10);
+      model.addNote(2, 3, 1, 60, 10);
+      model.editNote(2, 3, 1, 60, 10, 2, 3, 1, 62, 10);
+      model.editNote(0, 1, 1, 60, 10, 0, 1, 1, 61, 10);
+      model.editNote(2, 3, 1, 62, 10, 4, 5, 1, 63, 10);
+    }
+    for (int i = 0; i < 3; i += 1) {
+      assertEquals(true, obj.undo());
+      plain.undo();
+      assertEquals(plain.display(), obj.display());
+    }
+    assertEquals(true, obj.redo());
+    plain.redo();
+    assertEquals(plain.display(), obj.display());
+  }
+
+  //Test notes of no length count towards the pitches displayed, as in a music model
+  @Test
+  public void testEmptyNotePitches() {
+    IMusicModel obj = new ConcurrentMusicModel();
+    IMusicModel plain = new MusicModel();
+    for (IMusicModel model : new IMusicModel[]{obj, plain}) {
+      model.addNote(31, 31, 1, 55, 10);
+      model.addNote(42, 42, 2, 57, 10);
+      model.addNote(70, 80, 2, 55, 10);
+    }
+    assertEquals(3, obj.notesToDisplay().size());
+    assertEquals(plain.notesToDisplay(), obj.notesToDisplay());
+    assertEquals(plain.display(), obj.display());
+  }
+
+  //Test many threads adding notes at once all get their notes in
+  @Test
+  public void testParallelAdds() throws InterruptedException {
+    IMusicModel obj = new ConcurrentMusicModel(4, 4);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t += 1) {
+      int offset = t * 50;
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < 50; i += 1) {
+          obj.addNote(offset + i, offset + i + 2, 1, 60 + (i % 12), 10);
+        }
+        for (int i = 0; i < 50; i += 2) {
+          obj.removeNote(offset + i, offset + i + 2, 1, 60 + (i % 12), 10);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int count = 0;
+    SoundCursor cursor = obj.getSounds();
+    while (cursor.next()) {
+      count += 1;
+    }
+    assertEquals(200, count);
+    assertEquals(401, obj.getEndBeat());
+  }
+
+  //Test summing up ranges of beats which cover several stripes
+  @Test
+  public void testSummarize() {
+    IMusicModel obj = new ConcurrentMusicModel(3, 4);
+    IMusicModel expected = new MusicModel();
+    for (IMusicModel model : new IMusicModel[]{obj, expected}) {
+      for (int i = 0; i < 40; i += 1) {
+        model.addNote(i * 3, i * 3 + 2, 1, 60, (i * 37) % 128);
+      }
+      model.removeNote(30, 32, 1, 60, 114);
+    }
+    assertEquals(expected.summarize(0, 200), obj.summarize(0, 200));
+    assertEquals(expected.summarize(5, 40), obj.summarize(5, 40));
+    assertEquals(expected.summarize(31, 31), obj.summarize(31, 31));
+    assertEquals(11, obj.summarize(0, 35).getNoteCount());
+  }
+
+  //Test a striped piece timed in ticks is read out in beats
+  @Test
+  public void testResolution() {
+    ConcurrentMusicModel obj = new ConcurrentMusicModel(3, 4);
+    MusicModel expected = new MusicModel();
+    for (IMusicModel model : new IMusicModel[]{obj, expected}) {
+      model.setResolution(8);
+      for (int i = 0; i < 30; i += 1) {
+        model.addNote(i * 5, i * 5 + 11, 1, 60 + i % 5, 64);
+      }
+    }
+    assertEquals(8, obj.getResolution());
+    assertEquals(expected.getEndBeat(), obj.getEndBeat());
+    assertEquals(expected.display(), obj.display());
+    assertEquals(expected.getBeats(3, 9).keySet(), obj.getBeats(3, 9).keySet());
+  }
+}
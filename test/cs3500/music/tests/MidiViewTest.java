@@ -9,6 +9,7 @@ import java.util.Scanner;
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.Sequencer;
+import javax.sound.midi.Track;
 
 import cs3500.music.model.MusicModel;
 import cs3500.music.util.ModelBuilder;
@@ -196,6 +197,27 @@ public class MidiViewTest {
 
   }
 
+  @Test
+  public void testNotesChangedAfterLoading()
+          throws InvalidMidiDataException, MidiUnavailableException {
+    MusicModel model = new MusicModel();
+    model.setTempo(100);
+    model.addNote(0, 2, 1, 60, 64);
+    model.addNote(1, 3, 1, 62, 64);
+    Sequencer fakeSeq = new MockSequencer();
+    MidiViewImpl view = new MidiViewImpl(model, fakeSeq);
+    model.removeNote(0, 2, 1, 60, 64);
+    model.addNote(2, 4, 2, 64, 64);
+    view.initialize();
+    assertEquals(initString
+                    + "Sending NOTE_ON for note 62 of volume 64 on channel 0 and tick 1\n"
+                    + "Sending NOTE_ON for note 64 of volume 64 on channel 1 and tick 2\n"
+                    + "Sending NOTE_OFF for note 62 of volume 64 on channel 0 and tick 3\n"
+                    + "Sending NOTE_OFF for note 64 of volume 64 on channel 1 and tick 4\n"
+                    + "Tempo set to 100.0\n",
+            fakeSeq.toString());
+  }
+
   // Removed a test that checked for timing/wait logic, since we now use a Timer.
   // Added a few more tests for some new functionality
   @Test
@@ -208,4 +230,22 @@ public class MidiViewTest {
     assertEquals(initString + "Tempo set to 0.0\n" +
             "Pausing...\n", fakeSeq.toString());
   }
+
+  @Test
+  public void testEachInstrumentOnItsOwnTrack()
+          throws InvalidMidiDataException, MidiUnavailableException {
+    MusicModel model = new MusicModel();
+    model.addNote(0, 2, 1, 60, 64);
+    model.addNote(1, 3, 3, 62, 64);
+    model.addNote(4, 6, 3, 64, 64);
+    Sequencer fakeSeq = new MockSequencer();
+    new MidiViewImpl(model, fakeSeq);
+    Track[] tracks = fakeSeq.getSequence().getTracks();
+    // Each note is a NOTE_ON and a NOTE_OFF, and every track ends with an end of track event.
+    assertEquals(3, tracks[1].size());
+    assertEquals(1, tracks[2].size());
+    assertEquals(5, tracks[3].size());
+    model.removeNote(1, 3, 3, 62, 64);
+    assertEquals(3, tracks[3].size());
+  }
 }
@@ -2,11 +2,14 @@ package cs3500.music.tests;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import javax.sound.midi.ControllerEventListener;
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MetaEventListener;
+import javax.sound.midi.MidiEvent;
 import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.Receiver;
 import javax.sound.midi.Sequence;
@@ -56,9 +59,17 @@ public class MockSequencer implements Sequencer {
   @Override
   public void start() {
     this.log.append("Playing...\n");
-    Track t = this.sequence.getTracks()[0];
-    for (int i = 0; i < t.size() - 1; i++) {
-      this.receiver.send(t.get(i).getMessage(), t.get(i).getTick());
+    // Plays the events of every track in tick order, as a real sequencer would, taking the
+    // tracks in order for events on the same tick. The last event of each track ends the track.
+    List<MidiEvent> events = new ArrayList<>();
+    for (Track t : this.sequence.getTracks()) {
+      for (int i = 0; i < t.size() - 1; i++) {
+        events.add(t.get(i));
+      }
+    }
+    events.sort(Comparator.comparingLong(MidiEvent::getTick));
+    for (MidiEvent e : events) {
+      this.receiver.send(e.getMessage(), e.getTick());
     }
 
     this.isPlaying = true;
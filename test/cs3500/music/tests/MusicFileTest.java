@@ -0,0 +1,136 @@
+package cs3500.music.tests;
+
+import org.junit.Test;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.MusicFile;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.SoundCursor;
+import cs3500.music.util.ModelBuilder;
+import cs3500.music.util.MusicReader;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Class which tests reading and writing binary music files.
+ */
+public class MusicFileTest {
+
+  /**
+   * Lists the sounds a cursor visits, one per line.
+   */
+  private static String listCursor(SoundCursor c) {
+    StringBuilder out = new StringBuilder();
+    while (c.next()) {
+      out.append(c.getStartBeat() + "-" + c.getEndBeat() + " " + c.getInstrument() + " "
+              + c.getPitch() + " " + c.getVolume() + "\n");
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes a model to a temporary binary file and opens it again.
+   */
+  private static MusicFile roundTrip(IMusicModel model) throws IOException {
+    Path path = Files.createTempFile("music", ".mbin");
+    path.toFile().deleteOnExit();
+    MusicFile.write(model, path);
+    return MusicFile.open(path);
+  }
+
+  //Test writing and opening a piece keeps its tempo and notes in order
+  @Test
+  public void testRoundTrip() throws IOException {
+    IMusicModel obj = new MusicModel();
+    obj.setTempo(200000);
+    obj.addNote(4, 6, 1, 62, 100);
+    obj.addNote(0, 2, 127, 0, 127);
+    obj.addNote(0, 9, 2, 127, 0);
+    MusicFile file = roundTrip(obj);
+    assertEquals(200000, file.getTempo());
+    assertEquals(3, file.size());
+    assertEquals(obj.getEndBeat(), file.getEndBeat());
+    assertEquals(listCursor(obj.getSounds()), listCursor(file.getSounds()));
+    assertEquals(obj.display(), file.toModel().display());
+  }
+
+  //Test windows of a file hold the same notes as the same windows of the model
+  @Test
+  public void testWindows() throws IOException {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 300, 1, 60, 10);
+    for (int i = 0; i < 100; i += 1) {
+      obj.addNote(i * 3, i * 3 + 5, 1 + i % 3, 40 + i % 50, 64);
+    }
+    MusicFile file = roundTrip(obj);
+    int[][] windows = {{0, 0}, {5, 70}, {64, 64}, {63, 128}, {200, 400}, {299, 299}, {300, 500}};
+    for (int[] w : windows) {
+      assertEquals(listCursor(obj.getSounds(w[0], w[1])),
+              listCursor(file.getSounds(w[0], w[1])));
+    }
+  }
+
+  //Test an empty piece can be written and opened
+  @Test
+  public void testEmpty() throws IOException {
+    MusicFile file = roundTrip(new MusicModel());
+    assertEquals(0, file.size());
+    assertEquals("", listCursor(file.getSounds(0, 100)));
+    assertEquals(new MusicModel().display(), file.toModel().display());
+  }
+
+  //Test converting a text file gives the same piece as parsing it
+  @Test
+  public void testConvert() throws IOException {
+    Path path = Files.createTempFile("music", ".mbin");
+    path.toFile().deleteOnExit();
+    MusicReader.convertToBinary(new FileReader("mary-little-lamb.txt"), path);
+    MusicModel parsed = MusicReader.parseFile(new FileReader("mary-little-lamb.txt"),
+            new ModelBuilder());
+    MusicModel loaded = MusicFile.open(path).toModel();
+    assertEquals(parsed.getTempo(), loaded.getTempo());
+    assertEquals(parsed.display(), loaded.display());
+  }
+
+  //Test opening a file which is not in the binary format
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotBinary() throws IOException {
+    MusicFile.open(Paths.get("mary-little-lamb.txt"));
+  }
+
+  //Test a window ending before it starts
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidWindow() throws IOException {
+    roundTrip(new MusicModel()).getSounds(5, 4);
+  }
+
+  //Test a piece read in ticks keeps its resolution through a binary file
+  @Test
+  public void testResolution() throws IOException {
+    MusicModel parsed = MusicReader.parseFile(new StringReader("tempo 500000\n"
+            + "resolution 480\nnote 0 720 1 60 64\nnote 1440 1920 2 62 80\n"), new ModelBuilder());
+    assertEquals(480, parsed.getResolution());
+    assertEquals(4, parsed.getEndBeat());
+    MusicFile file = roundTrip(parsed);
+    assertEquals(480, file.getResolution());
+    assertEquals(1920, file.getEndBeat());
+    assertEquals(listCursor(parsed.getSounds()), listCursor(file.getSounds(700, 1500)));
+    MusicModel loaded = file.toModel();
+    assertEquals(480, loaded.getResolution());
+    assertEquals(parsed.display(), loaded.display());
+  }
+
+  //Test a resolution line coming after a note
+  @Test(expected = IllegalArgumentException.class)
+  public void testResolutionAfterNote() {
+    MusicReader.parseFile(new StringReader("note 0 2 1 60 64\nresolution 4\n"),
+            new ModelBuilder());
+  }
+}
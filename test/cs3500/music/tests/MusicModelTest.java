@@ -8,11 +8,20 @@ import java.util.List;
 
 import cs3500.music.model.CombineType;
 import cs3500.music.model.IMusicModel;
+import cs3500.music.model.ModelListener;
 import cs3500.music.model.MusicModel;
 import cs3500.music.model.Note;
+import cs3500.music.model.NoteFilter;
+import cs3500.music.model.NoteQuery;
+import cs3500.music.model.NoteStatistics;
+import cs3500.music.model.NoteTransform;
+import cs3500.music.model.OctaveType;
+import cs3500.music.model.PitchType;
 import cs3500.music.model.Sound;
+import cs3500.music.model.SoundCursor;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
 
 /**
  * Class which tests the music model.
@@ -157,9 +166,24 @@ public class MusicModelTest {
             "3                 X  \n" +
             "4                 |  \n" +
             "5                 |  \n" +
-            "6                 |  \n" +
-            "7                    \n" +
-            "8                    \n", obj.display());
+            "6                 |  \n", obj.display());
+  }
+
+  //Test remove note only drops a pitch from the range once no other note uses it
+  @Test
+  public void testRemoveNoteKeepsSharedPitch() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 3, 123, 60, 10);
+    obj.addNote(3, 9, 123, 65, 10);
+    obj.addNote(5, 7, 123, 65, 10);
+    obj.removeNote(3, 9, 123, 65, 10);
+    assertEquals(6, obj.notesToDisplay().size());
+    obj.removeNote(5, 7, 123, 65, 10);
+    assertEquals(1, obj.notesToDisplay().size());
+    assertEquals("   C5 \n" +
+            "0  X  \n" +
+            "1  |  \n" +
+            "2  |  \n", obj.display());
   }
 
   //Test remove note without the note present
@@ -173,12 +197,26 @@ public class MusicModelTest {
   }
 
   //Test remove note without any note added to the track
-  @Test(expected = NullPointerException.class)
+  @Test(expected = IllegalArgumentException.class)
   public void testRemoveNote2() {
     IMusicModel obj = new MusicModel();
     obj.removeNote(2, 9, 123, 65, 10);
   }
 
+  //Test remove note starting where nothing is playing
+  @Test
+  public void testRemoveNoteWhereSilent() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 1, 60, 50);
+    try {
+      obj.removeNote(10, 12, 1, 60, 50);
+      fail("Removing a note which is not there should fail.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Sound not present in track.", e.getMessage());
+    }
+    assertEquals(1, obj.getStatistics().getNoteCount());
+  }
+
   //Test edit note by adding beats
   @Test
   public void testEditNote() {
@@ -267,14 +305,12 @@ public class MusicModelTest {
             "4  |                                       |       " +
                     "                 |              |  \n" +
             "5  |                                       |       " +
-                    "                 |              |  \n" +
+                    "                 |                 \n" +
             "6  |                                       |       " +
                     "                 |                 \n" +
             "7  |                                       |       " +
                     "                 |                 \n" +
-            "8  |                                       |       " +
-                    "                 |                 \n" +
-            "9                                                  " +
+            "8  |                                               " +
                     "                 |                 \n", obj.display());
   }
 
@@ -323,17 +359,353 @@ public class MusicModelTest {
             "14                                                         " +
             "          |              |  \n" +
             "15                                                         " +
-            "          |              |  \n" +
+            "          |                 \n" +
             "16                                          X               " +
             "         |                 \n" +
             "17                                          |               " +
             "         |                 \n" +
-            "18                                          |                " +
-            "        |                 \n" +
-            "19                                                           " +
+            "18                                                           " +
             "        |                 \n", obj.display());
   }
 
+  //Test Combine Music copies each note once, even across beats with no notes
+  @Test
+  public void testCombineMusicGaps() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(8, 12, 1, 62, 10);
+    IMusicModel obj2 = new MusicModel();
+    obj2.addNote(1, 3, 1, 64, 10);
+    String before = obj.display();
+    obj.combineMusic(CombineType.SIMULTANEOUS, obj2);
+    StringBuilder out = new StringBuilder();
+    SoundCursor c = obj2.getSounds();
+    while (c.next()) {
+      out.append(c.getStartBeat() + "-" + c.getEndBeat() + " " + c.getPitch() + "\n");
+    }
+    assertEquals("0-2 60\n1-3 64\n8-12 62\n", out.toString());
+    assertEquals(before, obj.display());
+  }
+
+  //Test combining can be undone in one step
+  @Test
+  public void testCombineMusicUndo() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(3, 5, 1, 62, 10);
+    IMusicModel obj2 = new MusicModel();
+    obj2.addNote(0, 4, 1, 64, 10);
+    String before = obj2.display();
+    obj.combineMusic(CombineType.CONSECUTIVE, obj2);
+    assertEquals(10, obj2.getEndBeat());
+    obj2.undo();
+    assertEquals(before, obj2.display());
+  }
+
+  //Test combining many pieces one after the other places them as combineMusic would
+  @Test
+  public void testCombineAllConsecutive() {
+    IMusicModel a = new MusicModel();
+    a.addNote(0, 3, 1, 60, 10);
+    a.setTempo(123);
+    IMusicModel b = new MusicModel();
+    IMusicModel c = new MusicModel();
+    c.addNote(1, 4, 1, 62, 10);
+    c.addNote(0, 2, 1, 57, 10);
+    IMusicModel d = new MusicModel();
+    d.addNote(2, 3, 1, 65, 10);
+    String aBefore = a.display();
+
+    IMusicModel expected = new MusicModel();
+    a.combineMusic(CombineType.SIMULTANEOUS, expected);
+    c.combineMusic(CombineType.CONSECUTIVE, expected);
+    d.combineMusic(CombineType.CONSECUTIVE, expected);
+    List<IMusicModel> pieces = new ArrayList<>();
+    pieces.add(a);
+    pieces.add(b);
+    pieces.add(c);
+    pieces.add(d);
+    IMusicModel combined = MusicModel.combineAll(CombineType.CONSECUTIVE, pieces, false);
+    assertEquals(expected.display(), combined.display());
+    assertEquals(123, combined.getTempo());
+    assertEquals(false, combined.undo());
+    assertEquals(aBefore, a.display());
+  }
+
+  //Test combining many pieces together gives the same piece with or without threads
+  @Test
+  public void testCombineAllParallel() {
+    List<IMusicModel> pieces = new ArrayList<>();
+    IMusicModel expected = new MusicModel();
+    for (int i = 0; i < 9; i += 1) {
+      IMusicModel piece = new MusicModel();
+      for (int j = 0; j < 20; j += 1) {
+        piece.addNote((i * 7 + j * 3) % 40, (i * 7 + j * 3) % 40 + 1 + j % 4, i, 40 + j, 10 + i);
+      }
+      piece.combineMusic(CombineType.SIMULTANEOUS, expected);
+      pieces.add(piece);
+    }
+    String sequential = MusicModel.combineAll(CombineType.SIMULTANEOUS, pieces, false).display();
+    assertEquals(expected.display(), sequential);
+    assertEquals(sequential,
+            MusicModel.combineAll(CombineType.SIMULTANEOUS, pieces, true).display());
+    assertEquals("", MusicModel.combineAll(CombineType.SIMULTANEOUS, new ArrayList<>(), true)
+            .display());
+  }
+
+  /**
+   * Lists every sound in a model, one per line, as start-end instrument pitch volume.
+   */
+  private static String listSounds(IMusicModel model) {
+    StringBuilder out = new StringBuilder();
+    SoundCursor c = model.getSounds();
+    while (c.next()) {
+      out.append(c.getStartBeat() + "-" + c.getEndBeat() + " " + c.getInstrument() + " "
+              + c.getPitch() + " " + c.getVolume() + "\n");
+    }
+    return out.toString();
+  }
+
+  //Test transposing the notes starting in a range of beats
+  @Test
+  public void testTransformTranspose() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 6, 1, 60, 10);
+    obj.addNote(2, 4, 1, 62, 10);
+    obj.addNote(3, 5, 2, 64, 10);
+    obj.addNote(5, 7, 1, 65, 10);
+    assertEquals(2, obj.transformNotes(1, 4, NoteFilter.ALL,
+            NoteTransform.IDENTITY.transpose(-12)));
+    assertEquals("0-6 1 60 10\n2-4 1 50 10\n3-5 2 52 10\n5-7 1 65 10\n", listSounds(obj));
+    List<Note> shown = obj.notesToDisplay();
+    assertEquals(50, shown.get(shown.size() - 1).getValue());
+  }
+
+  //Test a filter picks which notes in the range are transformed
+  @Test
+  public void testTransformFilter() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(0, 2, 2, 60, 10);
+    obj.addNote(1, 3, 1, 70, 10);
+    assertEquals(1, obj.transformNotes(0, 10,
+            NoteFilter.instrument(1).and(NoteFilter.pitches(50, 65)),
+            NoteTransform.IDENTITY.setInstrument(5).scaleVolume(2).offsetVolume(1)));
+    assertEquals("0-2 2 60 10\n0-2 5 60 21\n1-3 1 70 10\n", listSounds(obj));
+  }
+
+  //Test moving notes in time keeps them ordered by start beat
+  @Test
+  public void testTransformShift() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(4, 6, 1, 62, 10);
+    obj.addNote(8, 9, 1, 64, 120);
+    obj.transformNotes(0, 4, NoteFilter.ALL,
+            NoteTransform.IDENTITY.shift(6).offsetVolume(100));
+    assertEquals("6-8 1 60 110\n8-9 1 64 120\n10-12 1 62 110\n", listSounds(obj));
+    assertEquals(12, obj.getEndBeat());
+  }
+
+  //Test a transform making any note invalid changes nothing
+  @Test
+  public void testTransformInvalid() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(3, 5, 1, 120, 10);
+    String before = listSounds(obj);
+    try {
+      obj.transformNotes(0, 5, NoteFilter.ALL, NoteTransform.IDENTITY.transpose(10));
+    } catch (IllegalArgumentException e) {
+      assertEquals(before, listSounds(obj));
+      return;
+    }
+    assertEquals(true, false);
+  }
+
+  //Test a transform is undone in one step
+  @Test
+  public void testTransformUndo() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(3, 5, 1, 62, 10);
+    obj.setTempo(100);
+    String before = obj.display();
+    obj.transformNotes(0, 5, NoteFilter.ALL, NoteTransform.IDENTITY.transpose(2).shift(1));
+    obj.undo();
+    assertEquals(before, obj.display());
+    assertEquals(100, obj.getTempo());
+  }
+
+  /**
+   * Lists every sound a cursor gives, one per line, as start-end instrument pitch volume.
+   */
+  private static String listCursor(SoundCursor c) {
+    StringBuilder out = new StringBuilder();
+    while (c.next()) {
+      out.append(c.getStartBeat() + "-" + c.getEndBeat() + " " + c.getInstrument() + " "
+              + c.getPitch() + " " + c.getVolume() + "\n");
+    }
+    return out.toString();
+  }
+
+  //Test querying by instrument and pitch range
+  @Test
+  public void testQueryInstrumentAndPitch() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(4, 6, 3, 62, 10);
+    obj.addNote(0, 2, 3, 60, 10);
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(1, 3, 3, 80, 10);
+    obj.addNote(2, 9, 3, 79, 20);
+    assertEquals("0-2 3 60 10\n2-9 3 79 20\n4-6 3 62 10\n",
+            listCursor(obj.query(NoteQuery.ALL.instrument(3).pitches(60, 79))));
+    assertEquals("2-9 3 79 20\n",
+            listCursor(obj.query(NoteQuery.ALL.instrument(3).volumes(15, 127))));
+    assertEquals("0-2 3 60 10\n0-2 1 60 10\n",
+            listCursor(obj.query(NoteQuery.ALL.pitches(60, 60))));
+    assertEquals("", listCursor(obj.query(NoteQuery.ALL.instrument(7))));
+  }
+
+  //Test querying by beats alone finds the notes playing in that range
+  @Test
+  public void testQueryBeats() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(1, 5, 1, 62, 90);
+    obj.addNote(6, 8, 1, 64, 90);
+    assertEquals("1-5 1 62 90\n",
+            listCursor(obj.query(NoteQuery.ALL.beats(3, 5).volumes(50, 100))));
+    assertEquals(listCursor(obj.getSounds()), listCursor(obj.query(NoteQuery.ALL)));
+  }
+
+  //Test queries see notes added, removed and transformed after the first query
+  @Test
+  public void testQueryAfterEdits() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 2, 60, 10);
+    obj.addNote(1, 3, 2, 61, 10);
+    NoteQuery query = NoteQuery.ALL.instrument(2);
+    assertEquals("0-2 2 60 10\n1-3 2 61 10\n", listCursor(obj.query(query)));
+    IMusicModel before = obj.snapshot();
+    obj.removeNote(0, 2, 2, 60, 10);
+    obj.addNote(0, 1, 2, 70, 10);
+    obj.transformNotes(1, 1, NoteFilter.ALL, NoteTransform.IDENTITY.setInstrument(4));
+    assertEquals("0-1 2 70 10\n", listCursor(obj.query(query)));
+    assertEquals("1-3 4 61 10\n", listCursor(obj.query(NoteQuery.ALL.instrument(4))));
+    assertEquals("0-2 2 60 10\n1-3 2 61 10\n", listCursor(before.query(query)));
+  }
+
+  //Test queries by pitch see edits made after the first query, and only look at their beats
+  @Test
+  public void testPitchQueryAfterEdits() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 2, 60, 10);
+    obj.addNote(1, 3, 2, 61, 10);
+    obj.addNote(8, 9, 2, 61, 10);
+    NoteQuery query = NoteQuery.ALL.pitches(60, 62).beats(0, 4);
+    assertEquals("0-2 2 60 10\n1-3 2 61 10\n", listCursor(obj.query(query)));
+    obj.removeNote(0, 2, 2, 60, 10);
+    obj.addNote(2, 4, 3, 62, 10);
+    obj.transformNotes(1, 1, NoteFilter.ALL, NoteTransform.IDENTITY.transpose(5));
+    assertEquals("2-4 3 62 10\n", listCursor(obj.query(query)));
+    assertEquals("1-3 2 66 10\n", listCursor(obj.query(NoteQuery.ALL.pitches(66, 66))));
+  }
+
+  //Test a query can choose the notes for a transform, such as muting one instrument
+  @Test
+  public void testQueryAsFilter() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 2, 60, 10);
+    obj.addNote(1, 3, 5, 61, 10);
+    obj.transformNotes(0, obj.getEndBeat(), NoteQuery.ALL.instrument(5),
+            NoteTransform.IDENTITY.scaleVolume(0));
+    assertEquals("0-2 2 60 10\n1-3 5 61 0\n", listCursor(obj.getSounds()));
+  }
+
+  //Test a query cannot have its lowest pitch above its highest
+  @Test(expected = IllegalArgumentException.class)
+  public void testQueryInvalid() {
+    NoteQuery.ALL.pitches(70, 60);
+  }
+
+  //Test quantizing snaps notes in the range to the grid and leaves the rest alone
+  @Test
+  public void testQuantize() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(1, 3, 1, 60, 10);
+    obj.addNote(5, 6, 1, 62, 10);
+    obj.addNote(6, 11, 2, 64, 10);
+    obj.addNote(9, 10, 1, 65, 10);
+    assertEquals(3, obj.quantize(0, 8, 4));
+    assertEquals("0-4 1 60 10\n4-8 1 62 10\n8-12 2 64 10\n9-10 1 65 10\n",
+            listSounds(obj));
+  }
+
+  //Test quantizing notes of one pitch and instrument onto the same beat keeps only the longest,
+  //and cuts short a note still sounding when the next starts
+  @Test
+  public void testQuantizeCollisions() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(1, 7, 1, 60, 20);
+    obj.addNote(2, 3, 1, 60, 50);
+    obj.addNote(3, 4, 1, 60, 30);
+    obj.addNote(1, 2, 2, 60, 40);
+    assertEquals(5, obj.quantize(0, 10, 2));
+    assertEquals("0-2 1 60 10\n2-4 1 60 20\n2-4 2 60 40\n4-6 1 60 30\n", listSounds(obj));
+    obj.undo();
+    assertEquals("0-2 1 60 10\n1-2 2 60 40\n1-7 1 60 20\n2-3 1 60 50\n3-4 1 60 30\n",
+            listSounds(obj));
+  }
+
+  //Test stretching a section about its first beat
+  @Test
+  public void testStretch() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(4, 6, 1, 62, 10);
+    obj.addNote(5, 6, 1, 64, 10);
+    obj.addNote(7, 8, 1, 65, 10);
+    assertEquals(3, obj.stretch(4, 7, 2));
+    assertEquals("0-2 1 60 10\n4-8 1 62 10\n6-8 1 64 10\n10-12 1 65 10\n", listSounds(obj));
+    assertEquals(2, obj.stretch(0, 5, 0.5));
+    assertEquals("0-1 1 60 10\n2-4 1 62 10\n6-8 1 64 10\n10-12 1 65 10\n", listSounds(obj));
+  }
+
+  //Test a grid smaller than one beat is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testQuantizeInvalidGrid() {
+    new MusicModel().quantize(0, 4, 0);
+  }
+
+  //Test a ratio which is not positive is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testStretchInvalidRatio() {
+    new MusicModel().stretch(0, 4, 0);
+  }
+
+  //Test a stretch from before the first beat is rejected and leaves the notes as they were
+  @Test
+  public void testStretchNegativeStart() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(8, 10, 1, 62, 10);
+    String before = obj.display();
+    try {
+      obj.stretch(-20, 100, 0.5);
+      fail("Stretching from a negative beat should fail.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(before, obj.display());
+    }
+  }
+
+  //Test quantizing from before the first beat is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testQuantizeNegativeStart() {
+    new MusicModel().quantize(-4, 4, 2);
+  }
+
   //Test display empty music model
   @Test
   public void testDisplay() {
@@ -351,6 +723,37 @@ public class MusicModelTest {
     assertEquals(9, obj.getEndBeat());
   }
 
+  //Test end beat shrinks when the last notes are removed
+  @Test
+  public void testEndBeatAfterRemove() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 3, 123, 60, 10);
+    obj.addNote(3, 9, 123, 65, 10);
+    obj.addNote(3, 7, 123, 57, 10);
+    obj.removeNote(3, 9, 123, 65, 10);
+    assertEquals(7, obj.getEndBeat());
+    obj.removeNote(3, 7, 123, 57, 10);
+    assertEquals(3, obj.getEndBeat());
+    obj.removeNote(0, 3, 123, 60, 10);
+    assertEquals(1, obj.getEndBeat());
+  }
+
+  //Test removing most of a large piece keeps the rest intact
+  @Test
+  public void testRemoveManyNotes() {
+    MusicModel obj = new MusicModel();
+    for (int i = 0; i < 1000; i += 1) {
+      obj.addNote(i, i + 2, 1, 60 + (i % 5), 10);
+    }
+    for (int i = 0; i < 990; i += 1) {
+      obj.removeNote(i, i + 2, 1, 60 + (i % 5), 10);
+    }
+    assertEquals(1001, obj.getEndBeat());
+    assertEquals(5, obj.notesToDisplay().size());
+    assertEquals(0, obj.getBeats(0, 989).size());
+    assertEquals(2, obj.getBeats(995, 995).get(995).size());
+  }
+
   //Test end beat with empty piece
   @Test
   public void testEndBeat1() {
@@ -365,6 +768,414 @@ public class MusicModelTest {
     assertEquals(new HashMap<Integer, List<Sound>>(), obj.getBeats(0, 3));
   }
 
+  //Test sounds cursor over a window includes sounds that started before it
+  @Test
+  public void testGetSoundsWindow() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 3, 123, 60, 10);
+    obj.addNote(3, 9, 123, 65, 10);
+    obj.addNote(3, 7, 123, 57, 11);
+    obj.addNote(10, 12, 123, 57, 12);
+    SoundCursor cursor = obj.getSounds(5, 8);
+    StringBuilder out = new StringBuilder();
+    while (cursor.next()) {
+      out.append(cursor.getStartBeat() + "-" + cursor.getEndBeat() + ":" + cursor.getPitch()
+              + ":" + cursor.getVolume() + " ");
+    }
+    assertEquals("3-9:65:10 3-7:57:11 ", out.toString());
+  }
+
+  //Test sounds cursor at a single beat
+  @Test
+  public void testGetSoundsAt() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 3, 123, 60, 10);
+    obj.addNote(3, 9, 123, 65, 10);
+    obj.addNote(2, 4, 123, 57, 10);
+    SoundCursor cursor = obj.getSoundsAt(3);
+    StringBuilder out = new StringBuilder();
+    while (cursor.next()) {
+      out.append(cursor.getPitch() + " ");
+    }
+    assertEquals("57 65 ", out.toString());
+    assertEquals(false, obj.getSoundsAt(9).next());
+  }
+
+  //Test sounds cursor with the window the wrong way around
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetSoundsBadWindow() {
+    IMusicModel obj = new MusicModel();
+    obj.getSounds(4, 3);
+  }
+
+  //Test adding notes in bulk gives the same piece as adding them one at a time
+  @Test
+  public void testAddNotes() {
+    IMusicModel one = new MusicModel();
+    one.addNote(0, 2, 1, 60, 10);
+    one.addNote(4, 6, 1, 64, 10);
+    one.addNote(1, 5, 1, 62, 10);
+    one.addNote(4, 6, 2, 64, 10);
+    one.addNote(3, 3, 1, 67, 10);
+    one.addNote(0, 8, 1, 55, 10);
+    IMusicModel bulk = new MusicModel();
+    bulk.addNote(0, 2, 1, 60, 10);
+    bulk.addNote(4, 6, 1, 64, 10);
+    bulk.addNotes(new int[]{1, 4, 3, 0}, new int[]{5, 6, 3, 8}, new int[]{1, 2, 1, 1},
+            new int[]{62, 64, 67, 55}, new int[]{10, 10, 10, 10});
+    assertEquals(one.display(), bulk.display());
+    assertEquals(one.getEndBeat(), bulk.getEndBeat());
+    assertEquals(one.notesToDisplay(), bulk.notesToDisplay());
+    SoundCursor a = one.getSounds();
+    SoundCursor b = bulk.getSounds();
+    while (a.next()) {
+      assertEquals(true, b.next());
+      assertEquals(a.getSound(), b.getSound());
+    }
+    assertEquals(false, b.next());
+  }
+
+  //Test adding notes in bulk with one invalid note leaves the piece unchanged
+  @Test
+  public void testAddNotesInvalid() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    try {
+      obj.addNotes(new int[]{1, 4}, new int[]{5, 6}, new int[]{1, 1}, new int[]{62, 128},
+              new int[]{10, 10});
+    } catch (IllegalArgumentException e) {
+      assertEquals(2, obj.getEndBeat());
+      assertEquals(1, obj.notesToDisplay().size());
+      return;
+    }
+    assertEquals(true, false);
+  }
+
+  //Test adding notes in bulk with arrays of different lengths
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddNotesLengths() {
+    IMusicModel obj = new MusicModel();
+    obj.addNotes(new int[]{1, 4}, new int[]{5, 6}, new int[]{1}, new int[]{62, 64},
+            new int[]{10, 10});
+  }
+
+  //Test a snapshot does not see edits made after it was taken
+  @Test
+  public void testSnapshot() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.setTempo(100);
+    IMusicModel snap = obj.snapshot();
+    String before = obj.display();
+    obj.addNote(1, 6, 1, 64, 10);
+    obj.removeNote(0, 2, 1, 60, 10);
+    obj.setTempo(200);
+    assertEquals(before, snap.display());
+    assertEquals(2, snap.getEndBeat());
+    assertEquals(100, snap.getTempo());
+    assertEquals(6, obj.getEndBeat());
+    assertEquals(200, obj.getTempo());
+    assertEquals(1, obj.notesToDisplay().size());
+  }
+
+  //Test taking a snapshot twice with no edits in between gives the same snapshot
+  @Test
+  public void testSnapshotReused() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    IMusicModel snap = obj.snapshot();
+    assertEquals(true, snap == obj.snapshot());
+    assertEquals(true, snap == snap.snapshot());
+    obj.addNote(0, 3, 1, 60, 10);
+    assertEquals(false, snap == obj.snapshot());
+  }
+
+  //Test a snapshot cannot be changed
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSnapshotAddNote() {
+    IMusicModel obj = new MusicModel();
+    obj.snapshot().addNote(0, 2, 1, 60, 10);
+  }
+
+  //Test a snapshot cannot have notes removed
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSnapshotRemoveNote() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.snapshot().removeNote(0, 2, 1, 60, 10);
+  }
+
+  //Test undoing and redoing an added note
+  @Test
+  public void testUndoAddNote() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(100, 0);
+    obj.addNote(0, 2, 1, 60, 10);
+    String before = obj.display();
+    obj.addNote(1, 6, 1, 64, 10);
+    String after = obj.display();
+    assertEquals(true, obj.undo());
+    assertEquals(before, obj.display());
+    assertEquals(2, obj.getEndBeat());
+    assertEquals(true, obj.redo());
+    assertEquals(after, obj.display());
+    assertEquals(false, obj.redo());
+  }
+
+  //Test undoing an edit puts the old note back in one step
+  @Test
+  public void testUndoEditNote() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(100, 0);
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(0, 4, 1, 62, 10);
+    String before = obj.display();
+    obj.editNote(0, 4, 1, 62, 10, 3, 9, 1, 55, 10);
+    assertEquals(true, obj.undo());
+    assertEquals(before, obj.display());
+    assertEquals(true, obj.undo());
+    assertEquals(true, obj.undo());
+    assertEquals(false, obj.undo());
+    assertEquals("", obj.display());
+  }
+
+  //Test a new edit after an undo can't be redone past
+  @Test
+  public void testRedoAfterEdit() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(100, 0);
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.removeNote(0, 2, 1, 60, 10);
+    obj.undo();
+    obj.addNote(0, 3, 1, 61, 10);
+    assertEquals(false, obj.redo());
+    assertEquals(2, obj.notesToDisplay().size());
+  }
+
+  //Test quick single note additions are undone together
+  @Test
+  public void testUndoCoalesced() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(100, 60000);
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(1, 2, 1, 61, 10);
+    obj.addNote(2, 5, 1, 62, 10);
+    obj.removeNote(1, 2, 1, 61, 10);
+    assertEquals(true, obj.undo());
+    assertEquals(3, obj.notesToDisplay().size());
+    assertEquals(true, obj.undo());
+    assertEquals("", obj.display());
+    assertEquals(false, obj.undo());
+  }
+
+  //Test the history forgets the oldest edits once it is full
+  @Test
+  public void testUndoLimit() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(8, 0);
+    for (int i = 0; i < 20; i += 1) {
+      obj.addNote(i, i + 1, 1, 60, 10);
+    }
+    int undone = 0;
+    while (obj.undo()) {
+      undone += 1;
+    }
+    assertEquals(true, undone <= 8);
+    assertEquals(20 - undone, obj.getEndBeat());
+  }
+
+  //Test an edit too big for the history is forgotten whole rather than partly undone
+  @Test
+  public void testUndoLimitCompound() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(4, 0);
+    obj.addNote(20, 22, 1, 50, 10);
+    obj.addNotes(new int[]{0, 1, 2, 3, 4, 5}, new int[]{1, 2, 3, 4, 5, 6},
+            new int[]{1, 1, 1, 1, 1, 1}, new int[]{60, 61, 62, 63, 64, 65},
+            new int[]{10, 10, 10, 10, 10, 10});
+    assertEquals(false, obj.undo());
+    assertEquals(7, obj.summarize(0, 30).getNoteCount());
+    obj.addNotes(new int[]{7, 8}, new int[]{8, 9}, new int[]{1, 1}, new int[]{60, 61},
+            new int[]{10, 10});
+    assertEquals(true, obj.undo());
+    assertEquals(7, obj.summarize(0, 30).getNoteCount());
+  }
+
+  //Test a batch under the limit of the history can still be undone after earlier edits, even
+  //when it alone is over three quarters of the limit
+  @Test
+  public void testUndoLargeBatchAfterEdits() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(100, 0);
+    for (int i = 0; i < 30; i += 1) {
+      obj.addNote(i, i + 1, 1, 60, 10);
+    }
+    int[] starts = new int[80];
+    int[] ends = new int[80];
+    int[] instruments = new int[80];
+    int[] pitches = new int[80];
+    int[] volumes = new int[80];
+    for (int i = 0; i < 80; i += 1) {
+      starts[i] = 100 + i;
+      ends[i] = 101 + i;
+      instruments[i] = 1;
+      pitches[i] = 62;
+      volumes[i] = 10;
+    }
+    obj.addNotes(starts, ends, instruments, pitches, volumes);
+    assertEquals(true, obj.undo());
+    assertEquals(30, obj.summarize(0, 200).getNoteCount());
+  }
+
+  //Test undoing a tempo change and a note of no length
+  @Test
+  public void testUndoTempoAndEmptyNote() {
+    MusicModel obj = new MusicModel();
+    obj.setHistoryLimits(100, 0);
+    obj.setTempo(100);
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.setTempo(200);
+    obj.addNote(1, 1, 1, 72, 10);
+    obj.undo();
+    obj.undo();
+    assertEquals(100, obj.getTempo());
+    assertEquals(1, obj.notesToDisplay().size());
+    obj.redo();
+    assertEquals(200, obj.getTempo());
+  }
+
+  //Test undoing on a snapshot
+  @Test(expected = UnsupportedOperationException.class)
+  public void testUndoSnapshot() {
+    IMusicModel obj = new MusicModel();
+    obj.snapshot().undo();
+  }
+
+  /**
+   * A listener which writes down every change it is told about.
+   */
+  private static class Recorder implements ModelListener {
+    private final StringBuilder log = new StringBuilder();
+
+    @Override
+    public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+      log.append("add " + start + " " + end + " " + pitch + "\n");
+    }
+
+    @Override
+    public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+      log.append("remove " + start + " " + end + " " + pitch + "\n");
+    }
+
+    @Override
+    public void tempoChanged(int tempo) {
+      log.append("tempo " + tempo + "\n");
+    }
+
+    @Override
+    public void pitchRangeChanged(int lowest, int highest) {
+      log.append("range " + lowest + " " + highest + "\n");
+    }
+  }
+
+  //Test listeners told about notes added together see the model with every one of them in it
+  @Test
+  public void testListenerSeesBulkAdd() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 1, 60, 10);
+    StringBuilder seen = new StringBuilder();
+    obj.addListener(new ModelListener() {
+      @Override
+      public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+        seen.append(obj.getEndBeat() + " " + obj.getSoundsAt(100).next() + "\n");
+      }
+    });
+    int[] starts = new int[50];
+    int[] ends = new int[50];
+    int[] instruments = new int[50];
+    int[] pitches = new int[50];
+    int[] volumes = new int[50];
+    for (int i = 0; i < 50; i += 1) {
+      starts[i] = i * 4;
+      ends[i] = i * 4 + 2;
+      instruments[i] = 1;
+      pitches[i] = 60;
+      volumes[i] = 10;
+    }
+    obj.addNotes(starts, ends, instruments, pitches, volumes);
+    assertEquals(true, seen.toString().startsWith("198 true\n"));
+  }
+
+  //Test listeners are told about each change
+  @Test
+  public void testListener() {
+    IMusicModel obj = new MusicModel();
+    Recorder rec = new Recorder();
+    obj.addListener(rec);
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(1, 4, 1, 60, 10);
+    obj.addNote(1, 4, 1, 64, 10);
+    obj.setTempo(200);
+    obj.removeNote(1, 4, 1, 64, 10);
+    assertEquals("add 0 2 60\nrange 60 60\nadd 1 4 60\nadd 1 4 64\nrange 60 64\n"
+            + "tempo 200\nremove 1 4 64\nrange 60 60\n", rec.log.toString());
+  }
+
+  //Test an edit is reported once, and undo is reported too
+  @Test
+  public void testListenerEditAndUndo() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    Recorder rec = new Recorder();
+    obj.addListener(rec);
+    obj.editNote(0, 2, 1, 60, 10, 3, 5, 1, 62, 10);
+    obj.undo();
+    obj.removeListener(rec);
+    obj.redo();
+    assertEquals("remove 0 2 60\nadd 3 5 62\nrange 62 62\n"
+            + "remove 3 5 62\nadd 0 2 60\nrange 60 60\n", rec.log.toString());
+  }
+
+  //Test a snapshot never tells its listeners anything
+  @Test
+  public void testListenerSnapshot() {
+    IMusicModel obj = new MusicModel();
+    Recorder rec = new Recorder();
+    obj.snapshot().addListener(rec);
+    obj.addNote(0, 2, 1, 60, 10);
+    assertEquals("", rec.log.toString());
+  }
+
+  //Test that notes to display share the same Note objects and match their values
+  @Test
+  public void testNotesToDisplayShared() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 10);
+    obj.addNote(0, 2, 1, 62, 10);
+    List<Note> notes = obj.notesToDisplay();
+    assertEquals(true, notes.get(0) == Note.valueOf(62));
+    assertEquals(true, notes.get(2) == Note.valueOf(60));
+    assertEquals(61, notes.get(1).getValue());
+    assertEquals(" C#5 ", notes.get(1).toString());
+    assertEquals(true, Note.valueOf(PitchType.C, OctaveType.FIVE) == Note.valueOf(60));
+  }
+
+  //Test sounds share their note and report its pitch
+  @Test
+  public void testSoundPitch() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 2, 1, 67, 10);
+    Sound sound = obj.getBeats(0, 0).get(0).get(0);
+    assertEquals(67, sound.getPitch());
+    assertEquals(true, sound.getNote() == Note.valueOf(67));
+  }
+
+  //Test note value out of range
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoteValueOf() {
+    Note.valueOf(132);
+  }
+
   //Test notes to display with empty music model
   @Test
   public void testNotesToDisplay() {
@@ -386,4 +1197,239 @@ public class MusicModelTest {
     obj.setTempo(200);
     assertEquals(200, obj.getTempo());
   }
-}
\ No newline at end of file
+
+  //Test statistics of a small piece
+  @Test
+  public void testStatistics() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 1, 60, 10);
+    obj.addNote(2, 6, 1, 64, 10);
+    obj.addNote(3, 5, 2, 60, 10);
+    obj.addNote(7, 7, 2, 62, 10);
+    NoteStatistics stats = obj.getStatistics();
+    assertEquals(3, stats.getNoteCount());
+    assertEquals(10, stats.getTotalDuration());
+    assertEquals(2, stats.getPitchCount(60));
+    assertEquals(0, stats.getPitchCount(62));
+    assertEquals(2, stats.getInstrumentCount(1));
+    assertEquals(1, stats.getPlayingAt(0));
+    assertEquals(3, stats.getPlayingAt(3));
+    assertEquals(1, stats.getPlayingAt(5));
+    assertEquals(0, stats.getPlayingAt(6));
+    assertEquals(3, stats.getMaxPolyphony());
+  }
+
+  //Test statistics follow edits, undo and redo
+  @Test
+  public void testStatisticsEdited() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 1, 60, 10);
+    obj.addNote(2, 6, 1, 64, 10);
+    NoteStatistics stats = obj.getStatistics();
+    obj.clearHistory();
+    obj.addNote(1, 3, 0, 70, 10);
+    obj.removeNote(0, 4, 1, 60, 10);
+    obj.transformNotes(0, 10, NoteFilter.ALL, NoteTransform.IDENTITY.shift(100));
+    assertEquals(2, obj.getStatistics().getNoteCount());
+    assertEquals(2, obj.getStatistics().getMaxPolyphony());
+    assertEquals(0, obj.getStatistics().getPlayingAt(2));
+    assertEquals(2, obj.getStatistics().getPlayingAt(102));
+    assertEquals(obj.recomputeStatistics(), obj.getStatistics());
+    while (obj.undo()) {
+      assertEquals(obj.recomputeStatistics(), obj.getStatistics());
+    }
+    assertEquals(stats, obj.getStatistics());
+    obj.redo();
+    assertEquals(obj.recomputeStatistics(), obj.getStatistics());
+  }
+
+  //Test a snapshot keeps the statistics of the piece when it was taken
+  @Test
+  public void testStatisticsSnapshot() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 1, 60, 10);
+    obj.getStatistics();
+    MusicModel snapshot = obj.snapshot();
+    obj.addNote(0, 4, 1, 62, 10);
+    assertEquals(1, snapshot.getStatistics().getNoteCount());
+    assertEquals(2, obj.getStatistics().getNoteCount());
+    assertEquals(2, obj.getStatistics().getPlayingAt(0));
+  }
+
+  //Test statistics of a pitch out of range
+  @Test(expected = IllegalArgumentException.class)
+  public void testStatisticsPitch() {
+    new MusicModel().getStatistics().getPitchCount(128);
+  }
+
+  //Test summing up the sounds starting in ranges of beats
+  @Test
+  public void testSummarize() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 1, 60, 10);
+    obj.addNote(2, 6, 1, 64, 90);
+    obj.addNote(2, 3, 2, 60, 30);
+    obj.addNote(5, 5, 2, 62, 127);
+    obj.addNote(300, 301, 2, 62, 20);
+    assertEquals(4, obj.summarize(0, 300).getNoteCount());
+    assertEquals(2, obj.summarize(1, 2).getNoteCount());
+    assertEquals(90, obj.summarize(1, 2).getMaxVolume());
+    assertEquals(120, obj.summarize(1, 2).getVolumeSum());
+    assertEquals(0, obj.summarize(3, 299).getNoteCount());
+    assertEquals(-1, obj.summarize(3, 299).getMaxVolume());
+    obj.removeNote(2, 6, 1, 64, 90);
+    assertEquals(30, obj.summarize(0, 2).getMaxVolume());
+    assertEquals(40, obj.summarize(0, 2).getVolumeSum());
+    obj.undo();
+    assertEquals(obj.summarize(0, 400), obj.recomputeStatistics().summarize(0, 400));
+    assertEquals(130, obj.summarize(0, 2).getVolumeSum());
+  }
+
+  //Test summing up a range which ends before it starts
+  @Test(expected = IllegalArgumentException.class)
+  public void testSummarizeBackwards() {
+    new MusicModel().summarize(4, 3);
+  }
+
+  //Test the tracks of a piece follow the instruments it uses
+  @Test
+  public void testTracks() {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 3, 60, 10);
+    obj.addNote(2, 6, 1, 64, 10);
+    obj.addNote(8, 9, 3, 62, 10);
+    obj.addNote(5, 5, 7, 62, 10);
+    List<Integer> expected = new ArrayList<>();
+    expected.add(1);
+    expected.add(3);
+    assertEquals(expected, obj.getTracks());
+    SoundCursor c = obj.getTrack(3, 3, 20);
+    assertEquals(true, c.next());
+    assertEquals(0, c.getStartBeat());
+    assertEquals(true, c.next());
+    assertEquals(8, c.getStartBeat());
+    assertEquals(false, c.next());
+    obj.removeNote(2, 6, 1, 64, 10);
+    obj.editNote(0, 4, 3, 60, 10, 0, 4, 1, 60, 10);
+    assertEquals(false, obj.getTrack(3, 0, 4).next());
+    c = obj.query(NoteQuery.ALL.instrument(1));
+    assertEquals(true, c.next());
+    assertEquals(60, c.getPitch());
+    assertEquals(false, c.next());
+    obj.undo();
+    assertEquals(true, obj.getTrack(3, 0, 4).next());
+  }
+
+  //Test getting the track of an instrument out of range
+  @Test(expected = IllegalArgumentException.class)
+  public void testTrackInstrument() {
+    new MusicModel().getTrack(128, 0, 4);
+  }
+
+  //Test a piece timed in ticks is still shown and read out in beats
+  @Test
+  public void testResolution() {
+    MusicModel obj = new MusicModel();
+    obj.setResolution(4);
+    obj.addNote(2, 9, 1, 60, 10);
+    obj.addNote(5, 6, 1, 62, 20);
+    assertEquals(4, obj.getResolution());
+    assertEquals(3, obj.getEndBeat());
+    assertEquals("   D5  C#5   C5 \n" +
+            "0            X  \n" +
+            "1  X         |  \n" +
+            "2            |  \n", obj.display());
+    HashMap<Integer, ArrayList<Sound>> beats = obj.getBeats(1, 5);
+    assertEquals(2, beats.size());
+    assertEquals(2, beats.get(1).size());
+    assertEquals(1, beats.get(2).size());
+    assertEquals("2-9 1 60 10\n", listCursor(obj.getSounds(0, 3)));
+    assertEquals(2, obj.summarize(0, 7).getNoteCount());
+    assertEquals(4, obj.snapshot().getResolution());
+  }
+
+  //Test pieces of the same resolution are combined a beat apart, counted in ticks
+  @Test
+  public void testResolutionCombine() {
+    IMusicModel obj = new MusicModel();
+    IMusicModel that = new MusicModel();
+    obj.setResolution(480);
+    that.setResolution(480);
+    obj.addNote(0, 240, 1, 60, 10);
+    that.addNote(0, 960, 1, 62, 10);
+    obj.combineMusic(CombineType.CONSECUTIVE, that);
+    assertEquals("1440-1680 1 60 10\n", listCursor(that.getSounds(1440, 1440)));
+    assertEquals(4, that.getEndBeat());
+  }
+
+  //Test combining pieces of different resolutions
+  @Test(expected = IllegalArgumentException.class)
+  public void testResolutionCombineMismatch() {
+    IMusicModel obj = new MusicModel();
+    obj.setResolution(2);
+    obj.combineMusic(CombineType.SIMULTANEOUS, new MusicModel());
+  }
+
+  //Test changing the resolution of a piece with notes
+  @Test(expected = IllegalArgumentException.class)
+  public void testResolutionWithNotes() {
+    IMusicModel obj = new MusicModel();
+    obj.addNote(0, 0, 1, 60, 10);
+    obj.setResolution(480);
+  }
+
+  //Test a resolution of no ticks per beat
+  @Test(expected = IllegalArgumentException.class)
+  public void testResolutionZero() {
+    new MusicModel().setResolution(0);
+  }
+
+  //Test pieces with the same notes hash the same, whatever order the notes were added in
+  @Test
+  public void testHash() {
+    MusicModel obj = new MusicModel();
+    MusicModel that = new MusicModel();
+    assertEquals(0L, obj.getHash());
+    for (int i = 0; i < 20; i += 1) {
+      obj.addNote(i * 3, i * 3 + 2, 1, 50 + i, 64);
+      that.addNote(57 - i * 3, 59 - i * 3, 1, 69 - i, 64);
+    }
+    assertEquals(obj.getHash(), that.getHash());
+    assertEquals(obj.getHash(2, 9), that.getHash(2, 9));
+    that.clearHistory();
+    that.addNote(200, 202, 1, 60, 64);
+    assertEquals(false, obj.getHash() == that.getHash());
+    that.undo();
+    assertEquals(obj.getHash(), that.getHash());
+  }
+
+  //Test an edit only changes the hashes of ranges holding the measure it touched
+  @Test
+  public void testHashEdited() {
+    MusicModel obj = new MusicModel();
+    for (int i = 0; i < 40; i += 1) {
+      obj.addNote(i * 2, i * 2 + 3, 1, 60 + i % 5, 64);
+    }
+    long root = obj.getHash();
+    long[] measures = new long[20];
+    for (int i = 0; i < measures.length; i += 1) {
+      measures[i] = obj.getHash(i, i);
+    }
+    long early = obj.getHash(0, 5);
+    IMusicModel before = obj.snapshot();
+    obj.editNote(26, 29, 1, 63, 64, 26, 29, 1, 63, 100);
+    assertEquals(false, root == obj.getHash());
+    for (int i = 0; i < measures.length; i += 1) {
+      assertEquals(i == 6, measures[i] != obj.getHash(i, i));
+    }
+    assertEquals(early, obj.getHash(0, 5));
+    assertEquals(false, obj.getHash(5, 9) == ((MusicModel) before).getHash(5, 9));
+    assertEquals(root, ((MusicModel) before).getHash());
+  }
+
+  //Test hashing a range of measures ending before it starts
+  @Test(expected = IllegalArgumentException.class)
+  public void testHashRange() {
+    new MusicModel().getHash(3, 2);
+  }
+}
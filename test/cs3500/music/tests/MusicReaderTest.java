@@ -0,0 +1,163 @@
+package cs3500.music.tests;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import cs3500.music.model.MusicModel;
+import cs3500.music.util.ModelBuilder;
+import cs3500.music.util.MusicReader;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Class which tests reading pieces from text with a Scanner and straight from bytes.
+ */
+public class MusicReaderTest {
+
+  /**
+   * Reads a piece from text with parseStream.
+   */
+  private static MusicModel parseStream(String text) throws IOException {
+    return MusicReader.parseStream(
+            new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), new ModelBuilder());
+  }
+
+  /**
+   * Writes text to a temporary file and reads it with parseParallel.
+   */
+  private static MusicModel parseParallel(String text) throws IOException {
+    Path path = Files.createTempFile("music", ".txt");
+    path.toFile().deleteOnExit();
+    Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+    return MusicReader.parseParallel(path, new ModelBuilder());
+  }
+
+  /**
+   * Returns the message of the error reading the given text with parseFile, or with parseStream
+   * or parseParallel, which should be the same.
+   */
+  private static String error(String text, String how) throws IOException {
+    try {
+      if (how.equals("stream")) {
+        parseStream(text);
+      } else if (how.equals("parallel")) {
+        parseParallel(text);
+      } else {
+        MusicReader.parseFile(new StringReader(text), new ModelBuilder());
+      }
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+    return "no error";
+  }
+
+  //Test reading every example file from bytes gives the same piece as reading it with a Scanner
+  @Test
+  public void testSameAsParseFile() throws IOException {
+    String[] files = {"mary-little-lamb.txt", "df-ttfaf.txt", "lnl.txt", "mystery-1.txt",
+        "mystery-2.txt", "mystery-3.txt", "zoot-lw.txt", "zoot-zl.txt"};
+    for (String name : files) {
+      MusicModel scanned = MusicReader.parseFile(new FileReader(name), new ModelBuilder());
+      MusicModel streamed;
+      try (InputStream in = Files.newInputStream(Paths.get(name))) {
+        streamed = MusicReader.parseStream(in, new ModelBuilder());
+      }
+      assertEquals(scanned.getTempo(), streamed.getTempo());
+      assertEquals(scanned.getHash(), streamed.getHash());
+      assertEquals(scanned.display(), streamed.display());
+    }
+  }
+
+  //Test numbers in every form a Scanner reads, and notes split over lines
+  @Test
+  public void testNumberForms() throws IOException {
+    String text = "tempo +200000\r\nresolution 2\nnote 0 1,000 1\n60 -0\tnote 4 6 1 62 100";
+    MusicModel scanned = MusicReader.parseFile(new StringReader(text), new ModelBuilder());
+    MusicModel streamed = parseStream(text);
+    assertEquals(200000, streamed.getTempo());
+    assertEquals(2, streamed.getResolution());
+    assertEquals(500, streamed.getEndBeat());
+    assertEquals(scanned.getHash(), streamed.getHash());
+  }
+
+  //Test malformed lines give the same errors either way
+  @Test
+  public void testSameErrors() throws IOException {
+    String[] texts = {"tempo fast\n", "tempo 99999999999 \nnote 0 1 1 60 64\n",
+        "note 0 2 1 60 64\nnote 1 2 x 4 5\nnote 0 1 1 1 1\n", "note 0 2 1\n60 loud now\n",
+        "resolution\n\n4 note 0 1 1 60 64", "note 0 2 1 60 64\nresolution 4\n",
+        "note 0 2 1 60 64\nrest 3\n", "notes 1 2 3 4 5\n"};
+    for (String text : texts) {
+      assertEquals(error(text, "file"), error(text, "stream"));
+      assertEquals(error(text, "file"), error(text, "parallel"));
+    }
+    assertEquals("Malformed note line: x 4 5", error(texts[2], "stream"));
+    assertEquals("Malformed tempo line: 99999999999 ", error(texts[1], "parallel"));
+    assertEquals("Bad line type: rest", error(texts[6], "stream"));
+  }
+
+  //Test a bad note is reported before an error in a later line, as it comes first
+  @Test
+  public void testBadNoteBeforeLaterError() throws IOException {
+    String[] texts = {"note 0 4 1 200 50\nbogus 1\n", "note 0 4 1 200 50\nnote 1 2",
+        "tempo 5\nnote 0 4 1 200 50\nresolution 2\n"};
+    for (String text : texts) {
+      assertEquals("Pitch value cannot be outside range [0, 127].", error(text, "file"));
+      assertEquals("Pitch value cannot be outside range [0, 127].", error(text, "stream"));
+      assertEquals("Pitch value cannot be outside range [0, 127].", error(text, "parallel"));
+    }
+  }
+
+  //Test a note line cut off at the end of the text
+  @Test(expected = IllegalArgumentException.class)
+  public void testCutOff() throws IOException {
+    parseStream("note 0 2 1 60 64\nnote 3 4 x");
+  }
+
+  //Test reading every example file in parallel gives the same piece as reading it with a Scanner
+  @Test
+  public void testParallelSameAsParseFile() throws IOException {
+    String[] files = {"mary-little-lamb.txt", "df-ttfaf.txt", "lnl.txt", "zoot-lw.txt"};
+    for (String name : files) {
+      MusicModel scanned = MusicReader.parseFile(new FileReader(name), new ModelBuilder());
+      MusicModel parallel = MusicReader.parseParallel(Paths.get(name), new ModelBuilder());
+      assertEquals(scanned.getTempo(), parallel.getTempo());
+      assertEquals(scanned.getHash(), parallel.getHash());
+      assertEquals(scanned.display(), parallel.display());
+    }
+  }
+
+  //Test a file long enough to be read in several chunks, with tempo lines and notes written over
+  //two lines throughout
+  @Test
+  public void testParallelLargeFile() throws IOException {
+    StringBuilder text = new StringBuilder("resolution 4\n");
+    Random random = new Random(3);
+    for (int i = 0; i < 400000; i += 1) {
+      if (i % 100000 == 50000) {
+        text.append("tempo ").append(100000 + i).append("\n");
+      }
+      int start = random.nextInt(20000);
+      text.append("note ").append(start).append(i % 7 == 0 ? "\n" : " ")
+              .append(start + 1 + random.nextInt(16)).append(" ").append(random.nextInt(4))
+              .append(" ").append(random.nextInt(128)).append(" 100\n");
+    }
+    MusicModel streamed = parseStream(text.toString());
+    MusicModel parallel = parseParallel(text.toString());
+    assertEquals(450000, parallel.getTempo());
+    assertEquals(4, parallel.getResolution());
+    assertEquals(400000, parallel.summarize(0, 20000).getNoteCount());
+    assertEquals(streamed.getHash(), parallel.getHash());
+    assertEquals(streamed.getEndBeat(), parallel.getEndBeat());
+  }
+}
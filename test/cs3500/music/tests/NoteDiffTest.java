@@ -0,0 +1,139 @@
+package cs3500.music.tests;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.ModelListener;
+import cs3500.music.model.MusicFile;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.NoteDiff;
+import cs3500.music.model.PagedMusicModel;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Class which tests finding the differences between two pieces.
+ */
+public class NoteDiffTest {
+
+  /**
+   * Builds a piece with a note on most beats.
+   */
+  private static MusicModel piece() {
+    MusicModel obj = new MusicModel();
+    obj.setTempo(200000);
+    for (int i = 0; i < 50; i += 1) {
+      obj.addNote(i * 2, i * 2 + 1 + i % 3, 1 + i % 2, 50 + i % 9, 80);
+    }
+    return obj;
+  }
+
+  //Test two equal pieces have no differences, whatever order their notes were added in
+  @Test
+  public void testSame() {
+    IMusicModel obj = new MusicModel();
+    IMusicModel that = new MusicModel();
+    obj.addNote(0, 2, 1, 60, 64);
+    obj.addNote(0, 4, 1, 62, 64);
+    that.addNote(0, 4, 1, 62, 64);
+    that.addNote(0, 2, 1, 60, 64);
+    NoteDiff diff = NoteDiff.between(obj, that);
+    assertTrue(diff.isEmpty());
+    assertEquals("", diff.toString());
+  }
+
+  //Test notes added, removed and edited, and a changed tempo, are listed in canonical order
+  @Test
+  public void testChanges() {
+    IMusicModel obj = new MusicModel();
+    IMusicModel that = new MusicModel();
+    obj.setTempo(100);
+    that.setTempo(200);
+    obj.addNote(4, 6, 1, 60, 64);
+    obj.addNote(0, 2, 2, 60, 64);
+    obj.addNote(0, 2, 1, 62, 64);
+    that.addNote(0, 3, 1, 62, 90);
+    that.addNote(0, 2, 2, 60, 64);
+    that.addNote(5, 6, 1, 60, 64);
+    NoteDiff diff = NoteDiff.between(obj, that);
+    assertEquals("tempo 200\n"
+            + "~ 0-2 1 62 64 to 0-3 1 62 90\n"
+            + "- 4-6 1 60 64\n"
+            + "+ 5-6 1 60 64\n", diff.toString());
+    assertEquals(1, diff.getAddedCount());
+    assertEquals(1, diff.getRemovedCount());
+    assertEquals(1, diff.getEditedCount());
+  }
+
+  //Test only the extra copies of a repeated note are removed
+  @Test
+  public void testRepeatedNotes() {
+    IMusicModel obj = new MusicModel();
+    IMusicModel that = new MusicModel();
+    for (int i = 0; i < 3; i += 1) {
+      obj.addNote(0, 2, 1, 60, 64);
+    }
+    that.addNote(0, 2, 1, 60, 64);
+    that.addNote(0, 5, 1, 60, 64);
+    assertEquals("~ 0-2 1 60 64 to 0-5 1 60 64\n- 0-2 1 60 64\n",
+            NoteDiff.between(obj, that).toString());
+  }
+
+  //Test applying the differences turns the first piece into the second
+  @Test
+  public void testApplyTo() {
+    MusicModel obj = piece();
+    MusicModel that = piece();
+    that.setTempo(300000);
+    that.addNote(7, 9, 1, 70, 10);
+    that.removeNote(10, 13, 2, 55, 80);
+    that.editNote(20, 22, 1, 51, 80, 20, 25, 1, 51, 30);
+    that.editNote(30, 31, 2, 56, 80, 31, 32, 2, 56, 80);
+    NoteDiff diff = NoteDiff.between(obj, that);
+    assertEquals(2, diff.getAddedCount());
+    assertEquals(2, diff.getRemovedCount());
+    assertEquals(1, diff.getEditedCount());
+    diff.applyTo(obj);
+    assertTrue(NoteDiff.between(obj, that).isEmpty());
+    assertEquals(that.display(), obj.display());
+  }
+
+  //Test streaming the differences from a paged piece, without collecting them
+  @Test
+  public void testStream() throws IOException {
+    MusicModel obj = piece();
+    Path path = Files.createTempFile("music", ".mbin");
+    path.toFile().deleteOnExit();
+    MusicFile.write(obj, path);
+    PagedMusicModel paged = new PagedMusicModel(MusicFile.open(path), 8, 1);
+    paged.removeNote(40, 43, 1, 52, 80);
+    int[] counts = new int[3];
+    NoteDiff.stream(paged, obj, new ModelListener() {
+      @Override
+      public void noteAdded(int start, int end, int instrument, int pitch, int volume) {
+        counts[0] += 1;
+      }
+
+      @Override
+      public void noteRemoved(int start, int end, int instrument, int pitch, int volume) {
+        counts[1] += 1;
+      }
+    });
+    assertEquals(1, counts[0]);
+    assertEquals(0, counts[1]);
+    assertTrue(paged.getLoadedPages() <= 2);
+  }
+
+  //Test comparing pieces of different resolutions
+  @Test(expected = IllegalArgumentException.class)
+  public void testResolutionMismatch() {
+    IMusicModel obj = new MusicModel();
+    obj.setResolution(4);
+    NoteDiff.between(obj, new MusicModel());
+  }
+}
@@ -0,0 +1,205 @@
+package cs3500.music.tests;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.MusicFile;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.NoteFilter;
+import cs3500.music.model.NoteQuery;
+import cs3500.music.model.NoteTransform;
+import cs3500.music.model.PagedMusicModel;
+import cs3500.music.model.SoundCursor;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Class which tests the paged music model.
+ */
+public class PagedMusicModelTest {
+
+  /**
+   * Lists the sounds a cursor visits, one per line.
+   */
+  private static String listCursor(SoundCursor c) {
+    StringBuilder out = new StringBuilder();
+    while (c.next()) {
+      out.append(c.getStartBeat() + "-" + c.getEndBeat() + " " + c.getInstrument() + " "
+              + c.getPitch() + " " + c.getVolume() + "\n");
+    }
+    return out.toString();
+  }
+
+  /**
+   * Builds a piece spread over many pages, with one note lasting most of it.
+   */
+  private static MusicModel piece() {
+    MusicModel obj = new MusicModel();
+    obj.setTempo(150000);
+    obj.addNote(2, 90, 3, 50, 64);
+    for (int i = 0; i < 60; i += 1) {
+      obj.addNote(i * 2, i * 2 + 1 + i % 4, i % 3, 55 + i % 12, 100);
+    }
+    return obj;
+  }
+
+  /**
+   * Writes a model to a temporary binary file and opens it as a paged model.
+   */
+  private static PagedMusicModel paged(IMusicModel model, int pageBeats, int cachedPages)
+          throws IOException {
+    Path path = Files.createTempFile("music", ".mbin");
+    path.toFile().deleteOnExit();
+    MusicFile.write(model, path);
+    return new PagedMusicModel(MusicFile.open(path), pageBeats, cachedPages);
+  }
+
+  //Test reading a paged piece gives the same notes as the model it was written from
+  @Test
+  public void testSameAsMusicModel() throws IOException {
+    MusicModel obj = piece();
+    PagedMusicModel paged = paged(obj, 8, 2);
+    assertEquals(obj.getTempo(), paged.getTempo());
+    assertEquals(obj.getEndBeat(), paged.getEndBeat());
+    assertEquals(obj.notesToDisplay(), paged.notesToDisplay());
+    assertEquals(listCursor(obj.getSounds()), listCursor(paged.getSounds()));
+    assertEquals(listCursor(obj.getSounds(40, 47)), listCursor(paged.getSounds(40, 47)));
+    assertEquals(listCursor(obj.getSoundsAt(85)), listCursor(paged.getSoundsAt(85)));
+    NoteQuery query = NoteQuery.ALL.pitches(50, 60).beats(10, 30);
+    assertEquals(listCursor(obj.query(query)), listCursor(paged.query(query)));
+    assertEquals(obj.getBeats(60, 70).keySet(), paged.getBeats(60, 70).keySet());
+    assertEquals(obj.getBeats(60, 70).get(64).size(), paged.getBeats(60, 70).get(64).size());
+    assertEquals(obj.display(), paged.display());
+  }
+
+  //Test the cache never holds more pages than it has room for
+  @Test
+  public void testCacheBounded() throws IOException {
+    PagedMusicModel paged = paged(piece(), 4, 3);
+    assertEquals(0, paged.getLoadedPages());
+    for (int beat = 0; beat < 120; beat += 4) {
+      paged.getBeats(beat, beat + 3);
+      assertTrue(paged.getLoadedPages() <= 3);
+    }
+    assertTrue(paged.getLoadedPages() > 0);
+  }
+
+  //Test edits are kept even once their pages would have been pushed out of the cache
+  @Test
+  public void testEditsKept() throws IOException {
+    MusicModel obj = piece();
+    PagedMusicModel paged = paged(obj, 4, 1);
+    for (IMusicModel model : new IMusicModel[]{obj, paged}) {
+      model.addNote(1, 5, 0, 70, 10);
+      model.removeNote(42, 44, 0, 64, 100);
+      model.editNote(0, 1, 0, 55, 100, 200, 204, 0, 55, 100);
+      model.transformNotes(10, 20, NoteFilter.ALL, NoteTransform.IDENTITY.shift(9).transpose(1));
+    }
+    for (int beat = 0; beat < 210; beat += 4) {
+      paged.getBeats(beat, beat + 3);
+    }
+    assertEquals(obj.getEndBeat(), paged.getEndBeat());
+    assertEquals(listCursor(obj.getSounds()), listCursor(paged.getSounds()));
+  }
+
+  //Test undoing and redoing edits to a paged piece
+  @Test
+  public void testUndo() throws IOException {
+    MusicModel obj = piece();
+    PagedMusicModel paged = paged(obj, 8, 2);
+    obj.clearHistory();
+    for (IMusicModel model : new IMusicModel[]{obj, paged}) {
+      model.addNote(300, 302, 1, 60, 10);
+      model.removeNote(2, 90, 3, 50, 64);
+      model.setTempo(10);
+    }
+    assertEquals(302, paged.getEndBeat());
+    for (int i = 0; i < 3; i += 1) {
+      assertTrue(obj.undo());
+      assertTrue(paged.undo());
+    }
+    assertEquals(listCursor(obj.getSounds()), listCursor(paged.getSounds()));
+    assertEquals(122, paged.getEndBeat());
+    assertEquals(150000, paged.getTempo());
+    assertTrue(paged.redo());
+    assertEquals(302, paged.getEndBeat());
+  }
+
+  //Test removing a note past the end of the piece
+  @Test(expected = IllegalArgumentException.class)
+  public void testRemoveMissing() throws IOException {
+    paged(piece(), 8, 2).removeNote(500, 502, 1, 60, 10);
+  }
+
+  //Test removing a note starting where nothing is playing, on a page of the piece
+  @Test
+  public void testRemoveWhereSilent() throws IOException {
+    MusicModel obj = new MusicModel();
+    obj.addNote(0, 4, 1, 60, 50);
+    PagedMusicModel paged = paged(obj, 16, 2);
+    try {
+      paged.removeNote(10, 12, 1, 60, 50);
+    } catch (IllegalArgumentException e) {
+      assertEquals("Sound not present in track.", e.getMessage());
+      assertEquals(obj.display(), paged.display());
+      return;
+    }
+    assertTrue(false);
+  }
+
+  //Test constructing with pages of no beats
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoPageBeats() throws IOException {
+    paged(piece(), 0, 2);
+  }
+
+  //Test summing up ranges of beats without loading any pages
+  @Test
+  public void testSummarize() throws IOException {
+    MusicModel obj = piece();
+    PagedMusicModel paged = paged(obj, 8, 2);
+    assertEquals(obj.summarize(0, 200), paged.summarize(0, 200));
+    assertEquals(obj.summarize(17, 50), paged.summarize(17, 50));
+    assertEquals(0, paged.getLoadedPages());
+    for (IMusicModel model : new IMusicModel[]{obj, paged}) {
+      model.addNote(20, 22, 0, 70, 127);
+      model.removeNote(40, 41, 2, 63, 100);
+    }
+    assertEquals(obj.summarize(17, 50), paged.summarize(17, 50));
+    assertEquals(127, paged.summarize(17, 50).getMaxVolume());
+  }
+
+  //Test reading the tracks of a paged piece
+  @Test
+  public void testTracks() throws IOException {
+    MusicModel obj = piece();
+    PagedMusicModel paged = paged(obj, 8, 2);
+    assertEquals(obj.getTracks(), paged.getTracks());
+    assertEquals(listCursor(obj.getTrack(1, 30, 50)), listCursor(paged.getTrack(1, 30, 50)));
+    paged.addNote(10, 12, 9, 60, 10);
+    assertEquals(5, paged.getTracks().size());
+    paged.removeNote(10, 12, 9, 60, 10);
+    assertEquals(obj.getTracks(), paged.getTracks());
+  }
+
+  //Test a paged piece timed in ticks is read out in beats
+  @Test
+  public void testResolution() throws IOException {
+    MusicModel obj = new MusicModel();
+    obj.setResolution(3);
+    for (int i = 0; i < 40; i += 1) {
+      obj.addNote(i * 5, i * 5 + 4, 1, 50 + i % 7, 90);
+    }
+    PagedMusicModel paged = paged(obj, 8, 2);
+    assertEquals(3, paged.getResolution());
+    assertEquals(obj.getEndBeat(), paged.getEndBeat());
+    assertEquals(obj.getBeats(20, 30).keySet(), paged.getBeats(20, 30).keySet());
+    assertEquals(obj.getBeats(20, 30).get(25).size(), paged.getBeats(20, 30).get(25).size());
+    assertEquals(obj.display(), paged.display());
+  }
+}